@@ -14,6 +14,13 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Room writes the schema of every database version here, for reviewing migrations
+        javaCompileOptions {
+            annotationProcessorOptions {
+                arguments += mapOf("room.schemaLocation" to "$projectDir/schemas")
+            }
+        }
     }
 
     buildTypes {
@@ -29,6 +36,18 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+
+    // MigrationTestHelper reads the exported schemas from the instrumented test assets
+    sourceSets {
+        getByName("androidTest").assets.srcDir("$projectDir/schemas")
+    }
+
+    // Benchmarks in the unit tests only run when asked for with -Pbenchmarks
+    testOptions {
+        unitTests.all {
+            it.systemProperty("benchmarks", project.hasProperty("benchmarks"))
+        }
+    }
 }
 
 dependencies {
@@ -41,6 +60,7 @@ dependencies {
     // Add new dependencies
     implementation(libs.room.runtime)
     annotationProcessor(libs.room.compiler)
+    androidTestImplementation(libs.room.testing)
 
     implementation(libs.recyclerview)
     implementation(libs.sdp.android)
@@ -0,0 +1,243 @@
+package com.android.mynotes.data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.mynotes.domain.entities.Note;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Asserts that every {@link NoteDao} and {@link CommandJournalDao} query is answered through an index.
+ * The DAO methods are called for real; a query callback records the statements Room executes,
+ * with their bound arguments, and each one is then explained with {@code EXPLAIN QUERY PLAN}.
+ * A plan fails when it scans a table without an index or sorts rows in a temporary
+ * B-tree; walking the table in primary key order is allowed, since that is the ID order.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteQueryPlanTest {
+
+    private final List<ExecutedStatement> executed = new CopyOnWriteArrayList<>();
+
+    private Thread testThread;
+    private NotesDatabase database;
+    private SupportSQLiteDatabase db;
+    private NoteDao noteDao;
+    private CommandJournalDao journalDao;
+
+    @Before
+    public void createDatabase() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        testThread = Thread.currentThread();
+        database = Room.inMemoryDatabaseBuilder(context, NotesDatabase.class)
+                .setQueryCallback(this::record, Runnable::run)
+                .build();
+        db = database.getOpenHelper().getWritableDatabase();
+        noteDao = database.noteDao();
+        journalDao = database.commandJournalDao();
+    }
+
+    @After
+    public void closeDatabase() {
+        database.close();
+    }
+
+    @Test
+    public void singleNoteLookupsUseThePrimaryKey() {
+        assertIndexed(() -> noteDao.getNoteById(1));
+        assertIndexed(() -> noteDao.getNotesByIds(Arrays.asList(1, 2, 3)));
+    }
+
+    @Test
+    public void idOrderPagesFollowThePrimaryKey() {
+        assertIndexed(() -> noteDao.getNotesPage(30));
+        assertIndexed(() -> noteDao.getNotesPageBefore(100, 30));
+        assertIndexed(() -> noteDao.getSummariesPage(30));
+        assertIndexed(() -> noteDao.getSummariesPageBefore(100, 30));
+        assertIndexed(() -> noteDao.getSummariesFrom(100));
+        assertIndexed(() -> noteDao.getSummariesPageAfter(100, 30));
+        assertIndexed(() -> noteDao.getSummariesBetween(200, 100));
+        assertIndexed(() -> noteDao.countNotesAfter(100));
+    }
+
+    @Test
+    public void dateOrderPagesUseTheUpdatedAtIndex() {
+        String index = "index_notes_updated_at";
+        assertUsesIndex(index, () -> noteDao.getSummariesPageByDate(30));
+        assertUsesIndex(index, () -> noteDao.getSummariesPageByDateBefore(1000L, 100, 30));
+        assertUsesIndex(index, () -> noteDao.getSummariesByDateFrom(1000L, 100));
+        assertUsesIndex(index, () -> noteDao.getSummariesPageByDateAfter(1000L, 100, 30));
+        assertUsesIndex(index, () -> noteDao.getSummariesByDateBetween(2000L, 200, 1000L, 100));
+        assertUsesIndex(index, () -> noteDao.countNotesByDateAfter(1000L, 100));
+    }
+
+    @Test
+    public void titleOrderPagesUseTheTitleIndex() {
+        String index = "index_notes_title";
+        assertUsesIndex(index, () -> noteDao.getSummariesPageByTitle(30));
+        assertUsesIndex(index, () -> noteDao.getSummariesPageByTitleAfter("m", 100, 30));
+        assertUsesIndex(index, () -> noteDao.getSummariesByTitleThrough("m", 100));
+        assertUsesIndex(index, () -> noteDao.getSummariesPageByTitleBefore("m", 100, 30));
+        assertUsesIndex(index, () -> noteDao.getSummariesByTitleBetween("m", 100, "m", 200));
+        assertUsesIndex(index, () -> noteDao.countNotesByTitleBefore("m", 100));
+        assertUsesIndex(index, () -> noteDao.getSummariesByTitle());
+    }
+
+    @Test
+    public void colorOrderPagesUseTheColorIndex() {
+        String index = "index_notes_color";
+        String color = "#333333";
+        assertUsesIndex(index, () -> noteDao.getSummariesPageByColor(30));
+        assertUsesIndex(index, () -> noteDao.getSummariesPageByColorAfter(color, 100, 30));
+        assertUsesIndex(index, () -> noteDao.getSummariesByColorThrough(color, 100));
+        assertUsesIndex(index, () -> noteDao.getSummariesPageByColorBefore(color, 100, 30));
+        assertUsesIndex(index, () -> noteDao.getSummariesByColorBetween(color, 100, color, 200));
+        assertUsesIndex(index, () -> noteDao.countNotesByColorBefore(color, 100));
+        assertUsesIndex(index, () -> noteDao.getSummariesByColor());
+    }
+
+    @Test
+    public void searchQueriesUseTheirIndexes() {
+        assertIndexed(() -> noteDao.searchNotes("meet*"));
+        assertIndexed(() -> noteDao.findNotesWithTrigrams(Arrays.asList("voi", "oic"), 2));
+        assertUsesIndex("index_note_trigrams_note_id", () -> noteDao.deleteTrigrams(1));
+    }
+
+    @Test
+    public void noteWritesFindTheirRowsThroughKeys() {
+        Note note = new Note.Builder()
+                .setTitle("Invoice")
+                .setNoteText("Paid in March")
+                .build();
+        assertIndexed(() -> noteDao.saveNote(note));
+        note.setNoteText("Paid in April");
+        assertIndexed(() -> noteDao.saveNote(note));
+        assertIndexed(() -> noteDao.removeNote(note));
+    }
+
+    @Test
+    public void journalQueriesUseTheStateIndex() {
+        String index = "index_command_journal_state_seq";
+        assertUsesIndex(index, () -> journalDao.getDonePage(0, 16));
+        assertUsesIndex(index, () -> journalDao.getUndonePage(0, 16));
+        assertUsesIndex(index, () -> journalDao.discardLatestDone());
+        assertUsesIndex(index, () -> journalDao.markLatestUndone());
+        assertUsesIndex(index, () -> journalDao.markNextRedone());
+        assertUsesIndex(index, () -> journalDao.discardUndone());
+        assertUsesIndex(index, () -> journalDao.discardDoneBeyond(500));
+        assertUsesIndex(index, () -> journalDao.deleteDiscarded());
+    }
+
+    /**
+     * Query callback keeping the reads, updates and deletes issued by the test itself,
+     * leaving out Room's own bookkeeping and the EXPLAIN statements of the assertions.
+     */
+    private void record(String sql, List<Object> bindArgs) {
+        String verb = sql.trim().toUpperCase(Locale.ROOT);
+        boolean query = verb.startsWith("SELECT") || verb.startsWith("UPDATE") || verb.startsWith("DELETE");
+        if (Thread.currentThread() == testThread && query && !sql.contains("room_")) {
+            executed.add(new ExecutedStatement(sql, bindArgs.toArray()));
+        }
+    }
+
+    /**
+     * Runs DAO calls and returns the statements they executed.
+     */
+    private List<ExecutedStatement> executedBy(Runnable calls) {
+        executed.clear();
+        calls.run();
+        List<ExecutedStatement> statements = new ArrayList<>(executed);
+        assertFalse("No statement was executed", statements.isEmpty());
+        return statements;
+    }
+
+    /**
+     * Asserts that no statement executed by the calls scans a table without an index
+     * or sorts in a temporary B-tree.
+     */
+    private void assertIndexed(Runnable calls) {
+        for (ExecutedStatement statement : executedBy(calls)) {
+            assertIndexed(statement);
+        }
+    }
+
+    /**
+     * Asserts that every statement executed by the calls is indexed and goes through the named index.
+     */
+    private void assertUsesIndex(String index, Runnable calls) {
+        for (ExecutedStatement statement : executedBy(calls)) {
+            assertIndexed(statement);
+            List<String> steps = plan(statement);
+            boolean found = false;
+            for (String step : steps) {
+                found |= step.contains(index);
+            }
+            assertTrue("Does not use " + index + ": " + steps + "\n" + statement.sql, found);
+        }
+    }
+
+    private void assertIndexed(ExecutedStatement statement) {
+        for (String step : plan(statement)) {
+            assertFalse("Sorts without an index: " + step + "\n" + statement.sql,
+                    step.contains("TEMP B-TREE FOR ORDER BY"));
+            if (step.startsWith("SCAN ")) {
+                boolean indexed = step.contains(" USING ")
+                        || step.contains("VIRTUAL TABLE")
+                        || isPrimaryKeyOrderScan(step, statement.sql);
+                assertTrue("Full table scan: " + step + "\n" + statement.sql, indexed);
+            }
+        }
+    }
+
+    /**
+     * A bare scan of `notes` walks the rowid B-tree, which is the requested order when
+     * the query sorts by ID only.
+     */
+    private static boolean isPrimaryKeyOrderScan(String step, String sql) {
+        return step.equals("SCAN notes") && sql.contains("ORDER BY id DESC");
+    }
+
+    /**
+     * Returns the detail column of {@code EXPLAIN QUERY PLAN} for an executed statement.
+     */
+    private List<String> plan(ExecutedStatement statement) {
+        List<String> steps = new ArrayList<>();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + statement.sql, statement.bindArgs)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                steps.add(cursor.getString(detail));
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * A statement reported by the query callback, with the arguments bound to it.
+     */
+    private static final class ExecutedStatement {
+
+        final String sql;
+        final Object[] bindArgs;
+
+        ExecutedStatement(String sql, Object[] bindArgs) {
+            this.sql = sql;
+            this.bindArgs = bindArgs;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.android.mynotes.data;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.mynotes.domain.entities.Note;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the full-text index follows the notes saved through {@link NoteDao#saveNote(Note)}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteSearchIndexTest {
+
+    private NotesDatabase database;
+    private NoteDao noteDao;
+
+    @Before
+    public void createDatabase() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, NotesDatabase.class).build();
+        noteDao = database.noteDao();
+    }
+
+    @After
+    public void closeDatabase() {
+        database.close();
+    }
+
+    @Test
+    public void editedNoteNoLongerMatchesRemovedWord() {
+        Note note = newNote("apple banana");
+        noteDao.saveNote(note);
+        assertEquals(1, search("apple").size());
+
+        note.setNoteText("banana cherry");
+        noteDao.saveNote(note);
+
+        assertTrue(search("apple").isEmpty());
+        assertEquals(1, search("banana").size());
+        assertEquals(1, search("cherry").size());
+    }
+
+    @Test
+    public void restoredNoteKeepsItsIdAndMatchesAgain() {
+        Note note = newNote("apple");
+        noteDao.saveNote(note);
+        int id = note.getId();
+
+        noteDao.removeNote(note);
+        assertTrue(search("apple").isEmpty());
+
+        noteDao.saveNote(note);
+        assertEquals(id, note.getId());
+        List<NoteMatch> matches = search("apple");
+        assertEquals(1, matches.size());
+        assertEquals(id, matches.get(0).getSummary().getId());
+        assertEquals("apple", matches.get(0).getNoteText());
+    }
+
+    private List<NoteMatch> search(String query) {
+        return noteDao.searchNotes(FtsQuery.toMatchExpression(query));
+    }
+
+    private static Note newNote(String text) {
+        return new Note.Builder()
+                .setTitle("Groceries")
+                .setSubtitle("")
+                .setDateTime("")
+                .setColor("#333333")
+                .setNoteText(text)
+                .build();
+    }
+}
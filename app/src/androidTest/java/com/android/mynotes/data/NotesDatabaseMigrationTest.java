@@ -0,0 +1,77 @@
+package com.android.mynotes.data;
+
+import android.database.Cursor;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.mynotes.domain.decorators.NoteDecoratorFactory;
+import com.android.mynotes.domain.entities.NoteDates;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Migrates a database created with the first schema to the current one and checks that
+ * the result matches the exported schema and that existing notes are carried over.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotesDatabaseMigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public final MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), NotesDatabase.class);
+
+    @Test
+    public void migrate1To6_keepsNotesAndBackfillsTheirIndexes() throws IOException {
+        String dateTime = NoteDates.format(1704106800000L);
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 1)) {
+            db.execSQL("INSERT INTO notes (id, title, date_time, subtitle, note_text, image_path, color, web_link) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    new Object[]{7, null, dateTime, "March", "Invoice for the office", null, null, null});
+        }
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 6, true, NotesDatabase.MIGRATIONS);
+
+        try (Cursor cursor = db.query("SELECT title, color, created_at, updated_at FROM notes WHERE id = 7")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("", cursor.getString(0));
+            assertEquals(NoteDecoratorFactory.DEFAULT_COLOR, cursor.getString(1));
+            assertEquals(NoteDates.parse(dateTime), cursor.getLong(2));
+            assertEquals(cursor.getLong(2), cursor.getLong(3));
+            assertTrue(cursor.getLong(2) > 0);
+        }
+        assertEquals(7, queryInt("SELECT rowid FROM notes_fts WHERE notes_fts MATCH 'invoice'", db));
+        assertEquals(7, queryInt("SELECT note_id FROM note_trigrams WHERE trigram = 'voi'", db));
+        assertEquals(0, queryInt("SELECT COUNT(*) FROM command_journal", db));
+    }
+
+    @Test
+    public void migrate1To6_emptyDatabase() throws IOException {
+        helper.createDatabase(TEST_DB, 1).close();
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 6, true, NotesDatabase.MIGRATIONS);
+
+        assertEquals(0, queryInt("SELECT COUNT(*) FROM notes", db));
+        assertEquals(0, queryInt("SELECT COUNT(*) FROM note_trigrams", db));
+    }
+
+    /**
+     * Returns the first column of the first row of a query.
+     */
+    private static int queryInt(String sql, SupportSQLiteDatabase db) {
+        try (Cursor cursor = db.query(sql)) {
+            assertTrue(sql, cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+}
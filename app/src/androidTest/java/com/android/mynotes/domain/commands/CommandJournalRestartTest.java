@@ -0,0 +1,113 @@
+package com.android.mynotes.domain.commands;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.mynotes.data.NoteDao;
+import com.android.mynotes.data.NotesDatabase;
+import com.android.mynotes.data.NotesRepository;
+import com.android.mynotes.domain.entities.Note;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays the undo history recorded by one {@link NotesRepository} through a new one over
+ * the same database, as after the process was restarted.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CommandJournalRestartTest {
+
+    private NotesDatabase database;
+    private NoteDao noteDao;
+
+    @Before
+    public void createDatabase() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, NotesDatabase.class).build();
+        noteDao = database.noteDao();
+        CommandInvoker.reset();
+    }
+
+    @After
+    public void closeDatabase() {
+        CommandInvoker.reset();
+        database.close();
+    }
+
+    @Test
+    public void addedNoteIsUndoneAndRedoneAfterRestart() throws Exception {
+        NotesRepository repository = new NotesRepository(database);
+        CommandInvoker.attachJournal(repository);
+        Note note = newNote("Groceries");
+        CommandInvoker.executeCommand(new AddNoteCommand(repository, note)).get();
+        awaitQueuedWrites(repository);
+        int noteId = note.getId();
+        assertNotEquals(0, noteId);
+
+        restart();
+
+        assertEquals(1, CommandInvoker.getUndoCount());
+        CommandInvoker.undo().get();
+        assertNull(noteDao.getNoteById(noteId));
+        assertEquals(0, noteDao.countNotesAfter(0));
+
+        CommandInvoker.redo().get();
+        assertNotNull(noteDao.getNoteById(noteId));
+        assertEquals(1, noteDao.countNotesAfter(0));
+    }
+
+    @Test
+    public void undoneStepIsRedoneAfterRestart() throws Exception {
+        NotesRepository repository = new NotesRepository(database);
+        CommandInvoker.attachJournal(repository);
+        Note note = newNote("Groceries");
+        CommandInvoker.executeCommand(new AddNoteCommand(repository, note)).get();
+        CommandInvoker.undo().get();
+        awaitQueuedWrites(repository);
+        assertEquals(0, noteDao.countNotesAfter(0));
+
+        restart();
+
+        assertEquals(0, CommandInvoker.getUndoCount());
+        assertEquals(1, CommandInvoker.getRedoCount());
+        CommandInvoker.redo().get();
+        assertNotNull(noteDao.getNoteById(note.getId()));
+        assertEquals(1, noteDao.countNotesAfter(0));
+    }
+
+    /**
+     * Drops the in-memory history and attaches the journal through a new repository,
+     * then waits until the latest steps have been read back.
+     */
+    private void restart() throws Exception {
+        CommandInvoker.reset();
+        NotesRepository repository = new NotesRepository(database);
+        CommandInvoker.attachJournal(repository);
+        awaitQueuedWrites(repository);
+    }
+
+    /**
+     * Waits until every operation queued on the repository's write thread so far has run.
+     */
+    private static void awaitQueuedWrites(NotesRepository repository) throws Exception {
+        repository.getCommandJournal().compact(0).get();
+    }
+
+    private static Note newNote(String title) {
+        return new Note.Builder()
+                .setTitle(title)
+                .setSubtitle("")
+                .setDateTime("")
+                .setColor("#333333")
+                .setNoteText("apples")
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.android.mynotes.domain.entities;
+
+import android.os.Parcel;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trip tests of the {@link android.os.Parcelable} implementation of {@link Note}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteParcelableTest {
+
+    private static Note roundTrip(Note note) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            note.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return Note.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void roundTrip_allFieldsSet() {
+        Note note = new Note.Builder()
+                .setId(42)
+                .setTitle("Meeting notes")
+                .setDateTime("Monday, 01 January 2024 10:00 AM")
+                .setSubtitle("Quarterly review")
+                .setNoteText("Discuss the invoice. 📝")
+                .setImagePath("/storage/emulated/0/Pictures/board.jpg")
+                .setColor("#FDBE3B")
+                .setWebLink("https://example.com/agenda")
+                .setCreatedAt(1704103200000L)
+                .setUpdatedAt(1704106800000L)
+                .build();
+
+        Note decoded = roundTrip(note);
+
+        assertEquals(note.getId(), decoded.getId());
+        assertEquals(note.getTitle(), decoded.getTitle());
+        assertEquals(note.getDateTime(), decoded.getDateTime());
+        assertEquals(note.getSubtitle(), decoded.getSubtitle());
+        assertEquals(note.getNoteText(), decoded.getNoteText());
+        assertEquals(note.getImagePath(), decoded.getImagePath());
+        assertEquals(note.getColor(), decoded.getColor());
+        assertEquals(note.getWebLink(), decoded.getWebLink());
+        assertEquals(note.getCreatedAt(), decoded.getCreatedAt());
+        assertEquals(note.getUpdatedAt(), decoded.getUpdatedAt());
+    }
+
+    @Test
+    public void roundTrip_nullFieldsStayNull() {
+        Note decoded = roundTrip(new Note.Builder().setId(3).build());
+        assertEquals(3, decoded.getId());
+        assertNull(decoded.getTitle());
+        assertNull(decoded.getNoteText());
+        assertNull(decoded.getWebLink());
+    }
+}
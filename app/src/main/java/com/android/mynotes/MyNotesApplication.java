@@ -0,0 +1,25 @@
+package com.android.mynotes;
+
+import android.app.Application;
+
+import com.android.mynotes.data.NotesDatabase;
+import com.android.mynotes.data.NotesRepository;
+import com.android.mynotes.domain.commands.CommandInvoker;
+
+/**
+ * Application entry point, setting up what the whole process shares before any screen starts.
+ */
+public class MyNotesApplication extends Application {
+
+    /**
+     * Called when the process starts.
+     * Attaches the persistent undo history to the shared repository, once per process,
+     * so it is in place before the first command whichever screen opens first.
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        NotesRepository repository = NotesRepository.getInstance(NotesDatabase.getDataBase(this));
+        CommandInvoker.attachJournal(repository);
+    }
+}
@@ -0,0 +1,159 @@
+package com.android.mynotes.data;
+
+import com.android.mynotes.domain.entities.JournalRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Persistent undo history, kept as an append-only table of encoded steps so it survives
+ * process death. The journal only stores opaque payloads; encoding commands is left to
+ * the caller. A step is encoded on the write thread when it is stored, after the writes
+ * queued before it have been applied, so it captures the IDs those writes assigned.
+ * Every write goes through the repository's write queue, so the journal always mirrors
+ * the order in which the history was changed. Reads run on Room's query executor once the
+ * writes queued before them are done, so they see the journal as those writes left it
+ * without holding up the writes queued after them. Steps that leave the history are only
+ * marked discarded; they are deleted, along with done steps beyond
+ * {@link #MAX_DONE_STEPS}, by a compaction run every {@link #COMPACTION_INTERVAL} appends.
+ */
+public class CommandJournal {
+
+    /**
+     * Number of done steps kept by compaction, unless more are still held in memory.
+     */
+    public static final int MAX_DONE_STEPS = 500;
+
+    private static final int COMPACTION_INTERVAL = 64;
+
+    private final NotesRepository repository;
+    private final CommandJournalDao journalDao;
+    private int appendsSinceCompaction;
+
+    /**
+     * Constructs a journal over the given database.
+     *
+     * @param database   The database holding the journal table.
+     * @param repository The repository whose write queue orders the journal operations.
+     */
+    CommandJournal(NotesDatabase database, NotesRepository repository) {
+        this.repository = repository;
+        this.journalDao = database.commandJournalDao();
+    }
+
+    /**
+     * Appends a new done step and discards the undone steps it makes unreachable.
+     *
+     * @param payload Encodes the step, called on the write thread.
+     * @param keep    Number of latest done steps the caller still holds, kept by compaction.
+     * @return A future completed once the step is stored.
+     */
+    public CompletableFuture<Void> append(Supplier<byte[]> payload, int keep) {
+        return appendAfter(payload, keep, false);
+    }
+
+    /**
+     * Replaces the latest done step with a step merged from it, discarding any undone steps.
+     *
+     * @param payload Encodes the merged step, called on the write thread.
+     * @param keep    Number of latest done steps the caller still holds, kept by compaction.
+     * @return A future completed once the step is stored.
+     */
+    public CompletableFuture<Void> replaceLatest(Supplier<byte[]> payload, int keep) {
+        return appendAfter(payload, keep, true);
+    }
+
+    /**
+     * Marks the latest done step as undone.
+     *
+     * @return A future completed once the change is stored.
+     */
+    public CompletableFuture<Void> markUndone() {
+        return repository.enqueue(noteDao -> journalDao.markLatestUndone());
+    }
+
+    /**
+     * Marks the next undone step as done again.
+     *
+     * @return A future completed once the change is stored.
+     */
+    public CompletableFuture<Void> markRedone() {
+        return repository.enqueue(noteDao -> journalDao.markNextRedone());
+    }
+
+    /**
+     * Reads a page of done steps, latest first, as left by the writes queued before the call.
+     * Writes queued later may land while it is read, so the caller drops the page if it
+     * changed the journal meanwhile.
+     *
+     * @param offset Number of latest done steps to skip, i.e. those the caller already holds.
+     * @param limit  Maximum number of steps read.
+     * @return A future completed with the payloads.
+     */
+    public CompletableFuture<List<byte[]>> loadDone(int offset, int limit) {
+        return repository.readAfterQueuedWrites(() -> payloadsOf(journalDao.getDonePage(offset, limit)));
+    }
+
+    /**
+     * Reads a page of undone steps, the next one to redo first, as left by the writes queued
+     * before the call; like {@link #loadDone(int, int)}, it may race with later writes.
+     *
+     * @param offset Number of undone steps to skip, i.e. those the caller already holds.
+     * @param limit  Maximum number of steps read.
+     * @return A future completed with the payloads.
+     */
+    public CompletableFuture<List<byte[]>> loadUndone(int offset, int limit) {
+        return repository.readAfterQueuedWrites(() -> payloadsOf(journalDao.getUndonePage(offset, limit)));
+    }
+
+    /**
+     * Deletes discarded records and done steps beyond the kept ones.
+     *
+     * @param keep Number of latest done steps the caller still holds; at least
+     *             {@link #MAX_DONE_STEPS} are kept anyway.
+     * @return A future completed once the journal is compacted.
+     */
+    public CompletableFuture<Void> compact(int keep) {
+        int kept = Math.max(MAX_DONE_STEPS, keep);
+        return repository.enqueue(noteDao -> {
+            journalDao.discardDoneBeyond(kept);
+            journalDao.deleteDiscarded();
+        });
+    }
+
+    /**
+     * Extracts the payloads of a page of records.
+     *
+     * @param records The records, in page order.
+     * @return Their payloads, in the same order.
+     */
+    private static List<byte[]> payloadsOf(List<JournalRecord> records) {
+        List<byte[]> payloads = new ArrayList<>(records.size());
+        for (JournalRecord record : records) payloads.add(record.getPayload());
+        return payloads;
+    }
+
+    /**
+     * Appends a done step after discarding the undone steps and, if asked, the latest done one.
+     *
+     * @param payload       Encodes the step, called on the write thread.
+     * @param keep          Number of latest done steps the caller still holds.
+     * @param replaceLatest Whether the latest done step is replaced.
+     * @return A future completed once the step is stored.
+     */
+    private synchronized CompletableFuture<Void> appendAfter(Supplier<byte[]> payload, int keep,
+                                                             boolean replaceLatest) {
+        CompletableFuture<Void> write = repository.enqueue(noteDao -> {
+            journalDao.discardUndone();
+            if (replaceLatest) journalDao.discardLatestDone();
+            journalDao.insert(new JournalRecord(JournalRecord.STATE_DONE, payload.get()));
+        });
+        if (++appendsSinceCompaction >= COMPACTION_INTERVAL) {
+            appendsSinceCompaction = 0;
+            compact(keep);
+        }
+        return write;
+    }
+}
@@ -0,0 +1,99 @@
+package com.android.mynotes.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.android.mynotes.domain.entities.JournalRecord;
+
+import java.util.List;
+
+/**
+ * Data Access Object (DAO) for the undo history journal.
+ * Done steps are ordered by ascending {@code seq}, the latest last; undone steps too,
+ * the next one to redo first.
+ */
+@Dao
+public interface CommandJournalDao {
+
+    /**
+     * Appends a record.
+     *
+     * @param record The record to insert.
+     * @return The sequence number of the record.
+     */
+    @Insert
+    long insert(JournalRecord record);
+
+    /**
+     * Marks every undone step as discarded, once a new step makes them unreachable.
+     */
+    @Query("UPDATE command_journal SET state = " + JournalRecord.STATE_DISCARDED +
+            " WHERE state = " + JournalRecord.STATE_UNDONE)
+    void discardUndone();
+
+    /**
+     * Marks the latest done step as discarded, when it is replaced by a merged step.
+     */
+    @Query("UPDATE command_journal SET state = " + JournalRecord.STATE_DISCARDED +
+            " WHERE seq = (SELECT MAX(seq) FROM command_journal WHERE state = " + JournalRecord.STATE_DONE + ")")
+    void discardLatestDone();
+
+    /**
+     * Marks the latest done step as undone.
+     *
+     * @return The number of records updated, 0 if there is no done step.
+     */
+    @Query("UPDATE command_journal SET state = " + JournalRecord.STATE_UNDONE +
+            " WHERE seq = (SELECT MAX(seq) FROM command_journal WHERE state = " + JournalRecord.STATE_DONE + ")")
+    int markLatestUndone();
+
+    /**
+     * Marks the next undone step as done again.
+     *
+     * @return The number of records updated, 0 if there is no undone step.
+     */
+    @Query("UPDATE command_journal SET state = " + JournalRecord.STATE_DONE +
+            " WHERE seq = (SELECT MIN(seq) FROM command_journal WHERE state = " + JournalRecord.STATE_UNDONE + ")")
+    int markNextRedone();
+
+    /**
+     * Retrieves a page of done steps, latest first.
+     *
+     * @param offset Number of latest steps to skip.
+     * @param limit  Maximum number of steps returned.
+     * @return The records.
+     */
+    @Query("SELECT * FROM command_journal WHERE state = " + JournalRecord.STATE_DONE +
+            " ORDER BY seq DESC LIMIT :limit OFFSET :offset")
+    List<JournalRecord> getDonePage(int offset, int limit);
+
+    /**
+     * Retrieves a page of undone steps, the next one to redo first.
+     *
+     * @param offset Number of steps to skip.
+     * @param limit  Maximum number of steps returned.
+     * @return The records.
+     */
+    @Query("SELECT * FROM command_journal WHERE state = " + JournalRecord.STATE_UNDONE +
+            " ORDER BY seq LIMIT :limit OFFSET :offset")
+    List<JournalRecord> getUndonePage(int offset, int limit);
+
+    /**
+     * Marks as discarded every done step older than the latest {@code keep} ones.
+     *
+     * @param keep Number of latest done steps kept.
+     */
+    @Query("UPDATE command_journal SET state = " + JournalRecord.STATE_DISCARDED +
+            " WHERE state = " + JournalRecord.STATE_DONE + " AND seq <= (SELECT seq FROM command_journal" +
+            " WHERE state = " + JournalRecord.STATE_DONE + " ORDER BY seq DESC LIMIT 1 OFFSET :keep)")
+    void discardDoneBeyond(int keep);
+
+    /**
+     * Deletes the discarded records.
+     *
+     * @return The number of records deleted.
+     */
+    @Query("DELETE FROM command_journal WHERE state = " + JournalRecord.STATE_DISCARDED)
+    int deleteDiscarded();
+}
@@ -0,0 +1,37 @@
+package com.android.mynotes.data;
+
+/**
+ * Helpers for building FTS4 MATCH expressions from user input.
+ * The rows they return are ranked by the search itself, from their text.
+ */
+public final class FtsQuery {
+
+    private FtsQuery() { }
+
+    /**
+     * Converts a raw search query into an FTS4 MATCH expression where every term
+     * is matched as a token prefix and all terms are required.
+     * Characters other than letters and digits separate terms, so user input
+     * can never inject FTS operators.
+     *
+     * @param rawQuery The query typed by the user.
+     * @return The MATCH expression (e.g. {@code meet* notes*}), or null if the query has no terms.
+     */
+    public static String toMatchExpression(String rawQuery) {
+        if (rawQuery == null) return null;
+
+        StringBuilder expression = new StringBuilder();
+        int length = rawQuery.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(rawQuery.charAt(i))) i++;
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(rawQuery.charAt(i))) i++;
+            if (i > start) {
+                if (expression.length() > 0) expression.append(' ');
+                expression.append(rawQuery, start, i).append('*');
+            }
+        }
+        return expression.length() == 0 ? null : expression.toString();
+    }
+}
@@ -1,13 +1,16 @@
 package com.android.mynotes.data;
 
-import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Update;
 
 import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteSummary;
+import com.android.mynotes.domain.entities.NoteTrigram;
 
 import java.util.List;
 
@@ -19,20 +22,370 @@ import java.util.List;
 public interface NoteDao {
 
     /**
-     * Retrieves all notes from the database ordered by their ID in descending order.
+     * Columns read into a {@link NoteSummary} by the list queries.
+     */
+    String SUMMARY_COLUMNS = "id, title, date_time, subtitle, image_path, color, updated_at";
+
+    /**
+     * Retrieves a single note with all its columns.
+     *
+     * @param id The ID of the note.
+     * @return The {@link Note}, or null if it does not exist.
+     */
+    @Query("SELECT * FROM notes WHERE id = :id")
+    Note getNoteById(int id);
+
+    /**
+     * Retrieves the first page of notes ordered by their ID in descending order.
+     *
+     * @param limit The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link Note} objects.
+     */
+    @Query("SELECT * FROM notes ORDER BY id DESC LIMIT :limit")
+    List<Note> getNotesPage(int limit);
+
+    /**
+     * Retrieves the page of notes following the given key, ordered by ID in descending order.
+     * Uses the primary key as a keyset cursor, so the cost does not depend on the page offset.
+     *
+     * @param beforeId The ID of the last note of the previous page.
+     * @param limit    The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link Note} objects with an ID lower than {@code beforeId}.
+     */
+    @Query("SELECT * FROM notes WHERE id < :beforeId ORDER BY id DESC LIMIT :limit")
+    List<Note> getNotesPageBefore(int beforeId, int limit);
+
+    /**
+     * Retrieves the summaries of the first page of notes ordered by ID in descending order.
+     *
+     * @param limit The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes ORDER BY id DESC LIMIT :limit")
+    List<NoteSummary> getSummariesPage(int limit);
+
+    /**
+     * Retrieves the summaries of the page of notes following the given key, ordered by ID
+     * in descending order.
+     *
+     * @param beforeId The ID of the last note of the previous page.
+     * @param limit    The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows with an ID lower than {@code beforeId}.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE id < :beforeId ORDER BY id DESC LIMIT :limit")
+    List<NoteSummary> getSummariesPageBefore(int beforeId, int limit);
+
+    /**
+     * Retrieves the summaries of every note whose ID is greater than or equal to the given key.
+     * Used to reload an already loaded window after the table changes.
+     *
+     * @param fromId The lowest ID included in the window.
+     * @return A list of {@link NoteSummary} rows ordered by ID in descending order.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE id >= :fromId ORDER BY id DESC")
+    List<NoteSummary> getSummariesFrom(int fromId);
+
+    /**
+     * Retrieves the summaries of the notes listed right before the given key in ID order,
+     * nearest first, i.e. the page to prepend to a window starting at that key.
+     *
+     * @param afterId The ID of the first note of the window.
+     * @param limit   The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows with an ID greater than
+     * {@code afterId}, in ascending ID order.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE id > :afterId ORDER BY id LIMIT :limit")
+    List<NoteSummary> getSummariesPageAfter(int afterId, int limit);
+
+    /**
+     * Retrieves the summaries of the notes between two keys in ID order, both included.
+     * Used to reload a window that does not start at the top of the list.
+     *
+     * @param firstId The ID of the first note of the window.
+     * @param lastId  The ID of the last note of the window.
+     * @return A list of {@link NoteSummary} rows ordered by ID in descending order.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE id <= :firstId AND id >= :lastId ORDER BY id DESC")
+    List<NoteSummary> getSummariesBetween(int firstId, int lastId);
+
+    /**
+     * Counts the notes listed before the given key in ID order.
+     *
+     * @param firstId The ID of the first note of the window.
+     * @return The number of notes with an ID greater than {@code firstId}.
+     */
+    @Query("SELECT COUNT(*) FROM notes WHERE id > :firstId")
+    int countNotesAfter(int firstId);
+
+    /**
+     * Retrieves the first page of notes ordered by last update time, most recent first.
+     *
+     * @param limit The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    List<NoteSummary> getSummariesPageByDate(int limit);
+
+    /**
+     * Retrieves the page of notes following the given key in last update order.
+     * The range condition on `updated_at` lets SQLite seek in its index.
+     *
+     * @param updatedAt The update time of the last note of the previous page.
+     * @param id        The ID of the last note of the previous page.
+     * @param limit     The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE updated_at <= :updatedAt AND (updated_at < :updatedAt OR id < :id) " +
+            "ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    List<NoteSummary> getSummariesPageByDateBefore(long updatedAt, int id, int limit);
+
+    /**
+     * Retrieves every note up to and including the given key in last update order.
+     *
+     * @param updatedAt The update time of the last note of the window.
+     * @param id        The ID of the last note of the window.
+     * @return A list of {@link NoteSummary} rows ordered by update time, most recent first.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE updated_at >= :updatedAt AND (updated_at > :updatedAt OR id >= :id) " +
+            "ORDER BY updated_at DESC, id DESC")
+    List<NoteSummary> getSummariesByDateFrom(long updatedAt, int id);
+
+    /**
+     * Retrieves the notes listed right before the given key in last update order, nearest first.
+     *
+     * @param updatedAt The update time of the first note of the window.
+     * @param id        The ID of the first note of the window.
+     * @param limit     The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows, least recently updated first.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE updated_at >= :updatedAt AND (updated_at > :updatedAt OR id > :id) " +
+            "ORDER BY updated_at, id LIMIT :limit")
+    List<NoteSummary> getSummariesPageByDateAfter(long updatedAt, int id, int limit);
+
+    /**
+     * Retrieves the notes between two keys in last update order, both included.
+     *
+     * @param firstUpdatedAt The update time of the first note of the window.
+     * @param firstId        The ID of the first note of the window.
+     * @param lastUpdatedAt  The update time of the last note of the window.
+     * @param lastId         The ID of the last note of the window.
+     * @return A list of {@link NoteSummary} rows ordered by update time, most recent first.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE updated_at <= :firstUpdatedAt " +
+            "AND (updated_at < :firstUpdatedAt OR id <= :firstId) " +
+            "AND updated_at >= :lastUpdatedAt AND (updated_at > :lastUpdatedAt OR id >= :lastId) " +
+            "ORDER BY updated_at DESC, id DESC")
+    List<NoteSummary> getSummariesByDateBetween(long firstUpdatedAt, int firstId, long lastUpdatedAt, int lastId);
+
+    /**
+     * Counts the notes listed before the given key in last update order.
+     *
+     * @param updatedAt The update time of the first note of the window.
+     * @param id        The ID of the first note of the window.
+     * @return The number of notes updated later, or at the same time with a greater ID.
+     */
+    @Query("SELECT COUNT(*) FROM notes WHERE updated_at >= :updatedAt AND (updated_at > :updatedAt OR id > :id)")
+    int countNotesByDateAfter(long updatedAt, int id);
+
+    /**
+     * Retrieves the first page of notes ordered by title.
+     *
+     * @param limit The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes ORDER BY title, id LIMIT :limit")
+    List<NoteSummary> getSummariesPageByTitle(int limit);
+
+    /**
+     * Retrieves the page of notes following the given key in title order.
+     *
+     * @param title The title of the last note of the previous page.
+     * @param id    The ID of the last note of the previous page.
+     * @param limit The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE title >= :title AND (title > :title OR id > :id) " +
+            "ORDER BY title, id LIMIT :limit")
+    List<NoteSummary> getSummariesPageByTitleAfter(String title, int id, int limit);
+
+    /**
+     * Retrieves every note up to and including the given key in title order.
+     *
+     * @param title The title of the last note of the window.
+     * @param id    The ID of the last note of the window.
+     * @return A list of {@link NoteSummary} rows ordered by title.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE title <= :title AND (title < :title OR id <= :id) ORDER BY title, id")
+    List<NoteSummary> getSummariesByTitleThrough(String title, int id);
+
+    /**
+     * Retrieves the notes listed right before the given key in title order, nearest first.
+     *
+     * @param title The title of the first note of the window.
+     * @param id    The ID of the first note of the window.
+     * @param limit The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows, in reverse title order.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE title <= :title AND (title < :title OR id < :id) " +
+            "ORDER BY title DESC, id DESC LIMIT :limit")
+    List<NoteSummary> getSummariesPageByTitleBefore(String title, int id, int limit);
+
+    /**
+     * Retrieves the notes between two keys in title order, both included.
+     *
+     * @param firstTitle The title of the first note of the window.
+     * @param firstId    The ID of the first note of the window.
+     * @param lastTitle  The title of the last note of the window.
+     * @param lastId     The ID of the last note of the window.
+     * @return A list of {@link NoteSummary} rows ordered by title.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE title >= :firstTitle AND (title > :firstTitle OR id >= :firstId) " +
+            "AND title <= :lastTitle AND (title < :lastTitle OR id <= :lastId) ORDER BY title, id")
+    List<NoteSummary> getSummariesByTitleBetween(String firstTitle, int firstId, String lastTitle, int lastId);
+
+    /**
+     * Counts the notes listed before the given key in title order.
+     *
+     * @param title The title of the first note of the window.
+     * @param id    The ID of the first note of the window.
+     * @return The number of notes sorting before it.
+     */
+    @Query("SELECT COUNT(*) FROM notes WHERE title <= :title AND (title < :title OR id < :id)")
+    int countNotesByTitleBefore(String title, int id);
+
+    /**
+     * Retrieves every note ordered by title.
+     *
+     * @return A list of {@link NoteSummary} rows ordered by title.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes ORDER BY title, id")
+    List<NoteSummary> getSummariesByTitle();
+
+    /**
+     * Retrieves the first page of notes ordered by color.
+     *
+     * @param limit The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes ORDER BY color, id LIMIT :limit")
+    List<NoteSummary> getSummariesPageByColor(int limit);
+
+    /**
+     * Retrieves the page of notes following the given key in color order.
+     *
+     * @param color The color of the last note of the previous page.
+     * @param id    The ID of the last note of the previous page.
+     * @param limit The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE color >= :color AND (color > :color OR id > :id) " +
+            "ORDER BY color, id LIMIT :limit")
+    List<NoteSummary> getSummariesPageByColorAfter(String color, int id, int limit);
+
+    /**
+     * Retrieves every note up to and including the given key in color order.
+     *
+     * @param color The color of the last note of the window.
+     * @param id    The ID of the last note of the window.
+     * @return A list of {@link NoteSummary} rows ordered by color.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE color <= :color AND (color < :color OR id <= :id) ORDER BY color, id")
+    List<NoteSummary> getSummariesByColorThrough(String color, int id);
+
+    /**
+     * Retrieves the notes listed right before the given key in color order, nearest first.
+     *
+     * @param color The color of the first note of the window.
+     * @param id    The ID of the first note of the window.
+     * @param limit The maximum number of notes to return.
+     * @return A list of at most {@code limit} {@link NoteSummary} rows, in reverse color order.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE color <= :color AND (color < :color OR id < :id) " +
+            "ORDER BY color DESC, id DESC LIMIT :limit")
+    List<NoteSummary> getSummariesPageByColorBefore(String color, int id, int limit);
+
+    /**
+     * Retrieves the notes between two keys in color order, both included.
+     *
+     * @param firstColor The color of the first note of the window.
+     * @param firstId    The ID of the first note of the window.
+     * @param lastColor  The color of the last note of the window.
+     * @param lastId     The ID of the last note of the window.
+     * @return A list of {@link NoteSummary} rows ordered by color.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE color >= :firstColor AND (color > :firstColor OR id >= :firstId) " +
+            "AND color <= :lastColor AND (color < :lastColor OR id <= :lastId) ORDER BY color, id")
+    List<NoteSummary> getSummariesByColorBetween(String firstColor, int firstId, String lastColor, int lastId);
+
+    /**
+     * Counts the notes listed before the given key in color order.
      *
-     * @return A {@link LiveData} list of {@link Note} objects.
+     * @param color The color of the first note of the window.
+     * @param id    The ID of the first note of the window.
+     * @return The number of notes sorting before it.
      */
-    @Query("SELECT * FROM notes ORDER BY id DESC")
-    LiveData<List<Note>> getAllNotes();
+    @Query("SELECT COUNT(*) FROM notes WHERE color <= :color AND (color < :color OR id < :id)")
+    int countNotesByColorBefore(String color, int id);
 
     /**
-     * Inserts a new note into the database or replaces an existing one if there is a conflict.
+     * Retrieves every note ordered by color.
+     *
+     * @return A list of {@link NoteSummary} rows ordered by color.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes ORDER BY color, id")
+    List<NoteSummary> getSummariesByColor();
+
+    /**
+     * Searches the full-text index for notes matching an FTS4 MATCH expression.
+     * Only the summary columns and the text are read, which is what the search
+     * ranks and displays; the notes are then looked up by primary key, newest first.
+     *
+     * @param matchExpression An FTS4 MATCH expression, see {@link FtsQuery#toMatchExpression(String)}.
+     * @return A list of {@link NoteMatch} rows ordered by descending ID.
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + ", note_text FROM notes " +
+            "WHERE id IN (SELECT docid FROM notes_fts WHERE notes_fts MATCH :matchExpression) " +
+            "ORDER BY id DESC")
+    List<NoteMatch> searchNotes(String matchExpression);
+
+    /**
+     * Retrieves the notes with the given IDs.
+     *
+     * @param ids The IDs to look up, at most 999 per call.
+     * @return The matching {@link Note} objects, in no particular order.
+     */
+    @Query("SELECT * FROM notes WHERE id IN (:ids)")
+    List<Note> getNotesByIds(List<Integer> ids);
+
+    /**
+     * Finds the notes containing every one of the given trigrams.
+     *
+     * @param trigrams     Distinct folded trigrams, at most 998 per call.
+     * @param trigramCount The number of trigrams in {@code trigrams}.
+     * @return The IDs of the notes containing all of them.
+     */
+    @Query("SELECT note_id FROM note_trigrams WHERE trigram IN (:trigrams) " +
+            "GROUP BY note_id HAVING COUNT(*) = :trigramCount")
+    List<Integer> findNotesWithTrigrams(List<String> trigrams, int trigramCount);
+
+    /**
+     * Inserts a new note into the database. A note with an ID already in use is rejected.
      *
      * @param note The {@link Note} object to be inserted.
+     * @return The row ID, which is the note's ID.
      */
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertNote(Note note);
+    @Insert
+    long insertNote(Note note);
+
+    /**
+     * Updates an existing note in place. Unlike a replacing insert, this fires the
+     * update triggers, so the full-text index drops the words the note no longer contains.
+     *
+     * @param note The {@link Note} object to be updated.
+     * @return The number of updated rows, 0 if no note has this ID.
+     */
+    @Update
+    int updateNote(Note note);
 
     /**
      * Deletes a specified note from the database.
@@ -41,4 +394,47 @@ public interface NoteDao {
      */
     @Delete
     void deleteNote(Note note);
+
+    /**
+     * Inserts trigram postings, ignoring the ones already present.
+     *
+     * @param postings The postings to insert.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertTrigrams(List<NoteTrigram> postings);
+
+    /**
+     * Deletes every trigram posting of a note.
+     *
+     * @param noteId The ID of the note.
+     */
+    @Query("DELETE FROM note_trigrams WHERE note_id = :noteId")
+    void deleteTrigrams(int noteId);
+
+    /**
+     * Inserts or updates a note and re-indexes its trigrams in one transaction.
+     * A newly inserted note receives its generated ID, so it can later be deleted or edited.
+     * A note restored with its former ID, such as an undone deletion, is inserted again.
+     *
+     * @param note The {@link Note} object to be saved.
+     */
+    @Transaction
+    default void saveNote(Note note) {
+        if (note.getId() == 0 || updateNote(note) == 0) {
+            note.setId((int) insertNote(note));
+        }
+        deleteTrigrams(note.getId());
+        insertTrigrams(Trigrams.postingsOf(note));
+    }
+
+    /**
+     * Deletes a note together with its trigram postings in one transaction.
+     *
+     * @param note The {@link Note} object to be deleted.
+     */
+    @Transaction
+    default void removeNote(Note note) {
+        deleteTrigrams(note.getId());
+        deleteNote(note);
+    }
 }
\ No newline at end of file
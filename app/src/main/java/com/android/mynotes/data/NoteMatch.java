@@ -0,0 +1,55 @@
+package com.android.mynotes.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+
+import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteSummary;
+
+/**
+ * Result row of a full-text search: the displayed columns of the matching note
+ * (see {@link NoteSummary}) and its text, which the search scores and highlights.
+ * The web link and creation time are not read.
+ */
+public class NoteMatch {
+
+    @Embedded
+    private NoteSummary summary;
+
+    @ColumnInfo(name = "note_text")
+    private String noteText;
+
+    public NoteSummary getSummary() {
+        return summary;
+    }
+
+    public void setSummary(NoteSummary summary) {
+        this.summary = summary;
+    }
+
+    public String getNoteText() {
+        return noteText;
+    }
+
+    public void setNoteText(String noteText) {
+        this.noteText = noteText;
+    }
+
+    /**
+     * Builds a {@link Note} from the columns read, leaving the others unset.
+     *
+     * @return The matching note.
+     */
+    public Note toNote() {
+        return new Note.Builder()
+                .setId(summary.getId())
+                .setTitle(summary.getTitle())
+                .setDateTime(summary.getDateTime())
+                .setSubtitle(summary.getSubtitle())
+                .setNoteText(noteText)
+                .setImagePath(summary.getImagePath())
+                .setColor(summary.getColor())
+                .setUpdatedAt(summary.getUpdatedAt())
+                .build();
+    }
+}
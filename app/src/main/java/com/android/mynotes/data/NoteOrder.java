@@ -0,0 +1,231 @@
+package com.android.mynotes.data;
+
+import com.android.mynotes.domain.entities.NoteSummary;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Orders in which {@link NotesPager} can page through the notes table.
+ * Each order is answered by the database through an index, with the note ID as
+ * tie-breaker, so pages are read with keyset conditions instead of offsets.
+ * Key columns are never NULL (see {@code NotesDatabase.MIGRATION_3_4}), which keeps
+ * the keyset comparisons exact.
+ */
+public enum NoteOrder {
+
+    /**
+     * Most recently created first, following the primary key.
+     */
+    ID {
+        @Override
+        List<NoteSummary> firstPage(NoteDao noteDao, int limit) {
+            return noteDao.getSummariesPage(limit);
+        }
+
+        @Override
+        List<NoteSummary> pageAfter(NoteDao noteDao, NoteSummary last, int limit) {
+            return noteDao.getSummariesPageBefore(last.getId(), limit);
+        }
+
+        @Override
+        List<NoteSummary> window(NoteDao noteDao, NoteSummary last) {
+            return noteDao.getSummariesFrom(last != null ? last.getId() : Integer.MIN_VALUE);
+        }
+
+        @Override
+        List<NoteSummary> pageBefore(NoteDao noteDao, NoteSummary first, int limit) {
+            return reversed(noteDao.getSummariesPageAfter(first.getId(), limit));
+        }
+
+        @Override
+        List<NoteSummary> between(NoteDao noteDao, NoteSummary first, NoteSummary last) {
+            return noteDao.getSummariesBetween(first.getId(), last.getId());
+        }
+
+        @Override
+        int countBefore(NoteDao noteDao, NoteSummary first) {
+            return noteDao.countNotesAfter(first.getId());
+        }
+    },
+
+    /**
+     * Most recently updated first, following the `updated_at` index.
+     */
+    UPDATED_AT {
+        @Override
+        List<NoteSummary> firstPage(NoteDao noteDao, int limit) {
+            return noteDao.getSummariesPageByDate(limit);
+        }
+
+        @Override
+        List<NoteSummary> pageAfter(NoteDao noteDao, NoteSummary last, int limit) {
+            return noteDao.getSummariesPageByDateBefore(last.getUpdatedAt(), last.getId(), limit);
+        }
+
+        @Override
+        List<NoteSummary> window(NoteDao noteDao, NoteSummary last) {
+            return last != null
+                    ? noteDao.getSummariesByDateFrom(last.getUpdatedAt(), last.getId())
+                    : noteDao.getSummariesByDateFrom(Long.MIN_VALUE, Integer.MIN_VALUE);
+        }
+
+        @Override
+        List<NoteSummary> pageBefore(NoteDao noteDao, NoteSummary first, int limit) {
+            return reversed(noteDao.getSummariesPageByDateAfter(first.getUpdatedAt(), first.getId(), limit));
+        }
+
+        @Override
+        List<NoteSummary> between(NoteDao noteDao, NoteSummary first, NoteSummary last) {
+            return noteDao.getSummariesByDateBetween(first.getUpdatedAt(), first.getId(),
+                    last.getUpdatedAt(), last.getId());
+        }
+
+        @Override
+        int countBefore(NoteDao noteDao, NoteSummary first) {
+            return noteDao.countNotesByDateAfter(first.getUpdatedAt(), first.getId());
+        }
+    },
+
+    /**
+     * Alphabetical by title, following the `title` index.
+     */
+    TITLE {
+        @Override
+        List<NoteSummary> firstPage(NoteDao noteDao, int limit) {
+            return noteDao.getSummariesPageByTitle(limit);
+        }
+
+        @Override
+        List<NoteSummary> pageAfter(NoteDao noteDao, NoteSummary last, int limit) {
+            return noteDao.getSummariesPageByTitleAfter(last.getTitle(), last.getId(), limit);
+        }
+
+        @Override
+        List<NoteSummary> window(NoteDao noteDao, NoteSummary last) {
+            return last != null
+                    ? noteDao.getSummariesByTitleThrough(last.getTitle(), last.getId())
+                    : noteDao.getSummariesByTitle();
+        }
+
+        @Override
+        List<NoteSummary> pageBefore(NoteDao noteDao, NoteSummary first, int limit) {
+            return reversed(noteDao.getSummariesPageByTitleBefore(first.getTitle(), first.getId(), limit));
+        }
+
+        @Override
+        List<NoteSummary> between(NoteDao noteDao, NoteSummary first, NoteSummary last) {
+            return noteDao.getSummariesByTitleBetween(first.getTitle(), first.getId(), last.getTitle(), last.getId());
+        }
+
+        @Override
+        int countBefore(NoteDao noteDao, NoteSummary first) {
+            return noteDao.countNotesByTitleBefore(first.getTitle(), first.getId());
+        }
+    },
+
+    /**
+     * Grouped by color code, following the `color` index.
+     */
+    COLOR {
+        @Override
+        List<NoteSummary> firstPage(NoteDao noteDao, int limit) {
+            return noteDao.getSummariesPageByColor(limit);
+        }
+
+        @Override
+        List<NoteSummary> pageAfter(NoteDao noteDao, NoteSummary last, int limit) {
+            return noteDao.getSummariesPageByColorAfter(last.getColor(), last.getId(), limit);
+        }
+
+        @Override
+        List<NoteSummary> window(NoteDao noteDao, NoteSummary last) {
+            return last != null
+                    ? noteDao.getSummariesByColorThrough(last.getColor(), last.getId())
+                    : noteDao.getSummariesByColor();
+        }
+
+        @Override
+        List<NoteSummary> pageBefore(NoteDao noteDao, NoteSummary first, int limit) {
+            return reversed(noteDao.getSummariesPageByColorBefore(first.getColor(), first.getId(), limit));
+        }
+
+        @Override
+        List<NoteSummary> between(NoteDao noteDao, NoteSummary first, NoteSummary last) {
+            return noteDao.getSummariesByColorBetween(first.getColor(), first.getId(), last.getColor(), last.getId());
+        }
+
+        @Override
+        int countBefore(NoteDao noteDao, NoteSummary first) {
+            return noteDao.countNotesByColorBefore(first.getColor(), first.getId());
+        }
+    };
+
+    /**
+     * Reads the first page in this order.
+     *
+     * @param noteDao The DAO to read through.
+     * @param limit   The maximum number of notes to return.
+     * @return The first {@code limit} notes.
+     */
+    abstract List<NoteSummary> firstPage(NoteDao noteDao, int limit);
+
+    /**
+     * Reads the page following {@code last} in this order.
+     *
+     * @param noteDao The DAO to read through.
+     * @param last    The last note of the previous page.
+     * @param limit   The maximum number of notes to return.
+     * @return The next {@code limit} notes.
+     */
+    abstract List<NoteSummary> pageAfter(NoteDao noteDao, NoteSummary last, int limit);
+
+    /**
+     * Reads every note from the start of this order up to and including {@code last}.
+     *
+     * @param noteDao The DAO to read through.
+     * @param last    The last note of the window, or null to read the whole table.
+     * @return The notes of the window, in this order.
+     */
+    abstract List<NoteSummary> window(NoteDao noteDao, NoteSummary last);
+
+    /**
+     * Reads the page preceding {@code first} in this order.
+     *
+     * @param noteDao The DAO to read through.
+     * @param first   The first note of the window.
+     * @param limit   The maximum number of notes to return.
+     * @return The {@code limit} notes right before {@code first}, in this order.
+     */
+    abstract List<NoteSummary> pageBefore(NoteDao noteDao, NoteSummary first, int limit);
+
+    /**
+     * Reads every note from {@code first} up to and including {@code last} in this order.
+     *
+     * @param noteDao The DAO to read through.
+     * @param first   The first note of the window.
+     * @param last    The last note of the window.
+     * @return The notes of the window, in this order.
+     */
+    abstract List<NoteSummary> between(NoteDao noteDao, NoteSummary first, NoteSummary last);
+
+    /**
+     * Counts the notes sorting before {@code first} in this order. Only walks the index.
+     *
+     * @param noteDao The DAO to read through.
+     * @param first   The first note of the window.
+     * @return The number of notes listed above {@code first}.
+     */
+    abstract int countBefore(NoteDao noteDao, NoteSummary first);
+
+    /**
+     * Reverses a page read backwards from the index, so it is listed in this order.
+     *
+     * @param page The page, nearest note first.
+     * @return The same list, reversed in place.
+     */
+    private static List<NoteSummary> reversed(List<NoteSummary> page) {
+        Collections.reverse(page);
+        return page;
+    }
+}
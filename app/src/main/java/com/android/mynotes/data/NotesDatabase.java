@@ -1,18 +1,33 @@
 package com.android.mynotes.data;
 
 import android.content.Context;
+import android.database.Cursor;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
+import com.android.mynotes.domain.decorators.NoteDecoratorFactory;
+import com.android.mynotes.domain.entities.JournalRecord;
 import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteDates;
+import com.android.mynotes.domain.entities.NoteFts;
+import com.android.mynotes.domain.entities.NoteTrigram;
+
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Singleton class representing the Room database for the `notes` table.
  * Provides access to the database instance and its DAO.
+ * Every schema change bumps the version and ships a {@link Migration}; the schema of each
+ * version is exported to {@code app/schemas} so migrations can be reviewed against it.
  */
-@Database(entities = Note.class, version = 1, exportSchema = false)
+@Database(entities = {Note.class, NoteFts.class, NoteTrigram.class, JournalRecord.class}, version = 6)
 public abstract class NotesDatabase extends RoomDatabase {
 
     /**
@@ -20,6 +35,114 @@ public abstract class NotesDatabase extends RoomDatabase {
      */
     private static NotesDatabase notesDatabase;
 
+    /**
+     * Adds the `notes_fts` full-text index, the triggers Room uses to keep it in sync
+     * with `notes`, and indexes the notes that already exist.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` USING FTS4(" +
+                    "`title` TEXT, `subtitle` TEXT, `note_text` TEXT, " +
+                    "tokenize=unicode61, content=`notes`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `notes` BEGIN INSERT INTO `notes_fts`(`docid`, `title`, `subtitle`, `note_text`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`subtitle`, NEW.`note_text`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `notes` BEGIN INSERT INTO `notes_fts`(`docid`, `title`, `subtitle`, `note_text`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`subtitle`, NEW.`note_text`); END");
+            db.execSQL("INSERT INTO `notes_fts`(`notes_fts`) VALUES('rebuild')");
+        }
+    };
+
+    /**
+     * Adds the numeric `created_at` and `updated_at` timestamps, back-filled by parsing
+     * the localized `date_time` text of existing notes, and indexes `updated_at` for date sorting.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `created_at` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `updated_at` INTEGER NOT NULL DEFAULT 0");
+            try (Cursor cursor = db.query("SELECT `id`, `date_time` FROM `notes`")) {
+                while (cursor.moveToNext()) {
+                    long timestamp = NoteDates.parse(cursor.getString(1));
+                    if (timestamp > 0) {
+                        db.execSQL("UPDATE `notes` SET `created_at` = ?, `updated_at` = ? WHERE `id` = ?",
+                                new Object[]{timestamp, timestamp, cursor.getInt(0)});
+                    }
+                }
+            }
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_updated_at` ON `notes` (`updated_at`)");
+        }
+    };
+
+    /**
+     * Indexes `title` and `color` for the title and color sort orders, and replaces
+     * missing titles and colors so keyset comparisons on them never meet a NULL.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("UPDATE `notes` SET `title` = '' WHERE `title` IS NULL");
+            db.execSQL("UPDATE `notes` SET `color` = '" + NoteDecoratorFactory.DEFAULT_COLOR + "' WHERE `color` IS NULL");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_title` ON `notes` (`title`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_color` ON `notes` (`color`)");
+        }
+    };
+
+    /**
+     * Adds the `note_trigrams` substring index and fills it from the existing notes.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `note_trigrams` (`trigram` TEXT NOT NULL, " +
+                    "`note_id` INTEGER NOT NULL, PRIMARY KEY(`trigram`, `note_id`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_note_trigrams_note_id` ON `note_trigrams` (`note_id`)");
+
+            SupportSQLiteStatement insert = db.compileStatement(
+                    "INSERT OR IGNORE INTO `note_trigrams` (`trigram`, `note_id`) VALUES (?, ?)");
+            Set<String> trigrams = new HashSet<>();
+            try (Cursor cursor = db.query("SELECT `id`, `title`, `subtitle`, `note_text` FROM `notes`")) {
+                while (cursor.moveToNext()) {
+                    trigrams.clear();
+                    Trigrams.collect(cursor.getString(1), trigrams);
+                    Trigrams.collect(cursor.getString(2), trigrams);
+                    Trigrams.collect(cursor.getString(3), trigrams);
+                    for (String trigram : trigrams) {
+                        insert.bindString(1, trigram);
+                        insert.bindLong(2, cursor.getInt(0));
+                        insert.executeInsert();
+                    }
+                }
+            }
+        }
+    };
+
+    /**
+     * Adds the `command_journal` table persisting the undo history.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `command_journal` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`state` INTEGER NOT NULL, `payload` BLOB NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_command_journal_state_seq` ON `command_journal` (`state`, `seq`)");
+        }
+    };
+
+    /**
+     * Every migration, in version order, from the first schema to the current one.
+     */
+    static final Migration[] MIGRATIONS = {
+            MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6
+    };
+
     /**
      * Retrieves the singleton instance of the NotesDatabase.
      * If the instance does not exist, it initializes the database.
@@ -33,7 +156,7 @@ public abstract class NotesDatabase extends RoomDatabase {
                     context,
                     NotesDatabase.class,
                     "notes db"
-            ).build();
+            ).addMigrations(MIGRATIONS).build();
         }
         return notesDatabase;
     }
@@ -45,4 +168,11 @@ public abstract class NotesDatabase extends RoomDatabase {
      */
     public abstract NoteDao noteDao();
 
+    /**
+     * Provides access to the {@link CommandJournalDao} persisting the undo history.
+     *
+     * @return An instance of {@link CommandJournalDao}.
+     */
+    public abstract CommandJournalDao commandJournalDao();
+
 }
\ No newline at end of file
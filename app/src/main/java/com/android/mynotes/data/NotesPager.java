@@ -0,0 +1,364 @@
+package com.android.mynotes.data;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+
+import com.android.mynotes.domain.entities.NoteSummary;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link LiveData} exposing the notes table as a sliding window of keyset-paginated pages
+ * of {@link NoteSummary} rows, which leave out the note bodies.
+ * Pages are read in a {@link NoteOrder} with keyset conditions such as
+ * {@code WHERE id < :lastId ORDER BY id DESC LIMIT :pageSize}, so each
+ * load only touches the rows it returns. At most {@code maxSize} rows are retained: once the
+ * window grows beyond it, the pages farthest from the displayed position are dropped, and the
+ * notes dropped above the window are published as null placeholders so positions stay stable.
+ * They are read back with the reverse keyset query when scrolled to. When the table changes,
+ * only the retained rows are re-read, together with an index-only count of the rows above
+ * them, so a refresh costs the same however far the list has been scrolled.
+ */
+public class NotesPager extends LiveData<List<NoteSummary>> {
+
+    /**
+     * Default number of notes loaded per page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 30;
+
+    /**
+     * Default number of remaining items below the visible position that triggers the next page.
+     */
+    public static final int DEFAULT_PREFETCH_DISTANCE = 10;
+
+    /**
+     * Default maximum number of rows retained in memory.
+     */
+    public static final int DEFAULT_MAX_SIZE = 5 * DEFAULT_PAGE_SIZE;
+
+    private final NoteDao noteDao;
+    private final InvalidationTracker invalidationTracker;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxSize;
+
+    /**
+     * Single loader thread; every read and every mutation of the window happens on it,
+     * which keeps appends, prepends and refreshes strictly ordered.
+     */
+    private final Executor loadExecutor;
+
+    private final AtomicBoolean appendQueued = new AtomicBoolean(false);
+    private final AtomicBoolean prependQueued = new AtomicBoolean(false);
+    private final AtomicBoolean refreshQueued = new AtomicBoolean(false);
+    private final AtomicBoolean invalid = new AtomicBoolean(true);
+
+    private volatile NoteOrder order = NoteOrder.ID;
+    private volatile Window window = Window.EMPTY;
+    private volatile boolean endReached;
+    private volatile int firstVisible;
+    private volatile int lastVisible;
+
+    private final InvalidationTracker.Observer invalidationObserver =
+            new InvalidationTracker.Observer("notes") {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    invalid.set(true);
+                    if (hasActiveObservers()) {
+                        scheduleRefresh();
+                    }
+                }
+            };
+
+    /**
+     * Constructs a NotesPager with the default page size, prefetch distance and maximum size.
+     *
+     * @param database The {@link NotesDatabase} the pages are read from.
+     */
+    public NotesPager(NotesDatabase database) {
+        this(database, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a NotesPager.
+     *
+     * @param database         The {@link NotesDatabase} the pages are read from.
+     * @param pageSize         Number of notes loaded per page.
+     * @param prefetchDistance Distance from either end of the window at which the adjacent page is requested.
+     * @param maxSize          Number of rows beyond which pages away from the viewport are dropped,
+     *                         at least {@code pageSize + 2 * prefetchDistance}.
+     */
+    public NotesPager(NotesDatabase database, int pageSize, int prefetchDistance, int maxSize) {
+        this(database.noteDao(), database.getInvalidationTracker(), Executors.newSingleThreadExecutor(),
+                pageSize, prefetchDistance, maxSize);
+    }
+
+    /**
+     * Constructs a NotesPager over a DAO, loading on the given executor.
+     *
+     * @param noteDao             The DAO the pages are read through.
+     * @param invalidationTracker Reports changes to the notes table.
+     * @param loadExecutor        Runs the loads one at a time, in submission order.
+     * @param pageSize            Number of notes loaded per page.
+     * @param prefetchDistance    Distance from either end of the window at which the adjacent page is requested.
+     * @param maxSize             Number of rows beyond which pages away from the viewport are dropped,
+     *                            at least {@code pageSize + 2 * prefetchDistance}.
+     */
+    NotesPager(NoteDao noteDao, InvalidationTracker invalidationTracker, Executor loadExecutor,
+               int pageSize, int prefetchDistance, int maxSize) {
+        if (maxSize < pageSize + 2 * prefetchDistance) {
+            throw new IllegalArgumentException("maxSize must be at least pageSize + 2 * prefetchDistance");
+        }
+        this.noteDao = noteDao;
+        this.invalidationTracker = invalidationTracker;
+        this.loadExecutor = loadExecutor;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Registers for table invalidations and reloads the window if it changed while inactive.
+     */
+    @Override
+    protected void onActive() {
+        loadExecutor.execute(() -> invalidationTracker.addObserver(invalidationObserver));
+        if (invalid.get()) {
+            scheduleRefresh();
+        }
+    }
+
+    /**
+     * Stops listening to table invalidations while nobody observes the window.
+     */
+    @Override
+    protected void onInactive() {
+        loadExecutor.execute(() -> invalidationTracker.removeObserver(invalidationObserver));
+    }
+
+    /**
+     * Notifies the pager of the range of positions being displayed.
+     * Requests the next page once the last visible position is within the prefetch distance
+     * of the end of the loaded window, and the previous page once the first visible position
+     * is within the prefetch distance of the placeholders above it.
+     *
+     * @param firstPosition The first adapter position being displayed.
+     * @param lastPosition  The last adapter position being displayed.
+     */
+    public void loadAround(int firstPosition, int lastPosition) {
+        firstVisible = firstPosition;
+        lastVisible = lastPosition;
+        Window current = window;
+        if (!endReached && lastPosition >= current.size() - prefetchDistance
+                && appendQueued.compareAndSet(false, true)) {
+            loadExecutor.execute(this::appendPage);
+        }
+        if (current.leading > 0 && firstPosition < current.leading + prefetchDistance
+                && prependQueued.compareAndSet(false, true)) {
+            loadExecutor.execute(this::prependPage);
+        }
+    }
+
+    /**
+     * Switches the order the notes are paged in. The window is discarded and
+     * its first page is read again in the new order.
+     *
+     * @param newOrder The {@link NoteOrder} to page in.
+     */
+    public void setOrder(NoteOrder newOrder) {
+        loadExecutor.execute(() -> {
+            if (order == newOrder) return;
+            order = newOrder;
+            window = Window.EMPTY;
+            endReached = false;
+            refreshWindow();
+        });
+    }
+
+    /**
+     * Queues a reload of the loaded window, coalescing bursts of invalidations into one read.
+     */
+    void scheduleRefresh() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            loadExecutor.execute(this::refreshWindow);
+        }
+    }
+
+    /**
+     * Loads the page following the last retained note and appends it to the window,
+     * dropping pages above the displayed position if the window outgrows its maximum size.
+     */
+    private void appendPage() {
+        appendQueued.set(false);
+        if (endReached) {
+            return;
+        }
+
+        Window current = window;
+        List<NoteSummary> page = current.rows.isEmpty()
+                ? order.firstPage(noteDao, pageSize)
+                : order.pageAfter(noteDao, current.rows.get(current.rows.size() - 1), pageSize);
+
+        List<NoteSummary> rows = new ArrayList<>(current.rows.size() + page.size());
+        rows.addAll(current.rows);
+        rows.addAll(page);
+        endReached = page.size() < pageSize;
+
+        int dropped = rowsToDropAbove(current.leading, rows.size());
+        publish(current.leading + dropped, rows.subList(dropped, rows.size()));
+    }
+
+    /**
+     * Loads the page preceding the first retained note and prepends it to the window in
+     * place of the placeholders, dropping pages below the displayed position if the window
+     * outgrows its maximum size.
+     */
+    private void prependPage() {
+        prependQueued.set(false);
+        Window current = window;
+        if (current.leading == 0 || current.rows.isEmpty()) {
+            return;
+        }
+
+        List<NoteSummary> page = order.pageBefore(noteDao, current.rows.get(0), pageSize);
+        List<NoteSummary> rows = new ArrayList<>(page.size() + current.rows.size());
+        rows.addAll(page);
+        rows.addAll(current.rows);
+        // A short page means the top was reached, whatever the placeholder count estimated
+        int leading = page.size() < pageSize ? 0 : Math.max(0, current.leading - page.size());
+
+        int kept = rowsToKeepBelow(leading, rows.size());
+        if (kept < rows.size()) {
+            endReached = false;
+        }
+        publish(leading, rows.subList(0, kept));
+    }
+
+    /**
+     * Re-reads the rows retained by the current window. A window starting at the top also
+     * picks up notes that now sort above its last note; otherwise the rows above it are only
+     * counted, so their placeholders match the table. Once the end was reached, the page
+     * after the window is read as well, so notes added at the end show up. If notes added
+     * within the window make it outgrow its maximum size, it is trimmed like after a load.
+     */
+    private void refreshWindow() {
+        refreshQueued.set(false);
+        invalid.set(false);
+
+        Window current = window;
+        if (current.rows.isEmpty()) {
+            List<NoteSummary> firstPage = order.firstPage(noteDao, pageSize);
+            endReached = firstPage.size() < pageSize;
+            publish(0, firstPage);
+            return;
+        }
+
+        NoteSummary first = current.rows.get(0);
+        NoteSummary last = current.rows.get(current.rows.size() - 1);
+        List<NoteSummary> rows;
+        int leading;
+        if (current.leading == 0) {
+            rows = order.window(noteDao, last);
+            leading = 0;
+        } else {
+            rows = order.between(noteDao, first, last);
+            leading = order.countBefore(noteDao, first);
+        }
+        if (endReached) {
+            List<NoteSummary> tail = order.pageAfter(noteDao, last, pageSize);
+            rows.addAll(tail);
+            endReached = tail.size() < pageSize;
+        }
+        if (rows.isEmpty()) {
+            // Every retained note is gone; start over from the top
+            window = Window.EMPTY;
+            endReached = false;
+            refreshWindow();
+            return;
+        }
+
+        int dropped = rowsToDropAbove(leading, rows.size());
+        int kept = dropped + rowsToKeepBelow(leading + dropped, rows.size() - dropped);
+        if (kept < rows.size()) {
+            endReached = false;
+        }
+        publish(leading + dropped, rows.subList(dropped, kept));
+    }
+
+    /**
+     * Counts the rows to drop from the top of a window that outgrew its maximum size:
+     * whole pages, while they stay out of prefetch reach of the displayed position.
+     *
+     * @param leading Number of placeholders above the rows.
+     * @param size    Number of rows.
+     * @return The number of rows to drop, a multiple of the page size.
+     */
+    private int rowsToDropAbove(int leading, int size) {
+        int dropped = 0;
+        while (size - dropped > maxSize && leading + dropped + pageSize < firstVisible - prefetchDistance) {
+            dropped += pageSize;
+        }
+        return dropped;
+    }
+
+    /**
+     * Counts the rows to keep from the top of a window that outgrew its maximum size,
+     * dropping whole pages from the bottom while they stay out of prefetch reach of the
+     * displayed position.
+     *
+     * @param leading Number of placeholders above the rows.
+     * @param size    Number of rows.
+     * @return The number of rows to keep.
+     */
+    private int rowsToKeepBelow(int leading, int size) {
+        int kept = size;
+        while (kept > maxSize && leading + kept - pageSize > lastVisible + prefetchDistance) {
+            kept -= pageSize;
+        }
+        return kept;
+    }
+
+    /**
+     * Publishes an immutable snapshot of the window to observers.
+     *
+     * @param leading Number of placeholders for the notes above the retained rows.
+     * @param rows    The retained rows.
+     */
+    private void publish(int leading, List<NoteSummary> rows) {
+        window = new Window(leading, Collections.unmodifiableList(new ArrayList<>(rows)));
+        postValue(window);
+    }
+
+    /**
+     * The published list: {@code leading} null placeholders followed by the retained rows.
+     */
+    private static final class Window extends AbstractList<NoteSummary> {
+        static final Window EMPTY = new Window(0, Collections.emptyList());
+
+        final int leading;
+        final List<NoteSummary> rows;
+
+        Window(int leading, List<NoteSummary> rows) {
+            this.leading = leading;
+            this.rows = rows;
+        }
+
+        @Override
+        public NoteSummary get(int index) {
+            return index < leading ? null : rows.get(index - leading);
+        }
+
+        @Override
+        public int size() {
+            return leading + rows.size();
+        }
+    }
+}
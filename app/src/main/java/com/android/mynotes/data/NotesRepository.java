@@ -1,11 +1,28 @@
 package com.android.mynotes.data;
 
-import androidx.lifecycle.LiveData;
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
 
 import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteCodec;
+import com.android.mynotes.domain.entities.NoteSummary;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * Repository class for managing data operations for notes.
@@ -14,7 +31,51 @@ import java.util.concurrent.Executors;
  */
 public class NotesRepository {
 
+    /**
+     * Singleton instance shared by every screen, so all writes go through one queue.
+     */
+    private static NotesRepository notesRepository;
+
+    /**
+     * Bind variables per query stay below SQLite's limit of 999.
+     */
+    private static final int MAX_IDS_PER_QUERY = 900;
+    private static final int MAX_TRIGRAMS_PER_QUERY = 64;
+
+    /**
+     * Number of recently loaded notes kept for {@link #getCachedNote(int)}.
+     */
+    private static final int MAX_CACHED_NOTES = 16;
+
     private final NotesDatabase database;
+    private final NotesWriteQueue writeQueue;
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final List<IntConsumer> noteChangeListeners = new CopyOnWriteArrayList<>();
+    private NotesPager notesPager;
+    private CommandJournal commandJournal;
+
+    /**
+     * Recently loaded notes, handed from the screen that loaded them to the screen
+     * opening them. Any write to a note drops its entry.
+     * Entries are kept encoded by {@link NoteCodec}, so every caller decodes its own copy:
+     * screens and commands edit the notes they hold, and saving a new note sets its ID.
+     */
+    private final Map<Integer, byte[]> recentNotes = new LinkedHashMap<Integer, byte[]>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+            return size() > MAX_CACHED_NOTES;
+        }
+    };
+
+    /**
+     * Incremented by every write, so a load that raced with a write is not cached.
+     */
+    private final AtomicLong writeCount = new AtomicLong();
+
+    /**
+     * The batch collecting the writes of the calling thread inside {@link #runInBatch(Runnable)}.
+     */
+    private final ThreadLocal<WriteBatch> openBatch = new ThreadLocal<>();
 
     /**
      * Constructs a NotesRepository with the specified database.
@@ -23,35 +84,354 @@ public class NotesRepository {
      */
     public NotesRepository(NotesDatabase database) {
         this.database = database;
+        this.writeQueue = new NotesWriteQueue(database);
+        database.getInvalidationTracker().addObserver(new InvalidationTracker.Observer("notes") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                dataVersion.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Constructs a NotesRepository without a database, whose writes go through the given queue.
+     * Only the write methods can be used; for JVM tests.
+     *
+     * @param writeQueue The queue committing the writes.
+     */
+    NotesRepository(NotesWriteQueue writeQueue) {
+        this.database = null;
+        this.writeQueue = writeQueue;
+    }
+
+    /**
+     * Retrieves the shared NotesRepository for the given database, creating it on first use.
+     *
+     * @param database The {@link NotesDatabase} instance used for accessing the data.
+     * @return The shared {@link NotesRepository}.
+     */
+    public static synchronized NotesRepository getInstance(NotesDatabase database) {
+        if (notesRepository == null) {
+            notesRepository = new NotesRepository(database);
+        }
+        return notesRepository;
     }
 
     /**
-     * Retrieves all notes stored in the database.
-     * Returns a {@link LiveData} object that observes changes in the data.
+     * Retrieves the notes stored in the database as a paged window.
+     * The returned {@link NotesPager} only loads the pages requested through
+     * {@link NotesPager#loadAround(int, int)} and observes changes in the data.
      *
-     * @return A LiveData list of {@link Note} objects.
+     * @return A {@link NotesPager} publishing the loaded window of {@link NoteSummary} rows.
      */
-    public LiveData<List<Note>> getAllNotes() {
-        return database.noteDao().getAllNotes();
+    public synchronized NotesPager getPagedNotes() {
+        if (notesPager == null) {
+            notesPager = new NotesPager(database);
+        }
+        return notesPager;
     }
 
     /**
-     * Adds a new note to the database. This operation is performed on a
-     * background thread to avoid blocking the UI.
+     * Retrieves the persistent undo history, whose operations are ordered with the note writes.
+     *
+     * @return The shared {@link CommandJournal}.
+     */
+    public synchronized CommandJournal getCommandJournal() {
+        if (commandJournal == null) {
+            commandJournal = new CommandJournal(database, this);
+        }
+        return commandJournal;
+    }
+
+    /**
+     * Loads a note with all its columns on Room's query executor. A note loaded recently
+     * and not written since is returned from memory without a query.
+     *
+     * @param noteId The ID of the note.
+     * @return A future completed with a {@link Note} the caller owns and may modify,
+     * or with null if it does not exist.
+     */
+    public CompletableFuture<Note> loadNote(int noteId) {
+        Note cached = getCachedNote(noteId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long writesBefore = writeCount.get();
+        return CompletableFuture.supplyAsync(() -> {
+            Note note = database.noteDao().getNoteById(noteId);
+            if (note != null) {
+                byte[] encoded = NoteCodec.encode(note);
+                synchronized (recentNotes) {
+                    if (writeCount.get() == writesBefore) recentNotes.put(noteId, encoded);
+                }
+            }
+            return note;
+        }, database.getQueryExecutor());
+    }
+
+    /**
+     * Returns a note loaded by {@link #loadNote(int)} if it is still in memory and has
+     * not been written since, so a screen can display it without waiting for a query.
+     *
+     * @param noteId The ID of the note.
+     * @return A new copy of the cached {@link Note}, or null.
+     */
+    public Note getCachedNote(int noteId) {
+        byte[] encoded;
+        synchronized (recentNotes) {
+            encoded = recentNotes.get(noteId);
+        }
+        return encoded != null ? NoteCodec.decode(encoded) : null;
+    }
+
+    /**
+     * Returns a counter that changes whenever the notes table is modified.
+     * Lets callers tell whether data they derived from the table is still current.
+     *
+     * @return The current version of the notes table.
+     */
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Registers a listener told the ID of every note that is inserted, edited or deleted.
+     * It is called both when the write is queued and once it has been committed, so
+     * anything derived from the old row between the two calls is also discarded.
+     *
+     * @param listener Receives the ID of each changed note.
+     */
+    public void addNoteChangeListener(IntConsumer listener) {
+        noteChangeListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addNoteChangeListener(IntConsumer)}.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeNoteChangeListener(IntConsumer listener) {
+        noteChangeListeners.remove(listener);
+    }
+
+    /**
+     * Searches the full-text index for notes whose title, subtitle or text contain
+     * tokens starting with every term of the query; ranking them is left to the caller.
+     * This call runs the query synchronously and must not be made on the main thread.
+     *
+     * @param query       The search query entered by the user.
+     * @param isCancelled Returns true once the result is no longer needed; checked between stages.
+     * @return The matching notes newest first, without their web link and creation time.
+     */
+    public List<Note> searchNotes(String query, BooleanSupplier isCancelled) {
+        String matchExpression = FtsQuery.toMatchExpression(query);
+        if (matchExpression == null) {
+            return Collections.emptyList();
+        }
+        List<NoteMatch> matches = database.noteDao().searchNotes(matchExpression);
+        if (isCancelled.getAsBoolean()) {
+            return Collections.emptyList();
+        }
+        List<Note> notes = new ArrayList<>(matches.size());
+        for (NoteMatch match : matches) notes.add(match.toNote());
+        return notes;
+    }
+
+    /**
+     * Finds the notes whose folded text contains every one of the given trigrams.
+     * Only the first {@link #MAX_TRIGRAMS_PER_QUERY} trigrams are used, which can only
+     * widen the candidate set, so callers must verify the candidates anyway.
+     * This call runs the query synchronously and must not be made on the main thread.
+     *
+     * @param trigrams Distinct folded trigrams.
+     * @return The IDs of the candidate notes.
+     */
+    public List<Integer> findTrigramCandidates(Collection<String> trigrams) {
+        List<String> lookup = new ArrayList<>(trigrams);
+        if (lookup.size() > MAX_TRIGRAMS_PER_QUERY) {
+            lookup = lookup.subList(0, MAX_TRIGRAMS_PER_QUERY);
+        }
+        return database.noteDao().findNotesWithTrigrams(lookup, lookup.size());
+    }
+
+    /**
+     * Loads the notes with the given IDs, in chunks that fit SQLite's variable limit.
+     * This call runs the query synchronously and must not be made on the main thread.
+     *
+     * @param ids The IDs of the notes to load.
+     * @return The notes found, in no particular order.
+     */
+    public List<Note> getNotesByIds(List<Integer> ids) {
+        List<Note> notes = new ArrayList<>(ids.size());
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+            List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_QUERY));
+            notes.addAll(database.noteDao().getNotesByIds(chunk));
+        }
+        return notes;
+    }
+
+    /**
+     * Reads every note, newest first, one keyset page at a time, so the whole table is
+     * never held in memory at once.
+     * This call runs the queries synchronously and must not be made on the main thread.
+     *
+     * @param pageSize     Number of notes read per query.
+     * @param pageConsumer Receives each page in turn.
+     */
+    public void forEachPage(int pageSize, Consumer<List<Note>> pageConsumer) {
+        NoteDao noteDao = database.noteDao();
+        List<Note> page = noteDao.getNotesPage(pageSize);
+        while (!page.isEmpty()) {
+            pageConsumer.accept(page);
+            if (page.size() < pageSize) break;
+            page = noteDao.getNotesPageBefore(page.get(page.size() - 1).getId(), pageSize);
+        }
+    }
+
+    /**
+     * Adds a new note to the database. The write is queued behind every earlier write
+     * and committed on the repository's write thread to avoid blocking the UI.
      *
      * @param note The {@link Note} to be added.
+     * @return A future completed once the write has been committed.
      */
-    public void addNote(Note note) {
-        Executors.newSingleThreadExecutor().execute(() -> database.noteDao().insertNote(note));
+    public CompletableFuture<Void> addNote(Note note) {
+        return notifyNoteChanged(note::getId, enqueue(noteDao -> noteDao.saveNote(note)));
     }
 
     /**
-     * Deletes a specified note from the database. This operation is performed on a
-     * background thread to avoid blocking the UI.
+     * Deletes a specified note from the database. The write is queued behind every earlier
+     * write and committed on the repository's write thread to avoid blocking the UI.
      *
      * @param note The {@link Note} to be deleted.
+     * @return A future completed once the write has been committed.
+     */
+    public CompletableFuture<Void> deleteNote(Note note) {
+        return notifyNoteChanged(note::getId, enqueue(noteDao -> noteDao.removeNote(note)));
+    }
+
+    /**
+     * Rewrites a note from its stored state. The update is queued behind every earlier write
+     * and runs on the repository's write thread, so it sees the note as those writes left it.
+     *
+     * @param noteId The ID of the note to rewrite.
+     * @param update Computes the note to store from the stored one, or throws to skip the write.
+     * @return A future completed once the write has been committed, or completed exceptionally
+     * if the note does not exist or {@code update} threw.
+     */
+    public CompletableFuture<Void> updateNote(int noteId, UnaryOperator<Note> update) {
+        return notifyNoteChanged(() -> noteId, enqueue(noteDao -> {
+            Note stored = noteDao.getNoteById(noteId);
+            if (stored == null) {
+                throw new IllegalStateException("Note " + noteId + " does not exist");
+            }
+            noteDao.saveNote(update.apply(stored));
+        }));
+    }
+
+    /**
+     * Runs {@code writes} on the calling thread, collecting every write it makes through this
+     * repository into a single queued operation, so they are committed together in one
+     * transaction and in order. Writes made by a nested call join the outermost batch.
+     * If one of the writes fails, the whole batch is rolled back and none of it is stored.
+     *
+     * @param writes Makes the writes, e.g. by executing commands.
+     * @return A future completed once the whole batch has been committed, or completed
+     * exceptionally with the first failure once the batch has been rolled back.
+     */
+    public CompletableFuture<Void> runInBatch(Runnable writes) {
+        WriteBatch outer = openBatch.get();
+        if (outer != null) {
+            writes.run();
+            return outer.future;
+        }
+        WriteBatch batch = new WriteBatch();
+        openBatch.set(batch);
+        try {
+            writes.run();
+        } finally {
+            openBatch.remove();
+        }
+        if (batch.operations.isEmpty()) {
+            batch.future.complete(null);
+        } else {
+            writeQueue.enqueue(noteDao -> {
+                for (NotesWriteQueue.WriteOperation operation : batch.operations) operation.apply(noteDao);
+            }).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    batch.future.completeExceptionally(error);
+                } else {
+                    batch.future.complete(null);
+                }
+            });
+        }
+        return batch.future;
+    }
+
+    /**
+     * Queues a write, or adds it to the batch open on the calling thread.
+     *
+     * @param operation The write to apply.
+     * @return A future completed once the write has been committed.
+     */
+    CompletableFuture<Void> enqueue(NotesWriteQueue.WriteOperation operation) {
+        WriteBatch batch = openBatch.get();
+        if (batch == null) {
+            return writeQueue.enqueue(operation);
+        }
+        batch.operations.add(operation);
+        return batch.future;
+    }
+
+    /**
+     * Runs a read on Room's query executor once every write queued before the call is done,
+     * so it sees them without taking a turn on the write thread.
+     *
+     * @param read The read to run.
+     * @param <T>  The type of the result.
+     * @return A future completed with the result of the read.
+     */
+    <T> CompletableFuture<T> readAfterQueuedWrites(Supplier<T> read) {
+        return writeQueue.whenQueuedWritesDone().thenApplyAsync(ignored -> read.get(), database.getQueryExecutor());
+    }
+
+    /**
+     * Tells the note change listeners about a write now, and again once it has committed.
+     *
+     * @param noteId Returns the ID of the note being written.
+     * @param write  The future of the queued write.
+     * @return The same future, for chaining.
+     */
+    private CompletableFuture<Void> notifyNoteChanged(IntSupplier noteId, CompletableFuture<Void> write) {
+        int id = noteId.getAsInt();
+        forgetNote(id);
+        for (IntConsumer listener : noteChangeListeners) listener.accept(id);
+        write.whenComplete((ignored, error) -> {
+            // A new note only knows its generated ID once the insert has run
+            int committedId = noteId.getAsInt();
+            forgetNote(committedId);
+            for (IntConsumer listener : noteChangeListeners) listener.accept(committedId);
+        });
+        return write;
+    }
+
+    /**
+     * Drops a note from the hand-off cache and keeps loads racing with the write from caching it.
+     *
+     * @param noteId The ID of the note being written.
+     */
+    private void forgetNote(int noteId) {
+        synchronized (recentNotes) {
+            writeCount.incrementAndGet();
+            recentNotes.remove(noteId);
+        }
+    }
+
+    /**
+     * Writes collected by {@link #runInBatch(Runnable)}, and the future shared by all of them.
      */
-    public void deleteNote(Note note) {
-        Executors.newSingleThreadExecutor().execute(() -> database.noteDao().deleteNote(note));
+    private static final class WriteBatch {
+        final List<NotesWriteQueue.WriteOperation> operations = new ArrayList<>();
+        final CompletableFuture<Void> future = new CompletableFuture<>();
     }
-}
\ No newline at end of file
+}
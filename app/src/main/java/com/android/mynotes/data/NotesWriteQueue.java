@@ -0,0 +1,174 @@
+package com.android.mynotes.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Serial write pipeline for the notes database.
+ * Writes are applied in submission order by a single worker thread. Every write that is
+ * already queued when the worker wakes up is committed together in one Room transaction,
+ * so a burst of operations costs a single commit instead of one per write.
+ * Futures are completed in submission order once a batch's outcome is final, so a write's
+ * future completing means every earlier write has landed or failed too.
+ * The queue lives as long as the process, owned by the shared {@link NotesRepository}, so it
+ * has no shutdown step; callers learn the outcome of every write from its future.
+ */
+public class NotesWriteQueue {
+
+    /**
+     * A single database write, applied on the worker thread inside a transaction.
+     * If a later write of the same transaction fails, the write is rolled back and applied again.
+     */
+    public interface WriteOperation {
+
+        /**
+         * Applies the write.
+         *
+         * @param noteDao The DAO to write through.
+         */
+        void apply(NoteDao noteDao);
+    }
+
+    /**
+     * Maximum number of writes committed in one transaction.
+     */
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private final NoteDao noteDao;
+    private final Consumer<Runnable> transactionRunner;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * The future of the most recently queued write.
+     */
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+
+    /**
+     * Constructs the write queue and starts its worker thread.
+     *
+     * @param database The {@link NotesDatabase} the writes are applied to.
+     */
+    public NotesWriteQueue(NotesDatabase database) {
+        this(database.noteDao(), database::runInTransaction);
+    }
+
+    /**
+     * Constructs the write queue over a DAO and the transactions of its database,
+     * and starts its worker thread.
+     *
+     * @param noteDao           The DAO the writes go through.
+     * @param transactionRunner Runs a body in a transaction, rolled back if the body throws.
+     */
+    NotesWriteQueue(NoteDao noteDao, Consumer<Runnable> transactionRunner) {
+        this.noteDao = noteDao;
+        this.transactionRunner = transactionRunner;
+        Thread worker = new Thread(this::run, "notes-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues a write behind every previously queued write.
+     *
+     * @param operation The write to apply.
+     * @return A future completed once the transaction containing the write has committed,
+     * or completed exceptionally if the write failed.
+     */
+    public synchronized CompletableFuture<Void> enqueue(WriteOperation operation) {
+        PendingWrite write = new PendingWrite(operation);
+        queue.add(write);
+        lastWrite = write.future;
+        return write.future;
+    }
+
+    /**
+     * Returns a future completed once every write queued so far has been committed or has
+     * failed. Nothing is queued, so waiting on it does not hold up the worker thread.
+     *
+     * @return A future completed once the writes queued before the call are done.
+     */
+    public synchronized CompletableFuture<Void> whenQueuedWritesDone() {
+        return lastWrite.handle((ignored, error) -> null);
+    }
+
+    /**
+     * Worker loop: waits for the first write, collects the ones queued behind it and commits them.
+     */
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Applies a batch of writes in one transaction and completes their futures.
+     * Each write is all or nothing: if one throws, the transaction is rolled back and that
+     * write's future fails. The writes queued after it in the batch fail too, since they may
+     * depend on it, e.g. an edit following a failed insert; only the writes before it are
+     * applied again and committed. The futures are completed in order once that is done.
+     *
+     * @param batch The writes to apply, in submission order.
+     */
+    private void commit(List<PendingWrite> batch) {
+        RuntimeException[] errors = new RuntimeException[batch.size()];
+        int end = batch.size();
+        while (end > 0) {
+            List<PendingWrite> writes = batch.subList(0, end);
+            int[] failed = {-1};
+            try {
+                transactionRunner.accept(() -> {
+                    for (int i = 0; i < writes.size(); i++) {
+                        failed[0] = i;
+                        writes.get(i).operation.apply(noteDao);
+                    }
+                    failed[0] = -1;
+                });
+            } catch (RuntimeException e) {
+                if (failed[0] < 0) {
+                    // The commit itself failed, so none of the writes landed
+                    for (int i = 0; i < end; i++) errors[i] = e;
+                    break;
+                }
+                errors[failed[0]] = e;
+                for (int i = failed[0] + 1; i < end; i++) {
+                    errors[i] = new IllegalStateException("Skipped after an earlier write failed", e);
+                }
+                end = failed[0];
+                continue;
+            }
+            break;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (errors[i] == null) {
+                batch.get(i).future.complete(null);
+            } else {
+                batch.get(i).future.completeExceptionally(errors[i]);
+            }
+        }
+    }
+
+    /**
+     * A queued write together with the future reporting its outcome.
+     */
+    private static final class PendingWrite {
+        final WriteOperation operation;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingWrite(WriteOperation operation) {
+            this.operation = operation;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.android.mynotes.data;
+
+import java.text.Normalizer;
+
+/**
+ * Case and accent folding used for matching search terms.
+ * It lives with the data layer because it also defines the trigrams stored in the
+ * "note_trigrams" table (see {@link Trigrams}), which the search then queries.
+ * Folding maps every char to exactly one char, so offsets in folded text are
+ * also offsets in the original text.
+ */
+public final class TextFolding {
+
+    /**
+     * Pre-folded chars for the Latin-1 Supplement and Latin Extended-A blocks, where
+     * nearly all accented letters typed in notes live.
+     */
+    private static final char[] FOLDED = new char[0x0250];
+
+    static {
+        for (char c = 0; c < FOLDED.length; c++) {
+            char base = c;
+            if (c >= 0x00C0) {
+                String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                base = decomposed.charAt(0);
+            }
+            FOLDED[c] = Character.toLowerCase(Character.toUpperCase(base));
+        }
+    }
+
+    private TextFolding() { }
+
+    /**
+     * Folds a single char: lower-cases it and, for Latin letters, strips its diacritics.
+     *
+     * @param c The char to fold.
+     * @return The folded char.
+     */
+    public static char fold(char c) {
+        return c < FOLDED.length ? FOLDED[c] : Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Folds a string into a new char array of the same length.
+     *
+     * @param text The text to fold, may be null.
+     * @return The folded chars, empty if the text is null.
+     */
+    public static char[] fold(String text) {
+        if (text == null) return new char[0];
+        char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(text.charAt(i));
+        }
+        return folded;
+    }
+}
@@ -0,0 +1,65 @@
+package com.android.mynotes.data;
+
+import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteTrigram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Extracts the trigrams stored in the "note_trigrams" table.
+ * Trigrams are taken from folded text (see {@link TextFolding}) and only from runs of
+ * letters and digits, since search terms never contain other characters.
+ */
+public final class Trigrams {
+
+    private Trigrams() { }
+
+    /**
+     * Returns the distinct trigrams of a note's title, subtitle and text.
+     *
+     * @param note The note to index.
+     * @return The postings of the note.
+     */
+    public static List<NoteTrigram> postingsOf(Note note) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        collect(note.getTitle(), trigrams);
+        collect(note.getSubtitle(), trigrams);
+        collect(note.getNoteText(), trigrams);
+
+        List<NoteTrigram> postings = new ArrayList<>(trigrams.size());
+        for (String trigram : trigrams) {
+            postings.add(new NoteTrigram(trigram, note.getId()));
+        }
+        return postings;
+    }
+
+    /**
+     * Adds the trigrams of a piece of text to {@code trigrams}.
+     *
+     * @param text     The text to index, may be null.
+     * @param trigrams The set receiving the trigrams.
+     */
+    public static void collect(String text, Set<String> trigrams) {
+        if (text == null) return;
+        collect(TextFolding.fold(text), trigrams);
+    }
+
+    /**
+     * Adds the trigrams of already folded chars to {@code trigrams}.
+     *
+     * @param folded   The folded chars to index.
+     * @param trigrams The set receiving the trigrams.
+     */
+    public static void collect(char[] folded, Set<String> trigrams) {
+        int run = 0;
+        for (int i = 0; i < folded.length; i++) {
+            run = Character.isLetterOrDigit(folded[i]) ? run + 1 : 0;
+            if (run >= 3) {
+                trigrams.add(new String(folded, i - 2, 3));
+            }
+        }
+    }
+}
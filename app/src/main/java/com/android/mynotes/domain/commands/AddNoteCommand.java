@@ -3,6 +3,8 @@ package com.android.mynotes.domain.commands;
 import com.android.mynotes.domain.entities.Note;
 import com.android.mynotes.data.NotesRepository;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * A concrete command implementation for adding a new note.
  * Executes by adding the note to the repository and
@@ -26,17 +28,56 @@ public class AddNoteCommand implements Command {
 
     /**
      * Executes the add operation by inserting the note into the repository.
+     *
+     * @return A future completed once the write has been committed.
      */
     @Override
-    public void execute() {
-        repository.addNote(note);
+    public CompletableFuture<Void> execute() {
+        return repository.addNote(note);
     }
 
     /**
      * Undoes the add operation by removing the note from the repository.
+     *
+     * @return A future completed once the write has been committed.
+     */
+    @Override
+    public CompletableFuture<Void> undo() {
+        return repository.deleteNote(note);
+    }
+
+    /**
+     * Combines this addition with a following edit of the added note into the addition of
+     * the edited note, since undoing both must remove the note anyway.
+     *
+     * @param next The command about to be executed.
+     * @return The combined addition, or null if {@code next} does not edit the added note.
+     */
+    @Override
+    public Command mergeWith(Command next) {
+        if (!(next instanceof EditNoteCommand)) return null;
+        EditNoteCommand edit = (EditNoteCommand) next;
+        // The ID is only known once the insert has run
+        if (note.getId() == 0 || edit.getPendingNote() == null || edit.getNoteId() != note.getId()) {
+            return null;
+        }
+        return new AddNoteCommand(repository, edit.getPendingNote());
+    }
+
+    /**
+     * Retrieves the note the command is about.
+     *
+     * @return The note.
+     */
+    Note getNote() {
+        return note;
+    }
+
+    /**
+     * {@inheritDoc}
      */
     @Override
-    public void undo() {
-        repository.deleteNote(note);
+    public long getSizeBytes() {
+        return CommandSizes.COMMAND_OVERHEAD + CommandSizes.of(note);
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,48 @@
 package com.android.mynotes.domain.commands;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Represents an executable command with the ability to be undone.
+ * Both directions only queue their writes and return at once; the returned future tells
+ * when the writes have landed. Writes are queued on the repository's single write queue,
+ * so an undo always lands after the execution it reverses.
  */
 public interface Command {
 
     /**
      * Executes the core logic of this command.
+     *
+     * @return A future completed once the command's writes have been committed.
      */
-    void execute();
+    CompletableFuture<Void> execute();
 
     /**
      * Reverses or undoes the effects of this command's execution.
+     *
+     * @return A future completed once the reverting writes have been committed.
+     */
+    CompletableFuture<Void> undo();
+
+    /**
+     * Estimates the heap retained by this command while it is kept in the undo history,
+     * including any note snapshots it holds.
+     *
+     * @return The estimated retained size in bytes.
+     */
+    default long getSizeBytes() {
+        return CommandSizes.COMMAND_OVERHEAD;
+    }
+
+    /**
+     * Tries to combine this command with the one executed right after it into a single undo
+     * step. Called while this command is the latest in the history, before {@code next} runs.
+     *
+     * @param next The command about to be executed.
+     * @return A command whose undo reverts both commands and whose execution redoes both,
+     * or null if they cannot be combined.
      */
-    void undo();
+    default Command mergeWith(Command next) {
+        return null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,299 @@
+package com.android.mynotes.domain.commands;
+
+import com.android.mynotes.data.NotesRepository;
+import com.android.mynotes.domain.entities.NoteCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the commands kept in the undo history, used to persist it.
+ * <pre>
+ * command   := version:u8 body
+ * body      := ADD note | DELETE note | EDIT delta | COMPOSITE count:varint body*
+ * note      := length:varint bytes      ({@link NoteCodec} encoding)
+ * delta     := noteId:varint changed:u8 (old:string new:string)* hasText:u8 hunks?
+ *              oldCreatedAt newCreatedAt oldUpdatedAt newUpdatedAt:varint
+ * hunks     := count:varint (gap:varint deleted:string inserted:string)*
+ * string    := 0 for null | (utf8Length + 1):varint bytes
+ * </pre>
+ * Hunk offsets are stored as the gap since the end of the previous hunk, so they usually
+ * fit one byte. An edit therefore costs a few bytes plus the changed text.
+ */
+public final class CommandCodec {
+
+    /**
+     * Version written by {@link #encode(Command)}; decoding rejects newer versions.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int ADD = 1;
+    private static final int DELETE = 2;
+    private static final int EDIT = 3;
+    private static final int COMPOSITE = 4;
+
+    private CommandCodec() { }
+
+    /**
+     * Encodes a command in the current format version.
+     *
+     * @param command The command to encode.
+     * @return The encoded bytes.
+     * @throws IllegalArgumentException if the command is of a type the codec does not know.
+     */
+    public static byte[] encode(Command command) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(FORMAT_VERSION);
+        writeBody(out, command);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a command written by {@link #encode(Command)}.
+     *
+     * @param bytes      The encoded bytes.
+     * @param repository The repository the decoded command writes to.
+     * @return The decoded {@link Command}.
+     * @throws IllegalArgumentException if the bytes are malformed or use an unknown version.
+     */
+    public static Command decode(byte[] bytes, NotesRepository repository) {
+        Reader in = new Reader(bytes);
+        int version = in.readByte();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported command format version " + version);
+        }
+        return readBody(in, repository);
+    }
+
+    /**
+     * Writes a command without the version byte.
+     *
+     * @param out     The stream to write to.
+     * @param command The command.
+     */
+    private static void writeBody(ByteArrayOutputStream out, Command command) {
+        if (command instanceof AddNoteCommand) {
+            out.write(ADD);
+            writeBytes(out, NoteCodec.encode(((AddNoteCommand) command).getNote()));
+        } else if (command instanceof DeleteNoteCommand) {
+            out.write(DELETE);
+            writeBytes(out, NoteCodec.encode(((DeleteNoteCommand) command).getNote()));
+        } else if (command instanceof EditNoteCommand) {
+            out.write(EDIT);
+            writeDelta(out, ((EditNoteCommand) command).getDelta());
+        } else if (command instanceof CompositeCommand) {
+            List<Command> commands = ((CompositeCommand) command).getCommands();
+            out.write(COMPOSITE);
+            writeVarLong(out, commands.size());
+            for (Command child : commands) writeBody(out, child);
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + command.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads a command written by {@link #writeBody(ByteArrayOutputStream, Command)}.
+     *
+     * @param in         The reader.
+     * @param repository The repository the command writes to.
+     * @return The command.
+     */
+    private static Command readBody(Reader in, NotesRepository repository) {
+        int type = in.readByte();
+        switch (type) {
+            case ADD:
+                return new AddNoteCommand(repository, NoteCodec.decode(in.readBytes()));
+            case DELETE:
+                return new DeleteNoteCommand(repository, NoteCodec.decode(in.readBytes()));
+            case EDIT:
+                return new EditNoteCommand(repository, readDelta(in));
+            case COMPOSITE:
+                int count = in.readLength();
+                List<Command> commands = new ArrayList<>(Math.min(count, 64));
+                for (int i = 0; i < count; i++) commands.add(readBody(in, repository));
+                return new CompositeCommand(repository, commands);
+            default:
+                throw new IllegalArgumentException("Unknown command type " + type);
+        }
+    }
+
+    /**
+     * Writes a note delta.
+     *
+     * @param out   The stream to write to.
+     * @param delta The delta.
+     */
+    private static void writeDelta(ByteArrayOutputStream out, NoteDelta delta) {
+        writeVarLong(out, delta.getNoteId() & 0xFFFFFFFFL);
+        int changed = 0;
+        for (int field = 0; field < NoteDelta.FIELD_COUNT; field++) {
+            if (delta.isChanged(field)) changed |= 1 << field;
+        }
+        out.write(changed);
+        for (int field = 0; field < NoteDelta.FIELD_COUNT; field++) {
+            if (!delta.isChanged(field)) continue;
+            writeString(out, delta.getOldValue(field));
+            writeString(out, delta.getNewValue(field));
+        }
+
+        TextDelta text = delta.getNoteTextDelta();
+        out.write(text != null ? 1 : 0);
+        if (text != null) {
+            writeVarLong(out, text.getHunkCount());
+            int end = 0;
+            for (int i = 0; i < text.getHunkCount(); i++) {
+                writeVarLong(out, text.getOffset(i) - end);
+                writeString(out, text.getDeleted(i));
+                writeString(out, text.getInserted(i));
+                end = text.getOffset(i) + text.getDeleted(i).length();
+            }
+        }
+        for (long timestamp : delta.getTimestamps()) writeVarLong(out, timestamp);
+    }
+
+    /**
+     * Reads a note delta written by {@link #writeDelta(ByteArrayOutputStream, NoteDelta)}.
+     *
+     * @param in The reader.
+     * @return The delta.
+     */
+    private static NoteDelta readDelta(Reader in) {
+        int noteId = (int) in.readVarLong();
+        int changed = in.readByte();
+        String[] oldValues = new String[NoteDelta.FIELD_COUNT];
+        String[] newValues = new String[NoteDelta.FIELD_COUNT];
+        for (int field = 0; field < NoteDelta.FIELD_COUNT; field++) {
+            if ((changed & (1 << field)) == 0) continue;
+            oldValues[field] = in.readString();
+            newValues[field] = in.readString();
+        }
+
+        TextDelta text = null;
+        if (in.readByte() != 0) {
+            int count = in.readLength();
+            int[] offsets = new int[count];
+            String[] deleted = new String[count];
+            String[] inserted = new String[count];
+            int end = 0;
+            for (int i = 0; i < count; i++) {
+                offsets[i] = end + in.readInt();
+                deleted[i] = in.readString();
+                inserted[i] = in.readString();
+                if (deleted[i] == null || inserted[i] == null) {
+                    throw new IllegalArgumentException("Malformed text delta in command data");
+                }
+                end = offsets[i] + deleted[i].length();
+            }
+            text = new TextDelta(offsets, deleted, inserted);
+        }
+        return new NoteDelta(noteId, changed, oldValues, newValues, text,
+                in.readVarLong(), in.readVarLong(), in.readVarLong(), in.readVarLong());
+    }
+
+    /**
+     * Writes a length-prefixed byte array.
+     *
+     * @param out   The stream to write to.
+     * @param bytes The bytes.
+     */
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes a nullable string as its UTF-8 length plus one, then its bytes.
+     *
+     * @param out  The stream to write to.
+     * @param text The string, may be null.
+     */
+    private static void writeString(ByteArrayOutputStream out, String text) {
+        if (text == null) {
+            out.write(0);
+            return;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, utf8.length + 1L);
+        out.write(utf8, 0, utf8.length);
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint.
+     *
+     * @param out   The stream to write to.
+     * @param value The value, treated as unsigned.
+     */
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Cursor over encoded bytes that reports malformed data as {@link IllegalArgumentException}.
+     */
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Truncated command data");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("Malformed varint in command data");
+        }
+
+        int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > bytes.length - position) {
+                throw new IllegalArgumentException("Truncated command data");
+            }
+            return (int) length;
+        }
+
+        int readInt() {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Malformed command data");
+            }
+            return (int) value;
+        }
+
+        byte[] readBytes() {
+            int length = readLength();
+            byte[] result = new byte[length];
+            System.arraycopy(bytes, position, result, 0, length);
+            position += length;
+            return result;
+        }
+
+        String readString() {
+            long length = readVarLong() - 1;
+            if (length == -1) return null;
+            if (length < 0 || length > bytes.length - position) {
+                throw new IllegalArgumentException("Truncated command data");
+            }
+            String text = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return text;
+        }
+    }
+}
@@ -1,56 +1,445 @@
 package com.android.mynotes.domain.commands;
 
-import java.util.Stack;
+import com.android.mynotes.data.CommandJournal;
+import com.android.mynotes.data.NotesRepository;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 /**
  * Manages the execution and history of {@link Command} objects,
  * enabling undo and redo functionality.
+ * The undo and redo histories share a byte budget measured by {@link Command#getSizeBytes()}.
+ * Once it is exceeded, the oldest undo steps are evicted first, then the furthest redo
+ * steps. The most recent step is always kept, so a single command larger than the budget
+ * can still be undone.
+ * A command executed shortly after the latest one may be merged into it through
+ * {@link Command#mergeWith(Command)}, e.g. consecutive saves of the same note, so that
+ * they are undone in one step; {@link #executeBatch(CompositeCommand)} runs several
+ * commands as one step as well.
+ * Once a {@link CommandJournal} is attached, every change to the history is also written
+ * to it, so the history survives process death. Only the newest steps are held in memory:
+ * entries evicted by the budget stay in the journal, and pages of older steps are read
+ * back in the background when few are left to undo or redo, rather than all at startup.
+ * Every operation returns as soon as its writes are queued, with a future completed once
+ * they land. The writes of all commands go through the repository's single write queue in
+ * the order the operations were called, so a redo can never overtake the undo before it.
  */
 public class CommandInvoker {
 
+    /**
+     * Default byte budget shared by the undo and redo histories.
+     */
+    public static final long DEFAULT_MAX_HISTORY_BYTES = 4L * 1024 * 1024;
+
+    /**
+     * Default time after the latest command during which the next one may be merged into it.
+     */
+    public static final long DEFAULT_COALESCE_WINDOW_MILLIS = 3000;
+
     /**
      * Holds the history of executed commands.
-     * The most recent command is at the top of the stack.
+     * The most recent command is at the head of the deque.
      */
-    private static final Stack<Command> commandHistory = new Stack<>();
+    private static final Deque<Entry> commandHistory = new ArrayDeque<>();
 
     /**
      * Holds commands that have been undone, allowing them to be redone.
-     * The most recent undone command is at the top of the stack.
+     * The most recent undone command is at the head of the deque.
+     */
+    private static final Deque<Entry> redoStack = new ArrayDeque<>();
+
+    private static long maxHistoryBytes = DEFAULT_MAX_HISTORY_BYTES;
+    private static long historyBytes;
+    private static long evictedCount;
+    private static long coalesceWindowMillis = DEFAULT_COALESCE_WINDOW_MILLIS;
+
+    /**
+     * Supplies the time compared against the coalescing window.
+     */
+    private static LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * Number of steps read from the journal at once.
+     */
+    private static final int JOURNAL_PAGE_SIZE = 16;
+
+    /**
+     * A page is read from the journal when fewer steps than this are left in memory.
+     */
+    private static final int PREFETCH_THRESHOLD = 4;
+
+    private static CommandJournal journal;
+    private static NotesRepository journalRepository;
+    private static boolean moreDoneInJournal;
+    private static boolean moreUndoneInJournal;
+    private static boolean loadingDone;
+    private static boolean loadingUndone;
+
+    /**
+     * Incremented whenever the done or undone steps of the journal change other than by a
+     * load. Pages are read concurrently with the writes queued after them, so a page
+     * requested before a change is dropped instead of being added out of order.
      */
-    private static final Stack<Command> redoStack = new Stack<>();
+    private static int doneVersion;
+    private static int undoneVersion;
+
+    /**
+     * Attaches the persistent journal of a repository, and starts reading back the latest
+     * steps recorded before the process started. Must be called before the first command,
+     * once per process, e.g. when the application starts.
+     *
+     * @param repository The repository whose {@link CommandJournal} records the history.
+     */
+    public static synchronized void attachJournal(NotesRepository repository) {
+        CommandJournal commandJournal = repository.getCommandJournal();
+        if (journal == commandJournal) return;
+        journal = commandJournal;
+        journalRepository = repository;
+        moreDoneInJournal = true;
+        moreUndoneInJournal = true;
+        loadingDone = false;
+        loadingUndone = false;
+        doneVersion++;
+        undoneVersion++;
+        journal.compact(commandHistory.size());
+        prefetch();
+    }
+
+    /**
+     * Forgets the history held in memory, restores the default budget, window and clock, and
+     * detaches the journal, leaving the invoker as a new process finds it. The journal itself
+     * is left untouched.
+     */
+    static synchronized void reset() {
+        commandHistory.clear();
+        redoStack.clear();
+        historyBytes = 0;
+        evictedCount = 0;
+        maxHistoryBytes = DEFAULT_MAX_HISTORY_BYTES;
+        coalesceWindowMillis = DEFAULT_COALESCE_WINDOW_MILLIS;
+        clock = System::currentTimeMillis;
+        journal = null;
+        journalRepository = null;
+        moreDoneInJournal = false;
+        moreUndoneInJournal = false;
+        loadingDone = false;
+        loadingUndone = false;
+        doneVersion++;
+        undoneVersion++;
+    }
 
     /**
      * Executes a given command, adds it to the history, and clears the redo stack.
+     * If the latest command ran within the coalescing window and nothing was undone since,
+     * the command is merged into it instead of adding a step.
+     * The oldest history entries are evicted if the byte budget is exceeded.
      *
      * @param command The {@link Command} to be executed.
+     * @return A future completed once the command's writes have been committed.
      */
-    public static void executeCommand(Command command) {
-        command.execute();
-        commandHistory.push(command);
-        redoStack.clear();
+    public static synchronized CompletableFuture<Void> executeCommand(Command command) {
+        long now = clock.getAsLong();
+        Entry latest = commandHistory.peek();
+        Command merged = null;
+        if (latest != null && redoStack.isEmpty() && now - latest.executedAt <= coalesceWindowMillis) {
+            // Merged before executing, while the command still holds what it is about to write
+            merged = latest.command.mergeWith(command);
+        }
+
+        CompletableFuture<Void> completion = command.execute();
+        if (merged != null) {
+            commandHistory.pop();
+            historyBytes -= latest.sizeBytes;
+            record(merged, now, true);
+        } else {
+            record(command, now, false);
+        }
+        return completion;
+    }
+
+    /**
+     * Executes a group of commands as a single undo step, writing them in one transaction.
+     * A group is never merged with other commands.
+     *
+     * @param batch The commands to execute together.
+     * @return A future completed once the batch has been committed.
+     */
+    public static synchronized CompletableFuture<Void> executeBatch(CompositeCommand batch) {
+        if (batch.getCommands().isEmpty()) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> completion = batch.execute();
+        record(batch, clock.getAsLong(), false);
+        return completion;
     }
 
     /**
      * Undoes the most recently executed command, if any, and moves it to the redo stack.
+     * Steps evicted from memory are read back from the journal in the background; if none
+     * are left in memory while they are being read, nothing is undone.
+     *
+     * @return A future completed once the reverting writes have been committed,
+     * or a completed future if there is nothing to undo.
      */
-    public static void undo() {
+    public static synchronized CompletableFuture<Void> undo() {
+        CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
         if (!commandHistory.isEmpty()) {
-            Command command = commandHistory.pop();
-            command.undo();
-            redoStack.push(command);
+            Entry entry = commandHistory.pop();
+            completion = entry.command.undo();
+            redoStack.push(entry);
+            if (journal != null) {
+                journal.markUndone();
+                doneVersion++;
+                undoneVersion++;
+            }
         }
+        prefetch();
+        return completion;
     }
 
     /**
      * Redoes the most recently undone command, if any,
      * moving it back to the command history.
+     * Steps evicted from memory are read back from the journal in the background; if none
+     * are left in memory while they are being read, nothing is redone.
+     *
+     * @return A future completed once the writes have been committed,
+     * or a completed future if there is nothing to redo.
      */
-    public static void redo() {
+    public static synchronized CompletableFuture<Void> redo() {
+        CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
         if (!redoStack.isEmpty()) {
-            Command command = redoStack.pop();
-            command.execute();
-            commandHistory.push(command);
+            Entry entry = redoStack.pop();
+            completion = entry.command.execute();
+            commandHistory.push(entry);
+            if (journal != null) {
+                journal.markRedone();
+                doneVersion++;
+                undoneVersion++;
+            }
+        }
+        prefetch();
+        return completion;
+    }
+
+    /**
+     * Sets the byte budget shared by the undo and redo histories,
+     * evicting the oldest entries right away if it is now exceeded.
+     *
+     * @param maxBytes The budget in bytes, as estimated by {@link Command#getSizeBytes()}.
+     */
+    public static synchronized void setMaxHistoryBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes < 0: " + maxBytes);
+        }
+        maxHistoryBytes = maxBytes;
+        trimToBudget();
+    }
+
+    /**
+     * Sets how long after a command the next one may still be merged into it.
+     *
+     * @param windowMillis The window in milliseconds, 0 to stop merging commands.
+     */
+    public static synchronized void setCoalesceWindowMillis(long windowMillis) {
+        coalesceWindowMillis = windowMillis;
+    }
+
+    /**
+     * Replaces the clock compared against the coalescing window, so tests can step through it.
+     *
+     * @param millis Supplies the current time in milliseconds.
+     */
+    static synchronized void setClock(LongSupplier millis) {
+        clock = millis;
+    }
+
+    /**
+     * Retrieves the byte budget shared by the undo and redo histories.
+     *
+     * @return The budget in bytes.
+     */
+    public static synchronized long getMaxHistoryBytes() {
+        return maxHistoryBytes;
+    }
+
+    /**
+     * Retrieves the estimated size of every command currently kept for undo or redo.
+     *
+     * @return The retained size in bytes.
+     */
+    public static synchronized long getHistoryBytes() {
+        return historyBytes;
+    }
+
+    /**
+     * Retrieves the number of steps that can currently be undone.
+     *
+     * @return The undo history length.
+     */
+    public static synchronized int getUndoCount() {
+        return commandHistory.size();
+    }
+
+    /**
+     * Retrieves the number of steps that can currently be redone.
+     *
+     * @return The redo history length.
+     */
+    public static synchronized int getRedoCount() {
+        return redoStack.size();
+    }
+
+    /**
+     * Retrieves the number of entries evicted to stay within the byte budget.
+     *
+     * @return The eviction count since the process started.
+     */
+    public static synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * Adds an executed command to the history, clears the redo stack and applies the budget,
+     * then records the step in the journal.
+     *
+     * @param command        The executed command.
+     * @param executedAt     When it was executed.
+     * @param replacesLatest Whether the command was merged from the latest journal step.
+     */
+    private static void record(Command command, long executedAt, boolean replacesLatest) {
+        for (Entry entry : redoStack) historyBytes -= entry.sizeBytes;
+        redoStack.clear();
+        Entry entry = new Entry(command, executedAt);
+        commandHistory.push(entry);
+        historyBytes += entry.sizeBytes;
+        trimToBudget();
+
+        if (journal != null) {
+            // Encoded once the command's own writes have run, e.g. when a new note has its ID
+            Supplier<byte[]> payload = () -> CommandCodec.encode(command);
+            if (replacesLatest) {
+                journal.replaceLatest(payload, commandHistory.size());
+            } else {
+                journal.append(payload, commandHistory.size());
+            }
+            // The journal discards its undone steps too
+            moreUndoneInJournal = false;
+            doneVersion++;
+            undoneVersion++;
+        }
+    }
+
+    /**
+     * Starts reading the next page of steps from the journal for each history
+     * that is running low in memory and has more steps in the journal.
+     */
+    private static void prefetch() {
+        if (journal == null) return;
+        if (moreDoneInJournal && !loadingDone && commandHistory.size() < PREFETCH_THRESHOLD) {
+            loadingDone = true;
+            int version = doneVersion;
+            journal.loadDone(commandHistory.size(), JOURNAL_PAGE_SIZE)
+                    .whenComplete((payloads, error) -> onPageLoaded(true, version, payloads, error));
+        }
+        if (moreUndoneInJournal && !loadingUndone && redoStack.size() < PREFETCH_THRESHOLD) {
+            loadingUndone = true;
+            int version = undoneVersion;
+            journal.loadUndone(redoStack.size(), JOURNAL_PAGE_SIZE)
+                    .whenComplete((payloads, error) -> onPageLoaded(false, version, payloads, error));
+        }
+    }
+
+    /**
+     * Adds a page read from the journal beneath the steps held in memory.
+     * A step that cannot be decoded ends the history there.
+     *
+     * @param done     Whether the page holds done steps rather than undone ones.
+     * @param version  The version of the journal-only steps when the page was requested.
+     * @param payloads The encoded steps, the nearest first.
+     * @param error    The failure reading the page, or null.
+     */
+    private static synchronized void onPageLoaded(boolean done, int version, List<byte[]> payloads,
+                                                  Throwable error) {
+        if (done) {
+            loadingDone = false;
+        } else {
+            loadingUndone = false;
+        }
+        if (version != (done ? doneVersion : undoneVersion)) {
+            // The steps beneath memory changed while the page was read
+            prefetch();
+            return;
+        }
+
+        boolean more = error == null && payloads.size() == JOURNAL_PAGE_SIZE;
+        if (error == null) {
+            Deque<Entry> history = done ? commandHistory : redoStack;
+            for (byte[] payload : payloads) {
+                Command command;
+                try {
+                    command = CommandCodec.decode(payload, journalRepository);
+                } catch (IllegalArgumentException e) {
+                    more = false;
+                    break;
+                }
+                Entry entry = new Entry(command, 0);
+                history.addLast(entry);
+                historyBytes += entry.sizeBytes;
+            }
+        }
+        if (done) {
+            moreDoneInJournal = more;
+        } else {
+            moreUndoneInJournal = more;
+        }
+        trimToBudget();
+    }
+
+    /**
+     * Evicts the oldest undo entries, then the furthest redo entries,
+     * until the histories fit the budget or a single entry is left.
+     * Evicted steps stay in the journal, if any, and can be read back later.
+     */
+    private static void trimToBudget() {
+        while (historyBytes > maxHistoryBytes && commandHistory.size() + redoStack.size() > 1) {
+            Entry evicted;
+            if (commandHistory.isEmpty()) {
+                evicted = redoStack.removeLast();
+                moreUndoneInJournal = true;
+                undoneVersion++;
+            } else {
+                evicted = commandHistory.removeLast();
+                moreDoneInJournal = true;
+                doneVersion++;
+            }
+            historyBytes -= evicted.sizeBytes;
+            evictedCount++;
+        }
+    }
+
+    /**
+     * A history entry remembering the size its command was accounted for,
+     * so the running total stays exact even if the estimate changes.
+     */
+    private static final class Entry {
+        final Command command;
+        final long sizeBytes;
+        final long executedAt;
+
+        /**
+         * Constructs an entry, measuring the command once.
+         *
+         * @param command    The command kept in the history.
+         * @param executedAt When the command was last executed, for the coalescing window.
+         */
+        Entry(Command command, long executedAt) {
+            this.command = command;
+            this.sizeBytes = command.getSizeBytes();
+            this.executedAt = executedAt;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package com.android.mynotes.domain.commands;
+
+import com.android.mynotes.domain.entities.Note;
+
+/**
+ * Estimates the heap retained by the notes a command keeps for undo and redo.
+ * Estimates are conservative (two bytes per char) and cheap: they only read string lengths.
+ */
+final class CommandSizes {
+
+    /**
+     * Estimated size of a command object and its references.
+     */
+    static final long COMMAND_OVERHEAD = 32;
+
+    private static final long NOTE_OVERHEAD = 64;
+    private static final long STRING_OVERHEAD = 40;
+
+    private CommandSizes() { }
+
+    /**
+     * Estimates the bytes retained by a note and its strings.
+     *
+     * @param note The note, may be null.
+     * @return The estimated retained size in bytes.
+     */
+    static long of(Note note) {
+        if (note == null) return 0;
+        return NOTE_OVERHEAD
+                + of(note.getTitle())
+                + of(note.getDateTime())
+                + of(note.getSubtitle())
+                + of(note.getNoteText())
+                + of(note.getImagePath())
+                + of(note.getColor())
+                + of(note.getWebLink());
+    }
+
+    /**
+     * Estimates the bytes retained by a string.
+     *
+     * @param text The string, may be null.
+     * @return The estimated retained size in bytes.
+     */
+    static long of(String text) {
+        return text == null ? 0 : STRING_OVERHEAD + 2L * text.length();
+    }
+}
@@ -0,0 +1,73 @@
+package com.android.mynotes.domain.commands;
+
+import com.android.mynotes.data.NotesRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A command grouping several commands into a single undo step, e.g. deleting several notes.
+ * Executes the commands in order and undoes them in reverse order, in both cases collecting
+ * their writes into one repository batch, committed in a single transaction.
+ */
+public class CompositeCommand implements Command {
+
+    private final NotesRepository repository;
+    private final List<Command> commands;
+
+    /**
+     * Constructs a CompositeCommand running the given commands as one.
+     *
+     * @param repository The {@link NotesRepository} the commands write to.
+     * @param commands   The commands, in execution order.
+     */
+    public CompositeCommand(NotesRepository repository, List<? extends Command> commands) {
+        this.repository = repository;
+        this.commands = Collections.unmodifiableList(new ArrayList<>(commands));
+    }
+
+    /**
+     * Executes every command in order, in one write batch.
+     *
+     * @return A future completed once the batch has been committed.
+     */
+    @Override
+    public CompletableFuture<Void> execute() {
+        return repository.runInBatch(() -> {
+            for (Command command : commands) command.execute();
+        });
+    }
+
+    /**
+     * Undoes every command in reverse order, in one write batch.
+     *
+     * @return A future completed once the batch has been committed.
+     */
+    @Override
+    public CompletableFuture<Void> undo() {
+        return repository.runInBatch(() -> {
+            for (int i = commands.size() - 1; i >= 0; i--) commands.get(i).undo();
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSizeBytes() {
+        long size = CommandSizes.COMMAND_OVERHEAD;
+        for (Command command : commands) size += command.getSizeBytes();
+        return size;
+    }
+
+    /**
+     * Retrieves the grouped commands.
+     *
+     * @return The commands, in execution order.
+     */
+    public List<Command> getCommands() {
+        return commands;
+    }
+}
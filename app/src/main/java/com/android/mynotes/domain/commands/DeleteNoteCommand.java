@@ -3,6 +3,8 @@ package com.android.mynotes.domain.commands;
 import com.android.mynotes.domain.entities.Note;
 import com.android.mynotes.data.NotesRepository;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * A concrete command implementation for deleting a note.
  * Executes by removing the note from the repository and
@@ -27,18 +29,39 @@ public class DeleteNoteCommand implements Command {
     /**
      * Executes the delete operation on the specified note.
      * Removes the note from the repository.
+     *
+     * @return A future completed once the write has been committed.
      */
     @Override
-    public void execute() {
-        repository.deleteNote(note);
+    public CompletableFuture<Void> execute() {
+        return repository.deleteNote(note);
     }
 
     /**
      * Undoes the delete operation by re-adding the note
      * to the repository.
+     *
+     * @return A future completed once the write has been committed.
+     */
+    @Override
+    public CompletableFuture<Void> undo() {
+        return repository.addNote(note);
+    }
+
+    /**
+     * Retrieves the note the command is about.
+     *
+     * @return The note.
+     */
+    Note getNote() {
+        return note;
+    }
+
+    /**
+     * {@inheritDoc}
      */
     @Override
-    public void undo() {
-        repository.addNote(note);
+    public long getSizeBytes() {
+        return CommandSizes.COMMAND_OVERHEAD + CommandSizes.of(note);
     }
-}
\ No newline at end of file
+}
@@ -3,16 +3,39 @@ package com.android.mynotes.domain.commands;
 import com.android.mynotes.domain.entities.Note;
 import com.android.mynotes.data.NotesRepository;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * A concrete command implementation for editing an existing note.
  * Executes by adding (or updating) the note with new data,
  * and undoes by reverting to the old note data.
+ * Only a {@link NoteDelta} of the edit is kept in the history: undo and redo apply it
+ * backward or forward to the note as stored, so a one-word edit to a long note retains
+ * a few bytes rather than two copies of the note.
+ * The delta is computed on first use rather than by the constructor, which runs on the
+ * main thread: the journal encodes the command and undo applies the delta on the write
+ * thread, so a long diff never delays the UI.
  */
 public class EditNoteCommand implements Command {
 
     private final NotesRepository repository;
-    private final Note oldNote;
-    private final Note newNote;
+    private final int noteId;
+
+    /**
+     * The changes made by the edit, null until computed from {@link #oldNote} and {@link #newNote}.
+     */
+    private NoteDelta delta;
+
+    /**
+     * Both versions of the note, kept only until the delta is computed.
+     */
+    private Note oldNote;
+    private Note newNote;
+
+    /**
+     * Whether the updated note still has to be stored by the first execution.
+     */
+    private boolean pending;
 
     /**
      * Constructs an EditNoteCommand with the specified repository,
@@ -23,26 +46,141 @@ public class EditNoteCommand implements Command {
      * @param newNote    The updated {@link Note} after changes.
      */
     public EditNoteCommand(NotesRepository repository, Note oldNote, Note newNote) {
+        this(repository, oldNote, newNote, true);
+    }
+
+    /**
+     * Constructs an EditNoteCommand between two versions of a note, without computing the delta yet.
+     *
+     * @param repository The {@link NotesRepository} handling data persistence.
+     * @param oldNote    The {@link Note} before the edit.
+     * @param newNote    The {@link Note} after the edit.
+     * @param pending    Whether {@code newNote} still has to be stored.
+     */
+    private EditNoteCommand(NotesRepository repository, Note oldNote, Note newNote, boolean pending) {
         this.repository = repository;
+        this.noteId = newNote.getId();
         this.oldNote = oldNote;
         this.newNote = newNote;
+        this.pending = pending;
     }
 
     /**
-     * Executes the edit operation by adding (or updating) the new note.
-     * Depending on repository implementation, this may replace the old note.
+     * Constructs an EditNoteCommand from an already computed delta, for an edit that is
+     * already stored.
+     *
+     * @param repository The {@link NotesRepository} handling data persistence.
+     * @param delta      The changes made by the edit.
+     */
+    EditNoteCommand(NotesRepository repository, NoteDelta delta) {
+        this.repository = repository;
+        this.noteId = delta.getNoteId();
+        this.delta = delta;
+    }
+
+    /**
+     * Executes the edit operation. The first execution stores the new note as given;
+     * a redo applies the delta to the stored note.
+     *
+     * @return A future completed once the write has been committed.
      */
     @Override
-    public void execute() {
-        repository.addNote(newNote);
+    public synchronized CompletableFuture<Void> execute() {
+        if (pending) {
+            Note note = newNote;
+            pending = false;
+            if (delta != null) newNote = null;
+            return repository.addNote(note);
+        }
+        return repository.updateNote(noteId, note -> getDelta().applyForward(note));
+    }
+
+    /**
+     * Undoes the edit operation by applying the delta backward to the stored note.
+     *
+     * @return A future completed once the write has been committed.
+     */
+    @Override
+    public CompletableFuture<Void> undo() {
+        return repository.updateNote(noteId, note -> getDelta().applyBackward(note));
+    }
+
+    /**
+     * Combines this edit with a following, not yet executed edit of the same note into one
+     * edit from the note before this one to the note after the next one.
+     * No diff runs here: the combined delta is computed on first use, like any other.
+     *
+     * @param next The command about to be executed.
+     * @return The combined edit, or null if {@code next} does not continue this edit.
+     */
+    @Override
+    public Command mergeWith(Command next) {
+        if (!(next instanceof EditNoteCommand)) return null;
+        EditNoteCommand edit = (EditNoteCommand) next;
+        Note nextOld;
+        Note nextNew;
+        synchronized (edit) {
+            if (!edit.pending || edit.noteId != noteId) return null;
+            nextNew = edit.newNote;
+            nextOld = edit.oldNote != null ? edit.oldNote : edit.delta.applyBackward(nextNew);
+        }
+        Note before;
+        synchronized (this) {
+            if (delta == null) {
+                // The next edit must start from the note this one produced
+                if (!NoteDelta.sameFields(newNote, nextOld)) return null;
+                before = oldNote;
+            } else {
+                try {
+                    before = delta.applyBackward(nextOld);
+                } catch (IllegalStateException e) {
+                    return null;
+                }
+            }
+        }
+        return new EditNoteCommand(repository, before, nextNew, false);
+    }
+
+    /**
+     * Retrieves the ID of the edited note.
+     *
+     * @return The note ID.
+     */
+    int getNoteId() {
+        return noteId;
+    }
+
+    /**
+     * Retrieves the changes made by the edit, computing them on the first call and
+     * releasing both versions of the note.
+     *
+     * @return The delta.
+     */
+    synchronized NoteDelta getDelta() {
+        if (delta == null) {
+            delta = NoteDelta.between(oldNote, newNote);
+            oldNote = null;
+            if (!pending) newNote = null;
+        }
+        return delta;
+    }
+
+    /**
+     * Retrieves the updated note while it has not been stored yet.
+     *
+     * @return The updated note, or null once the command has been executed.
+     */
+    synchronized Note getPendingNote() {
+        return pending ? newNote : null;
     }
 
     /**
-     * Undoes the edit operation by restoring the old note.
-     * Depending on repository implementation, this may overwrite the new note.
+     * {@inheritDoc}
+     * Before the delta is computed, both versions of the note are what the command retains.
      */
     @Override
-    public void undo() {
-        repository.addNote(oldNote);
+    public synchronized long getSizeBytes() {
+        long size = CommandSizes.COMMAND_OVERHEAD + CommandSizes.of(oldNote) + CommandSizes.of(newNote);
+        return delta != null ? size + delta.getSizeBytes() : size;
     }
-}
\ No newline at end of file
+}
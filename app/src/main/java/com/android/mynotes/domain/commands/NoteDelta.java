@@ -0,0 +1,283 @@
+package com.android.mynotes.domain.commands;
+
+import com.android.mynotes.domain.entities.Note;
+
+import java.util.Objects;
+
+/**
+ * The changes made to one note by an edit, stored field by field so that it retains only
+ * what changed: the old and new values of the short fields that differ, a {@link TextDelta}
+ * for the note text, and both timestamps. Applied forward it turns the note as it was
+ * before the edit into the note after it, and backward the other way round.
+ * Every changed value is checked against the note it is applied to, so a delta is never
+ * applied over a version of the note it was not computed from.
+ */
+public final class NoteDelta {
+
+    static final int TITLE = 0;
+    static final int DATE_TIME = 1;
+    static final int SUBTITLE = 2;
+    static final int NOTE_TEXT = 3;
+    static final int IMAGE_PATH = 4;
+    static final int COLOR = 5;
+    static final int WEB_LINK = 6;
+    static final int FIELD_COUNT = 7;
+
+    private static final long DELTA_OVERHEAD = 80;
+
+    private final int noteId;
+    private final int changedFields;
+    private final String[] oldValues;
+    private final String[] newValues;
+    private final TextDelta noteText;
+    private final long oldCreatedAt;
+    private final long newCreatedAt;
+    private final long oldUpdatedAt;
+    private final long newUpdatedAt;
+
+    /**
+     * Constructs a delta from its parts.
+     *
+     * @param noteId        The ID of the edited note.
+     * @param changedFields A bit per field whose old and new values are stored.
+     * @param oldValues     The old value of each changed field, null elsewhere.
+     * @param newValues     The new value of each changed field, null elsewhere.
+     * @param noteText      The delta of the note text, or null if stored as a changed field or unchanged.
+     * @param oldCreatedAt  The creation time before the edit.
+     * @param newCreatedAt  The creation time after the edit.
+     * @param oldUpdatedAt  The update time before the edit.
+     * @param newUpdatedAt  The update time after the edit.
+     */
+    NoteDelta(int noteId, int changedFields, String[] oldValues, String[] newValues, TextDelta noteText,
+              long oldCreatedAt, long newCreatedAt, long oldUpdatedAt, long newUpdatedAt) {
+        this.noteId = noteId;
+        this.changedFields = changedFields;
+        this.oldValues = oldValues;
+        this.newValues = newValues;
+        this.noteText = noteText;
+        this.oldCreatedAt = oldCreatedAt;
+        this.newCreatedAt = newCreatedAt;
+        this.oldUpdatedAt = oldUpdatedAt;
+        this.newUpdatedAt = newUpdatedAt;
+    }
+
+    /**
+     * Computes the delta turning {@code oldNote} into {@code newNote}.
+     *
+     * @param oldNote The note before the edit.
+     * @param newNote The note after the edit, with the same ID.
+     * @return The delta between the two notes.
+     */
+    public static NoteDelta between(Note oldNote, Note newNote) {
+        int changedFields = 0;
+        String[] oldValues = new String[FIELD_COUNT];
+        String[] newValues = new String[FIELD_COUNT];
+        TextDelta noteText = null;
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            String oldValue = get(oldNote, field);
+            String newValue = get(newNote, field);
+            if (Objects.equals(oldValue, newValue)) continue;
+            if (field == NOTE_TEXT && oldValue != null && newValue != null) {
+                noteText = TextDelta.between(oldValue, newValue);
+            } else {
+                changedFields |= 1 << field;
+                oldValues[field] = oldValue;
+                newValues[field] = newValue;
+            }
+        }
+        return new NoteDelta(newNote.getId(), changedFields, oldValues, newValues, noteText,
+                oldNote.getCreatedAt(), newNote.getCreatedAt(),
+                oldNote.getUpdatedAt(), newNote.getUpdatedAt());
+    }
+
+    /**
+     * Retrieves the ID of the edited note.
+     *
+     * @return The note ID.
+     */
+    public int getNoteId() {
+        return noteId;
+    }
+
+    /**
+     * Tells whether a field is stored with its old and new values.
+     *
+     * @param field The field constant.
+     * @return true if the field changed and is not covered by the note text delta.
+     */
+    boolean isChanged(int field) {
+        return (changedFields & (1 << field)) != 0;
+    }
+
+    /**
+     * Retrieves the value of a changed field before the edit.
+     *
+     * @param field The field constant.
+     * @return The old value, null if unchanged.
+     */
+    String getOldValue(int field) {
+        return oldValues[field];
+    }
+
+    /**
+     * Retrieves the value of a changed field after the edit.
+     *
+     * @param field The field constant.
+     * @return The new value, null if unchanged.
+     */
+    String getNewValue(int field) {
+        return newValues[field];
+    }
+
+    /**
+     * Retrieves the delta of the note text.
+     *
+     * @return The text delta, or null if the text is unchanged or stored as a changed field.
+     */
+    TextDelta getNoteTextDelta() {
+        return noteText;
+    }
+
+    /**
+     * Retrieves the timestamps before and after the edit.
+     *
+     * @return The old and new creation time, then the old and new update time.
+     */
+    long[] getTimestamps() {
+        return new long[] {oldCreatedAt, newCreatedAt, oldUpdatedAt, newUpdatedAt};
+    }
+
+    /**
+     * Rebuilds the note after the edit from the note before it.
+     *
+     * @param oldNote The note before the edit.
+     * @return A new note holding the values after the edit.
+     * @throws IllegalStateException if {@code oldNote} is not the version the delta was computed from.
+     */
+    public Note applyForward(Note oldNote) {
+        return apply(oldNote, oldValues, newValues, newCreatedAt, newUpdatedAt, true);
+    }
+
+    /**
+     * Rebuilds the note before the edit from the note after it.
+     *
+     * @param newNote The note after the edit.
+     * @return A new note holding the values before the edit.
+     * @throws IllegalStateException if {@code newNote} is not the version the delta was computed to.
+     */
+    public Note applyBackward(Note newNote) {
+        return apply(newNote, newValues, oldValues, oldCreatedAt, oldUpdatedAt, false);
+    }
+
+    /**
+     * Estimates the heap retained by the delta.
+     *
+     * @return The estimated retained size in bytes.
+     */
+    public long getSizeBytes() {
+        long size = DELTA_OVERHEAD;
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            size += CommandSizes.of(oldValues[field]) + CommandSizes.of(newValues[field]);
+        }
+        return noteText != null ? size + noteText.getSizeBytes() : size;
+    }
+
+    /**
+     * Applies the delta in one direction.
+     *
+     * @param from      The note to start from.
+     * @param expected  The values the changed fields must hold in {@code from}.
+     * @param values    The values the changed fields take.
+     * @param createdAt The creation time to set.
+     * @param updatedAt The update time to set.
+     * @param forward   Whether the note text delta is applied forward.
+     * @return A new note with the delta applied.
+     */
+    private Note apply(Note from, String[] expected, String[] values, long createdAt, long updatedAt,
+                       boolean forward) {
+        Note note = new Note.Builder()
+                .setId(from.getId())
+                .setTitle(from.getTitle())
+                .setDateTime(from.getDateTime())
+                .setSubtitle(from.getSubtitle())
+                .setNoteText(from.getNoteText())
+                .setImagePath(from.getImagePath())
+                .setColor(from.getColor())
+                .setWebLink(from.getWebLink())
+                .setCreatedAt(createdAt)
+                .setUpdatedAt(updatedAt)
+                .build();
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            if ((changedFields & (1 << field)) == 0) continue;
+            if (!Objects.equals(get(from, field), expected[field])) {
+                throw new IllegalStateException("Note " + noteId + " does not match the delta");
+            }
+            set(note, field, values[field]);
+        }
+        if (noteText != null) {
+            if (from.getNoteText() == null) {
+                throw new IllegalStateException("Note " + noteId + " does not match the delta");
+            }
+            note.setNoteText(forward
+                    ? noteText.applyForward(from.getNoteText())
+                    : noteText.applyBackward(from.getNoteText()));
+        }
+        return note;
+    }
+
+    /**
+     * Tells whether two notes hold the same values in every field a delta checks,
+     * without diffing their text.
+     *
+     * @param first  A note.
+     * @param second Another note.
+     * @return true if both notes have the same ID and text fields.
+     */
+    static boolean sameFields(Note first, Note second) {
+        if (first.getId() != second.getId()) return false;
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            if (!Objects.equals(get(first, field), get(second, field))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a text field of a note.
+     *
+     * @param note  The note.
+     * @param field The field constant.
+     * @return The value of the field.
+     */
+    static String get(Note note, int field) {
+        switch (field) {
+            case TITLE: return note.getTitle();
+            case DATE_TIME: return note.getDateTime();
+            case SUBTITLE: return note.getSubtitle();
+            case NOTE_TEXT: return note.getNoteText();
+            case IMAGE_PATH: return note.getImagePath();
+            case COLOR: return note.getColor();
+            case WEB_LINK: return note.getWebLink();
+            default: throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    /**
+     * Writes a text field of a note.
+     *
+     * @param note  The note.
+     * @param field The field constant.
+     * @param value The value to set.
+     */
+    static void set(Note note, int field, String value) {
+        switch (field) {
+            case TITLE: note.setTitle(value); break;
+            case DATE_TIME: note.setDateTime(value); break;
+            case SUBTITLE: note.setSubtitle(value); break;
+            case NOTE_TEXT: note.setNoteText(value); break;
+            case IMAGE_PATH: note.setImagePath(value); break;
+            case COLOR: note.setColor(value); break;
+            case WEB_LINK: note.setWebLink(value); break;
+            default: throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package com.android.mynotes.domain.commands;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The differences between two versions of a text, stored as replaced regions (hunks)
+ * of the old text, that can rebuild either version from the other.
+ * Hunks are found with the linear space variant of Myers' O((N+M)D) diff, after stripping
+ * the common prefix and suffix, so a typical edit costs a scan of the text and nothing more. When the two
+ * versions differ too much for the diff to stay cheap, the changed middle is stored
+ * as a single hunk instead.
+ */
+public final class TextDelta {
+
+    /**
+     * Limits the diff to about this many steps. Past it, the changed middle is stored as
+     * a single hunk, which is correct but larger.
+     */
+    static final long MAX_DIFF_WORK = 4_000_000;
+
+    /**
+     * Hunks separated by fewer unchanged chars are merged, since a hunk costs more than the gap.
+     */
+    private static final int MERGE_GAP = 8;
+
+    private static final long HUNK_OVERHEAD = 16;
+
+    private final int[] offsets;
+    private final String[] deleted;
+    private final String[] inserted;
+
+    /**
+     * Constructs a delta from its hunks, ordered by offset.
+     *
+     * @param offsets  The start of each hunk in the old text.
+     * @param deleted  The text each hunk removes from the old text.
+     * @param inserted The text each hunk puts in its place.
+     */
+    TextDelta(int[] offsets, String[] deleted, String[] inserted) {
+        this.offsets = offsets;
+        this.deleted = deleted;
+        this.inserted = inserted;
+    }
+
+    /**
+     * Computes the delta turning {@code oldText} into {@code newText}.
+     *
+     * @param oldText The old version.
+     * @param newText The new version.
+     * @return The delta between the two versions.
+     */
+    public static TextDelta between(String oldText, String newText) {
+        int prefix = 0;
+        int maxPrefix = Math.min(oldText.length(), newText.length());
+        while (prefix < maxPrefix && oldText.charAt(prefix) == newText.charAt(prefix)) prefix++;
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix && oldText.charAt(oldText.length() - 1 - suffix)
+                == newText.charAt(newText.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        String a = oldText.substring(prefix, oldText.length() - suffix);
+        String b = newText.substring(prefix, newText.length() - suffix);
+        if (a.isEmpty() && b.isEmpty()) {
+            return new TextDelta(new int[0], new String[0], new String[0]);
+        }
+        if (!a.isEmpty() && !b.isEmpty()) {
+            List<Hunk> hunks = diff(a, b);
+            if (hunks != null) {
+                return alignToCodePoints(oldText, toDelta(hunks, prefix));
+            }
+        }
+        return alignToCodePoints(oldText, new TextDelta(new int[] {prefix}, new String[] {a}, new String[] {b}));
+    }
+
+    /**
+     * Tells whether both versions are equal.
+     *
+     * @return true if the delta has no hunk.
+     */
+    public boolean isEmpty() {
+        return offsets.length == 0;
+    }
+
+    /**
+     * Rebuilds the new version from the old one.
+     *
+     * @param oldText The old version.
+     * @return The new version.
+     * @throws IllegalStateException if {@code oldText} is not the text the delta was computed from.
+     */
+    public String applyForward(String oldText) {
+        StringBuilder out = new StringBuilder(Math.max(0, oldText.length() + sizeChange()));
+        int cursor = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            int offset = offsets[i];
+            checkRegion(oldText, offset, deleted[i]);
+            out.append(oldText, cursor, offset).append(inserted[i]);
+            cursor = offset + deleted[i].length();
+        }
+        return out.append(oldText, cursor, oldText.length()).toString();
+    }
+
+    /**
+     * Rebuilds the old version from the new one.
+     *
+     * @param newText The new version.
+     * @return The old version.
+     * @throws IllegalStateException if {@code newText} is not the text the delta was computed to.
+     */
+    public String applyBackward(String newText) {
+        StringBuilder out = new StringBuilder(Math.max(0, newText.length() - sizeChange()));
+        int cursor = 0;
+        int shift = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            int offset = offsets[i] + shift;
+            checkRegion(newText, offset, inserted[i]);
+            out.append(newText, cursor, offset).append(deleted[i]);
+            cursor = offset + inserted[i].length();
+            shift += inserted[i].length() - deleted[i].length();
+        }
+        return out.append(newText, cursor, newText.length()).toString();
+    }
+
+    /**
+     * Estimates the heap retained by the delta.
+     *
+     * @return The estimated retained size in bytes.
+     */
+    public long getSizeBytes() {
+        long size = HUNK_OVERHEAD;
+        for (int i = 0; i < offsets.length; i++) {
+            size += HUNK_OVERHEAD + CommandSizes.of(deleted[i]) + CommandSizes.of(inserted[i]);
+        }
+        return size;
+    }
+
+    /**
+     * Retrieves the number of hunks.
+     *
+     * @return The hunk count.
+     */
+    public int getHunkCount() {
+        return offsets.length;
+    }
+
+    /**
+     * Retrieves the start of a hunk in the old text.
+     *
+     * @param hunk The index of the hunk.
+     * @return The offset in the old text.
+     */
+    public int getOffset(int hunk) {
+        return offsets[hunk];
+    }
+
+    /**
+     * Retrieves the text a hunk removes from the old text.
+     *
+     * @param hunk The index of the hunk.
+     * @return The deleted text.
+     */
+    public String getDeleted(int hunk) {
+        return deleted[hunk];
+    }
+
+    /**
+     * Retrieves the text a hunk puts in the new text.
+     *
+     * @param hunk The index of the hunk.
+     * @return The inserted text.
+     */
+    public String getInserted(int hunk) {
+        return inserted[hunk];
+    }
+
+    /**
+     * Returns how much longer the new version is than the old one.
+     *
+     * @return The length difference, negative if the text shrinks.
+     */
+    private int sizeChange() {
+        int change = 0;
+        for (int i = 0; i < offsets.length; i++) change += inserted[i].length() - deleted[i].length();
+        return change;
+    }
+
+    /**
+     * Checks that {@code text} holds {@code expected} at {@code offset}.
+     *
+     * @param text     The text the delta is applied to.
+     * @param offset   The start of the region.
+     * @param expected The text the region must hold.
+     */
+    private static void checkRegion(String text, int offset, String expected) {
+        if (!text.regionMatches(offset, expected, 0, expected.length())) {
+            throw new IllegalStateException("Text does not match the delta at offset " + offset);
+        }
+    }
+
+    /**
+     * Runs Myers' diff between two non-empty strings in linear space.
+     *
+     * @param a The old text.
+     * @param b The new text.
+     * @return The hunks turning {@code a} into {@code b}, or null if the diff would be too costly.
+     */
+    private static List<Hunk> diff(String a, String b) {
+        Differ differ = new Differ(a, b);
+        return differ.diff(0, a.length(), 0, b.length()) ? differ.hunks : null;
+    }
+
+    /**
+     * Converts the hunks of the changed middle into a delta over the whole text.
+     *
+     * @param hunks  The hunks, relative to the middle.
+     * @param prefix The length of the unchanged prefix.
+     * @return The delta.
+     */
+    private static TextDelta toDelta(List<Hunk> hunks, int prefix) {
+        int[] offsets = new int[hunks.size()];
+        String[] deleted = new String[hunks.size()];
+        String[] inserted = new String[hunks.size()];
+        for (int i = 0; i < hunks.size(); i++) {
+            Hunk hunk = hunks.get(i);
+            offsets[i] = prefix + hunk.start;
+            deleted[i] = hunk.deleted.toString();
+            inserted[i] = hunk.inserted.toString();
+        }
+        return new TextDelta(offsets, deleted, inserted);
+    }
+
+    /**
+     * Widens hunks that start or end inside a surrogate pair to the whole pair, so that no
+     * hunk holds half a character and every hunk survives a round trip through UTF-8.
+     * The char added on either side is unchanged, so it is added to both sides of the hunk.
+     *
+     * @param oldText The old version.
+     * @param delta   The delta to align, modified in place.
+     * @return The same delta.
+     */
+    private static TextDelta alignToCodePoints(String oldText, TextDelta delta) {
+        for (int i = 0; i < delta.offsets.length; i++) {
+            int start = delta.offsets[i];
+            if (start > 0 && Character.isHighSurrogate(oldText.charAt(start - 1))) {
+                String high = oldText.substring(start - 1, start);
+                delta.offsets[i] = start - 1;
+                delta.deleted[i] = high + delta.deleted[i];
+                delta.inserted[i] = high + delta.inserted[i];
+            }
+            int end = delta.offsets[i] + delta.deleted[i].length();
+            if (end < oldText.length() && Character.isLowSurrogate(oldText.charAt(end))) {
+                String low = oldText.substring(end, end + 1);
+                delta.deleted[i] = delta.deleted[i] + low;
+                delta.inserted[i] = delta.inserted[i] + low;
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Finds the edits between two texts with the linear space variant of Myers' diff:
+     * the middle snake of the shortest edit path splits each range in two, and both halves
+     * are diffed recursively. Only two diagonal arrays live at a time, so memory stays
+     * proportional to the length of the texts whatever the number of edits.
+     * The edits are collected into hunks in text order as they are found.
+     */
+    private static final class Differ {
+        private static final long OVER_BUDGET = -1;
+        private static final long NO_COMMON_CHAR = -2;
+
+        final String a;
+        final String b;
+        final List<Hunk> hunks = new ArrayList<>();
+        private long work;
+
+        /**
+         * Constructs a differ.
+         *
+         * @param a The old text.
+         * @param b The new text.
+         */
+        Differ(String a, String b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        /**
+         * Collects the edits turning {@code a[aStart, aEnd)} into {@code b[bStart, bEnd)}.
+         *
+         * @return false if the diff exceeded its work budget.
+         */
+        boolean diff(int aStart, int aEnd, int bStart, int bEnd) {
+            while (aStart < aEnd && bStart < bEnd && a.charAt(aStart) == b.charAt(bStart)) {
+                aStart++;
+                bStart++;
+            }
+            while (aStart < aEnd && bStart < bEnd && a.charAt(aEnd - 1) == b.charAt(bEnd - 1)) {
+                aEnd--;
+                bEnd--;
+            }
+            if (aStart == aEnd) {
+                for (int y = bStart; y < bEnd; y++) insert(aStart, y);
+                return true;
+            }
+            if (bStart == bEnd) {
+                for (int x = aStart; x < aEnd; x++) delete(x);
+                return true;
+            }
+            long split = middleSnake(aStart, aEnd, bStart, bEnd);
+            if (split == OVER_BUDGET) return false;
+            if (split == NO_COMMON_CHAR) {
+                for (int x = aStart; x < aEnd; x++) delete(x);
+                for (int y = bStart; y < bEnd; y++) insert(aEnd, y);
+                return true;
+            }
+            int x = (int) (split >>> 32);
+            int y = (int) split;
+            return diff(aStart, x, bStart, y) && diff(x, aEnd, y, bEnd);
+        }
+
+        /**
+         * Searches the shortest edit path from both ends at once until the two searches overlap.
+         *
+         * @return The point where they met, as the old position in the high 32 bits and the
+         * new position in the low ones, {@link #NO_COMMON_CHAR} if the ranges share no char
+         * on any edit path, or {@link #OVER_BUDGET} if the work budget ran out.
+         */
+        private long middleSnake(int aStart, int aEnd, int bStart, int bEnd) {
+            int n = aEnd - aStart;
+            int m = bEnd - bStart;
+            int maxD = (n + m + 1) / 2;
+            int offset = maxD;
+            int[] forward = new int[2 * maxD + 2];
+            int[] backward = new int[2 * maxD + 2];
+            Arrays.fill(forward, -1);
+            Arrays.fill(backward, -1);
+            forward[offset + 1] = 0;
+            backward[offset + 1] = 0;
+            int delta = n - m;
+            // With an odd delta the paths meet while extending the forward one
+            boolean front = (delta & 1) != 0;
+            int forwardStart = 0;
+            int forwardEnd = 0;
+            int backwardStart = 0;
+            int backwardEnd = 0;
+
+            for (int d = 0; d < maxD; d++) {
+                // Each step visits 2d + 2 diagonals, plus the snakes followed along them
+                work += 2L * d + 2;
+                if (work > MAX_DIFF_WORK) return OVER_BUDGET;
+
+                for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+                    int index = offset + k;
+                    int x = k == -d || (k != d && forward[index - 1] < forward[index + 1])
+                            ? forward[index + 1]
+                            : forward[index - 1] + 1;
+                    int y = x - k;
+                    int snakeStart = x;
+                    while (x < n && y < m && a.charAt(aStart + x) == b.charAt(bStart + y)) {
+                        x++;
+                        y++;
+                    }
+                    work += x - snakeStart;
+                    forward[index] = x;
+                    if (x > n) {
+                        forwardEnd += 2;
+                    } else if (y > m) {
+                        forwardStart += 2;
+                    } else if (front) {
+                        int backwardIndex = offset + delta - k;
+                        if (backwardIndex >= 0 && backwardIndex < backward.length
+                                && backward[backwardIndex] != -1 && x >= n - backward[backwardIndex]) {
+                            return point(aStart + x, bStart + y);
+                        }
+                    }
+                }
+
+                for (int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+                    int index = offset + k;
+                    int x = k == -d || (k != d && backward[index - 1] < backward[index + 1])
+                            ? backward[index + 1]
+                            : backward[index - 1] + 1;
+                    int y = x - k;
+                    int snakeStart = x;
+                    while (x < n && y < m && a.charAt(aEnd - 1 - x) == b.charAt(bEnd - 1 - y)) {
+                        x++;
+                        y++;
+                    }
+                    work += x - snakeStart;
+                    backward[index] = x;
+                    if (x > n) {
+                        backwardEnd += 2;
+                    } else if (y > m) {
+                        backwardStart += 2;
+                    } else if (!front) {
+                        int forwardIndex = offset + delta - k;
+                        if (forwardIndex >= 0 && forwardIndex < forward.length && forward[forwardIndex] != -1) {
+                            int forwardX = forward[forwardIndex];
+                            int forwardY = forwardX - (forwardIndex - offset);
+                            if (forwardX >= n - x) {
+                                return point(aStart + forwardX, bStart + forwardY);
+                            }
+                        }
+                    }
+                }
+            }
+            return NO_COMMON_CHAR;
+        }
+
+        private static long point(int x, int y) {
+            return ((long) x << 32) | y;
+        }
+
+        /**
+         * Records the deletion of {@code a[x]}.
+         */
+        private void delete(int x) {
+            hunkAt(x).deleted.append(a.charAt(x));
+        }
+
+        /**
+         * Records the insertion of {@code b[y]} before {@code a[x]}.
+         */
+        private void insert(int x, int y) {
+            hunkAt(x).inserted.append(b.charAt(y));
+        }
+
+        /**
+         * Returns the hunk an edit at {@code position} belongs to, extending the latest hunk
+         * over the unchanged gap before it when the gap is short.
+         */
+        private Hunk hunkAt(int position) {
+            Hunk hunk = hunks.isEmpty() ? null : hunks.get(hunks.size() - 1);
+            if (hunk != null && position - hunk.end() < MERGE_GAP) {
+                // Unchanged chars between the hunks are both removed and put back
+                CharSequence gap = a.subSequence(hunk.end(), position);
+                hunk.deleted.append(gap);
+                hunk.inserted.append(gap);
+                return hunk;
+            }
+            hunk = new Hunk(position);
+            hunks.add(hunk);
+            return hunk;
+        }
+    }
+
+    /**
+     * A hunk being collected by {@link Differ}.
+     */
+    private static final class Hunk {
+        final int start;
+        final StringBuilder deleted = new StringBuilder();
+        final StringBuilder inserted = new StringBuilder();
+
+        /**
+         * Constructs an empty hunk.
+         *
+         * @param start The start of the hunk in the old text.
+         */
+        Hunk(int start) {
+            this.start = start;
+        }
+
+        /**
+         * Returns the end of the hunk in the old text.
+         *
+         * @return The offset just past the deleted chars.
+         */
+        int end() {
+            return start + deleted.length();
+        }
+    }
+}
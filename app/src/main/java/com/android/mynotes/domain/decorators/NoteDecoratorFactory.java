@@ -4,52 +4,128 @@ import com.android.mynotes.domain.entities.Note;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Factory class for creating a note decorator based on a note's color.
- * Looks up the appropriate decorator class from a predefined map
- * and instantiates it via reflection.
+ * Looks up the appropriate decorator from a table built once at class load,
+ * holding a constructor reference and the pre-parsed ARGB value of each color.
  */
 public class NoteDecoratorFactory {
 
     /**
-     * Maps color codes to their corresponding {@link NoteDecorator} classes.
+     * Color code used when a note has no color or an unknown one.
      */
-    private static final Map<String, Class<? extends NoteDecorator>> decoratorMap = new HashMap<>();
+    public static final String DEFAULT_COLOR = "#333333";
+
+    /**
+     * Maps color codes to their corresponding {@link ColorEntry}.
+     */
+    private static final Map<String, ColorEntry> decoratorMap = new HashMap<>();
 
     static {
         // Default
-        decoratorMap.put("#333333", DefaultNoteDecorator.class);
+        register(DEFAULT_COLOR, DefaultNoteDecorator::new);
         // Yellow
-        decoratorMap.put("#FDBE3B", YellowNoteDecorator.class);
+        register("#FDBE3B", YellowNoteDecorator::new);
         // Red
-        decoratorMap.put("#FF4842", RedNoteDecorator.class);
+        register("#FF4842", RedNoteDecorator::new);
         // Blue
-        decoratorMap.put("#3A52Fc", BlueNoteDecorator.class);
+        register("#3A52Fc", BlueNoteDecorator::new);
         // Green
-        decoratorMap.put("#17C51E", GreenNoteDecorator.class);
+        register("#17C51E", GreenNoteDecorator::new);
         // Purple
-        decoratorMap.put("#AF00FF", PurpleNoteDecorator.class);
+        register("#AF00FF", PurpleNoteDecorator::new);
     }
 
+    private static final ColorEntry defaultEntry = decoratorMap.get(DEFAULT_COLOR);
+
     /**
      * Creates a {@link NoteComponent} decorator based on the note's color code.
      * If the color is not recognized or is null, a {@link DefaultNoteDecorator} is used.
      *
      * @param note The {@link Note} whose color determines the decorator.
      * @return A {@link NoteComponent} with the appropriate decorator applied.
-     * @throws RuntimeException if an error occurs while creating the decorator instance.
      */
     public static NoteComponent getDecorator(Note note) {
-        String color = note.getColor() != null ? note.getColor().trim() : "#333333";
-        Class<? extends NoteDecorator> decoratorClass = decoratorMap.getOrDefault(color, DefaultNoteDecorator.class);
-
-        try {
-            // Use reflection to create an instance of the decorator class
-            assert decoratorClass != null;
-            return decoratorClass.getConstructor(NoteComponent.class).newInstance(note);
-        } catch (Exception e) {
-            throw new RuntimeException("Error creating NoteDecorator for color: " + color, e);
+        return entryFor(note.getColor()).constructor.apply(note);
+    }
+
+    /**
+     * Returns the ARGB color of the decorator matching the note's color code.
+     * The value is parsed once when the table is built, so this performs no
+     * allocation, reflection or string parsing and is safe to call while binding views.
+     *
+     * @param note The {@link Note} whose color determines the decorator.
+     * @return The decorator's color as an ARGB int.
+     */
+    public static int getColorArgb(Note note) {
+        return getColorArgb(note.getColor());
+    }
+
+    /**
+     * Returns the ARGB color of the decorator matching a color code, e.g. the color
+     * column of a list row that was read without the rest of the note.
+     *
+     * @param colorCode The color code stored with a note, may be null.
+     * @return The decorator's color as an ARGB int.
+     */
+    public static int getColorArgb(String colorCode) {
+        return entryFor(colorCode).argb;
+    }
+
+    /**
+     * Finds the table entry for a color code, falling back to the default color.
+     *
+     * @param color The color code looked up, may be null.
+     * @return The matching {@link ColorEntry}.
+     */
+    private static ColorEntry entryFor(String color) {
+        if (color == null) return defaultEntry;
+        ColorEntry entry = decoratorMap.get(color);
+        if (entry == null) {
+            entry = decoratorMap.get(color.trim());
+        }
+        return entry != null ? entry : defaultEntry;
+    }
+
+    /**
+     * Adds a decorator to the table, resolving its color once from a decorator instance.
+     *
+     * @param colorCode   The color code stored in notes for this decorator.
+     * @param constructor Reference to the decorator's constructor.
+     */
+    private static void register(String colorCode, Function<NoteComponent, NoteDecorator> constructor) {
+        String decoratorColor = constructor.apply(new Note()).getColor();
+        decoratorMap.put(colorCode, new ColorEntry(constructor, parseColor(decoratorColor)));
+    }
+
+    /**
+     * Parses a {@code #RRGGBB} or {@code #AARRGGBB} color code into an ARGB int.
+     *
+     * @param colorCode The color code to parse.
+     * @return The ARGB value, fully opaque when no alpha is given.
+     */
+    static int parseColor(String colorCode) {
+        long value = Long.parseLong(colorCode.substring(1), 16);
+        if (colorCode.length() == 7) {
+            value |= 0xFF000000L;
+        } else if (colorCode.length() != 9) {
+            throw new IllegalArgumentException("Unknown color: " + colorCode);
+        }
+        return (int) value;
+    }
+
+    /**
+     * A decorator constructor together with its pre-parsed color.
+     */
+    private static final class ColorEntry {
+        final Function<NoteComponent, NoteDecorator> constructor;
+        final int argb;
+
+        ColorEntry(Function<NoteComponent, NoteDecorator> constructor, int argb) {
+            this.constructor = constructor;
+            this.argb = argb;
         }
     }
-}
\ No newline at end of file
+}
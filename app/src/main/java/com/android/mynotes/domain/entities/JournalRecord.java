@@ -0,0 +1,82 @@
+package com.android.mynotes.domain.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Record of the "command_journal" table: one undo history step, encoded as a compact
+ * binary command. Records are only ever appended; undoing and redoing a step flips its
+ * state, and records that left the history are marked discarded until compaction
+ * deletes them.
+ */
+@Entity(
+        tableName = "command_journal",
+        indices = {@Index({"state", "seq"})}
+)
+public class JournalRecord {
+
+    /**
+     * The step can be undone.
+     */
+    public static final int STATE_DONE = 0;
+
+    /**
+     * The step was undone and can be redone.
+     */
+    public static final int STATE_UNDONE = 1;
+
+    /**
+     * The step left the history and is deleted by the next compaction.
+     */
+    public static final int STATE_DISCARDED = 2;
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "seq")
+    private long seq;
+
+    @ColumnInfo(name = "state")
+    private int state;
+
+    @NonNull
+    @ColumnInfo(name = "payload", typeAffinity = ColumnInfo.BLOB)
+    private byte[] payload;
+
+    /**
+     * Constructs a record.
+     *
+     * @param state   One of the {@code STATE_} constants.
+     * @param payload The encoded command.
+     */
+    public JournalRecord(int state, @NonNull byte[] payload) {
+        this.state = state;
+        this.payload = payload;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public void setState(int state) {
+        this.state = state;
+    }
+
+    @NonNull
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(@NonNull byte[] payload) {
+        this.payload = payload;
+    }
+}
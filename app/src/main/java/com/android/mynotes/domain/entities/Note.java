@@ -1,7 +1,12 @@
 package com.android.mynotes.domain.entities;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import com.android.mynotes.domain.decorators.NoteComponent;
@@ -11,11 +16,41 @@ import java.io.Serializable;
 /**
  * Represents a Note entity stored in the "notes" table.
  * Implements the {@link NoteComponent} interface to allow decorators
- * and additional behavior, and implements {@link Serializable} for easy
- * object passing between Android components.
+ * and additional behavior. Implements {@link Parcelable} with hand-written field
+ * marshalling for passing notes between Android components; {@link Serializable} is
+ * kept for compatibility only. See {@link NoteCodec} for a compact binary encoding.
  */
-@Entity(tableName = "notes")
-public class Note implements Serializable, NoteComponent {
+@Entity(
+        tableName = "notes",
+        indices = {@Index("updated_at"), @Index("title"), @Index("color")}
+)
+public class Note implements Serializable, Parcelable, NoteComponent {
+
+    /**
+     * Recreates notes written by {@link #writeToParcel(Parcel, int)}.
+     */
+    public static final Creator<Note> CREATOR = new Creator<Note>() {
+        @Override
+        public Note createFromParcel(Parcel in) {
+            return new Builder()
+                    .setId(in.readInt())
+                    .setTitle(in.readString())
+                    .setDateTime(in.readString())
+                    .setSubtitle(in.readString())
+                    .setNoteText(in.readString())
+                    .setImagePath(in.readString())
+                    .setColor(in.readString())
+                    .setWebLink(in.readString())
+                    .setCreatedAt(in.readLong())
+                    .setUpdatedAt(in.readLong())
+                    .build();
+        }
+
+        @Override
+        public Note[] newArray(int size) {
+            return new Note[size];
+        }
+    };
 
     @PrimaryKey(autoGenerate = true)
     private int id;
@@ -41,6 +76,12 @@ public class Note implements Serializable, NoteComponent {
     @ColumnInfo(name = "web_link")
     private String webLink;
 
+    @ColumnInfo(name = "created_at", defaultValue = "0")
+    private long createdAt;
+
+    @ColumnInfo(name = "updated_at", defaultValue = "0")
+    private long updatedAt;
+
     /**
      * Private constructor used by the Builder to create a Note instance.
      *
@@ -55,6 +96,8 @@ public class Note implements Serializable, NoteComponent {
         this.imagePath = builder.imagePath;
         this.color = builder.color;
         this.webLink = builder.webLink;
+        this.createdAt = builder.createdAt;
+        this.updatedAt = builder.updatedAt;
     }
 
     /**
@@ -194,6 +237,74 @@ public class Note implements Serializable, NoteComponent {
 
     //endregion
 
+    /**
+     * Retrieves the creation time of the note.
+     *
+     * @return Milliseconds since the epoch, or 0 if unknown.
+     */
+    public long getCreatedAt() {
+        return this.createdAt;
+    }
+
+    /**
+     * Sets the creation time of the note.
+     *
+     * @param createdAt Milliseconds since the epoch.
+     */
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Retrieves the time the note was last saved.
+     *
+     * @return Milliseconds since the epoch, or 0 if unknown.
+     */
+    public long getUpdatedAt() {
+        return this.updatedAt;
+    }
+
+    /**
+     * Sets the time the note was last saved.
+     *
+     * @param updatedAt Milliseconds since the epoch.
+     */
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    //region Parcelable implementation
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    /**
+     * Writes every field in the order {@link #CREATOR} reads them.
+     *
+     * @param dest  The parcel to write to.
+     * @param flags Additional flags about how the object should be written.
+     */
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeInt(id);
+        dest.writeString(title);
+        dest.writeString(dateTime);
+        dest.writeString(subtitle);
+        dest.writeString(noteText);
+        dest.writeString(imagePath);
+        dest.writeString(color);
+        dest.writeString(webLink);
+        dest.writeLong(createdAt);
+        dest.writeLong(updatedAt);
+    }
+
+    //endregion
+
     /**
      * Builder class for constructing {@link Note} objects.
      */
@@ -206,6 +317,8 @@ public class Note implements Serializable, NoteComponent {
         private String imagePath;
         private String color;
         private String webLink;
+        private long createdAt;
+        private long updatedAt;
 
         /**
          * Sets the ID for the Note.
@@ -295,6 +408,28 @@ public class Note implements Serializable, NoteComponent {
             return this;
         }
 
+        /**
+         * Sets the creation time for the Note.
+         *
+         * @param createdAt Milliseconds since the epoch.
+         * @return The current Builder instance.
+         */
+        public Builder setCreatedAt(long createdAt) {
+            this.createdAt = createdAt;
+            return this;
+        }
+
+        /**
+         * Sets the last update time for the Note.
+         *
+         * @param updatedAt Milliseconds since the epoch.
+         * @return The current Builder instance.
+         */
+        public Builder setUpdatedAt(long updatedAt) {
+            this.updatedAt = updatedAt;
+            return this;
+        }
+
         /**
          * Builds and returns a new {@link Note} instance.
          *
@@ -0,0 +1,183 @@
+package com.android.mynotes.domain.entities;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact, versioned binary encoding of a {@link Note}, for caching and export.
+ * Unlike Java serialization it uses no reflection and writes no class metadata.
+ *
+ * <p>Format version 1:
+ * <pre>
+ *   byte    format version
+ *   varint  id
+ *   byte    presence bits of the text fields, in the order below
+ *   for each present text field (title, date_time, subtitle, note_text, image_path, color, web_link):
+ *     varint  UTF-8 length
+ *     bytes   UTF-8 text
+ *   varlong created_at
+ *   varlong updated_at
+ * </pre>
+ * Varints are unsigned LEB128, so small IDs and lengths take a single byte.
+ */
+public final class NoteCodec {
+
+    /**
+     * Version written by {@link #encode(Note)}; decoding rejects newer versions.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int TEXT_FIELDS = 7;
+
+    private NoteCodec() { }
+
+    /**
+     * Encodes a note in the current format version.
+     *
+     * @param note The note to encode.
+     * @return The encoded bytes.
+     */
+    public static byte[] encode(Note note) {
+        String[] texts = texts(note);
+        int presence = 0;
+        int estimate = 24;
+        for (int i = 0; i < TEXT_FIELDS; i++) {
+            if (texts[i] != null) {
+                presence |= 1 << i;
+                estimate += texts[i].length() + 2;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(estimate);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, note.getId() & 0xFFFFFFFFL);
+        out.write(presence);
+        for (String text : texts) {
+            if (text == null) continue;
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, utf8.length);
+            out.write(utf8, 0, utf8.length);
+        }
+        writeVarLong(out, note.getCreatedAt());
+        writeVarLong(out, note.getUpdatedAt());
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a note written by {@link #encode(Note)}.
+     *
+     * @param bytes The encoded bytes.
+     * @return The decoded {@link Note}.
+     * @throws IllegalArgumentException if the bytes are truncated or use an unknown version.
+     */
+    public static Note decode(byte[] bytes) {
+        return decodeBuilder(bytes).build();
+    }
+
+    /**
+     * Decodes a note into a {@link Note.Builder}, so callers can adjust fields before building.
+     *
+     * @param bytes The encoded bytes.
+     * @return A builder holding the decoded fields.
+     * @throws IllegalArgumentException if the bytes are truncated or use an unknown version.
+     */
+    public static Note.Builder decodeBuilder(byte[] bytes) {
+        Reader in = new Reader(bytes);
+        int version = in.readByte();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported note format version " + version);
+        }
+
+        int id = (int) in.readVarLong();
+        int presence = in.readByte();
+        String[] texts = new String[TEXT_FIELDS];
+        for (int i = 0; i < TEXT_FIELDS; i++) {
+            if ((presence & (1 << i)) != 0) {
+                texts[i] = in.readString();
+            }
+        }
+        long createdAt = in.readVarLong();
+        long updatedAt = in.readVarLong();
+
+        return new Note.Builder()
+                .setId(id)
+                .setTitle(texts[0])
+                .setDateTime(texts[1])
+                .setSubtitle(texts[2])
+                .setNoteText(texts[3])
+                .setImagePath(texts[4])
+                .setColor(texts[5])
+                .setWebLink(texts[6])
+                .setCreatedAt(createdAt)
+                .setUpdatedAt(updatedAt);
+    }
+
+    /**
+     * @param note The note whose text fields are read.
+     * @return The text fields in encoding order.
+     */
+    private static String[] texts(Note note) {
+        return new String[]{
+                note.getTitle(),
+                note.getDateTime(),
+                note.getSubtitle(),
+                note.getNoteText(),
+                note.getImagePath(),
+                note.getColor(),
+                note.getWebLink()
+        };
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint.
+     *
+     * @param out   The stream to write to.
+     * @param value The value, treated as unsigned.
+     */
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Cursor over encoded bytes that reports truncation as {@link IllegalArgumentException}.
+     */
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Truncated note data");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("Malformed varint in note data");
+        }
+
+        String readString() {
+            long length = readVarLong();
+            if (length < 0 || length > bytes.length - position) {
+                throw new IllegalArgumentException("Truncated note data");
+            }
+            String text = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return text;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.android.mynotes.domain.entities;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Converts between the epoch-millisecond timestamps stored on a {@link Note}
+ * and the localized date/time text shown to the user.
+ */
+public final class NoteDates {
+
+    /**
+     * Pattern used to display note dates, and formerly to store them.
+     */
+    public static final String PATTERN = "EEEE, dd MMMM yyyy HH:mm a";
+
+    private static SimpleDateFormat dateFormat;
+    private static Locale dateFormatLocale;
+
+    private NoteDates() { }
+
+    /**
+     * Formats a timestamp for display in the current locale.
+     *
+     * @param epochMillis The timestamp in milliseconds since the epoch.
+     * @return The localized date/time text.
+     */
+    public static synchronized String format(long epochMillis) {
+        return dateFormat().format(new Date(epochMillis));
+    }
+
+    /**
+     * Returns the text to display for a note's date: its last update time when known,
+     * otherwise the legacy date/time text stored with it.
+     *
+     * @param note The note whose date is displayed.
+     * @return The localized date/time text.
+     */
+    public static String formatForDisplay(Note note) {
+        return note.getUpdatedAt() > 0 ? format(note.getUpdatedAt()) : note.getDateTime();
+    }
+
+    /**
+     * Returns the text to display for the date of a list row, like {@link #formatForDisplay(Note)}.
+     *
+     * @param note The summary whose date is displayed.
+     * @return The localized date/time text.
+     */
+    public static String formatForDisplay(NoteSummary note) {
+        return note.getUpdatedAt() > 0 ? format(note.getUpdatedAt()) : note.getDateTime();
+    }
+
+    /**
+     * Parses date/time text written with {@link #PATTERN} in the current locale.
+     *
+     * @param dateTime The text to parse.
+     * @return The timestamp in milliseconds since the epoch, or 0 if the text cannot be parsed.
+     */
+    public static synchronized long parse(String dateTime) {
+        if (dateTime == null || dateTime.trim().isEmpty()) return 0;
+        try {
+            Date date = dateFormat().parse(dateTime);
+            return date != null ? date.getTime() : 0;
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the shared formatter, recreating it if the default locale changed.
+     * Callers must hold the class lock since {@link SimpleDateFormat} is not thread-safe.
+     *
+     * @return The formatter for {@link #PATTERN}.
+     */
+    private static SimpleDateFormat dateFormat() {
+        Locale locale = Locale.getDefault();
+        if (dateFormat == null || !locale.equals(dateFormatLocale)) {
+            dateFormat = new SimpleDateFormat(PATTERN, locale);
+            dateFormatLocale = locale;
+        }
+        return dateFormat;
+    }
+}
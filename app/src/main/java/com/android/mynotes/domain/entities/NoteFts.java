@@ -0,0 +1,50 @@
+package com.android.mynotes.domain.entities;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Full-text search index over the searchable columns of the "notes" table.
+ * Declared as an external content FTS4 table backed by {@link Note}, so Room keeps it
+ * in sync through triggers and the text itself is only stored once.
+ * The unicode61 tokenizer folds case and strips diacritics while indexing.
+ */
+@Fts4(contentEntity = Note.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "notes_fts")
+public class NoteFts {
+
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "subtitle")
+    private String subtitle;
+
+    @ColumnInfo(name = "note_text")
+    private String noteText;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getSubtitle() {
+        return subtitle;
+    }
+
+    public void setSubtitle(String subtitle) {
+        this.subtitle = subtitle;
+    }
+
+    public String getNoteText() {
+        return noteText;
+    }
+
+    public void setNoteText(String noteText) {
+        this.noteText = noteText;
+    }
+}
@@ -0,0 +1,111 @@
+package com.android.mynotes.domain.entities;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Projection of the "notes" table holding only the columns shown by the notes list.
+ * Leaves out the note text and web link, so the list never reads note bodies;
+ * the full {@link Note} is loaded when a note is opened.
+ */
+public class NoteSummary {
+
+    @ColumnInfo(name = "id")
+    private int id;
+
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "date_time")
+    private String dateTime;
+
+    @ColumnInfo(name = "subtitle")
+    private String subtitle;
+
+    @ColumnInfo(name = "image_path")
+    private String imagePath;
+
+    @ColumnInfo(name = "color")
+    private String color;
+
+    @ColumnInfo(name = "updated_at")
+    private long updatedAt;
+
+    /**
+     * Default constructor used by Room.
+     */
+    public NoteSummary() { }
+
+    /**
+     * Builds the summary of a fully loaded note, e.g. a search result.
+     *
+     * @param note The note to summarize.
+     * @return A {@link NoteSummary} with the displayed fields of the note.
+     */
+    public static NoteSummary of(Note note) {
+        NoteSummary summary = new NoteSummary();
+        summary.id = note.getId();
+        summary.title = note.getTitle();
+        summary.dateTime = note.getDateTime();
+        summary.subtitle = note.getSubtitle();
+        summary.imagePath = note.getImagePath();
+        summary.color = note.getColor();
+        summary.updatedAt = note.getUpdatedAt();
+        return summary;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDateTime() {
+        return dateTime;
+    }
+
+    public void setDateTime(String dateTime) {
+        this.dateTime = dateTime;
+    }
+
+    public String getSubtitle() {
+        return subtitle;
+    }
+
+    public void setSubtitle(String subtitle) {
+        this.subtitle = subtitle;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    public void setImagePath(String imagePath) {
+        this.imagePath = imagePath;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public void setColor(String color) {
+        this.color = color;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,54 @@
+package com.android.mynotes.domain.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Posting of the "note_trigrams" table: one row per distinct trigram of a note's folded
+ * searchable text. Looking up the trigrams of a search term narrows substring searches
+ * down to the notes that can contain it.
+ */
+@Entity(
+        tableName = "note_trigrams",
+        primaryKeys = {"trigram", "note_id"},
+        indices = {@Index("note_id")}
+)
+public class NoteTrigram {
+
+    @NonNull
+    @ColumnInfo(name = "trigram")
+    private String trigram;
+
+    @ColumnInfo(name = "note_id")
+    private int noteId;
+
+    /**
+     * Constructs a posting.
+     *
+     * @param trigram The three folded chars.
+     * @param noteId  The ID of the note containing them.
+     */
+    public NoteTrigram(@NonNull String trigram, int noteId) {
+        this.trigram = trigram;
+        this.noteId = noteId;
+    }
+
+    @NonNull
+    public String getTrigram() {
+        return trigram;
+    }
+
+    public void setTrigram(@NonNull String trigram) {
+        this.trigram = trigram;
+    }
+
+    public int getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(int noteId) {
+        this.noteId = noteId;
+    }
+}
@@ -0,0 +1,34 @@
+package com.android.mynotes.domain.search;
+
+import com.android.mynotes.data.TextFolding;
+import com.android.mynotes.domain.entities.Note;
+
+/**
+ * The searchable fields of a note, case- and accent-folded once with {@link TextFolding}.
+ */
+public final class FoldedNote {
+
+    final int id;
+    final char[] title;
+    final char[] subtitle;
+    final char[] body;
+
+    /**
+     * Folds the searchable fields of a note.
+     *
+     * @param note The note to fold.
+     */
+    FoldedNote(Note note) {
+        this.id = note.getId();
+        this.title = TextFolding.fold(note.getTitle());
+        this.subtitle = TextFolding.fold(note.getSubtitle());
+        this.body = TextFolding.fold(note.getNoteText());
+    }
+
+    /**
+     * @return The number of chars held, used to bound the cache.
+     */
+    int length() {
+        return title.length + subtitle.length + body.length;
+    }
+}
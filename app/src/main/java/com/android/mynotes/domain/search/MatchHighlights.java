@@ -0,0 +1,61 @@
+package com.android.mynotes.domain.search;
+
+/**
+ * The ranges of a note's title and subtitle matched by a search query, used to highlight them.
+ * Ranges are stored as sorted, non-overlapping {@code [start, end)} pairs of char offsets
+ * into the original text; folding keeps text length, so folded offsets apply unchanged.
+ */
+public final class MatchHighlights {
+
+    private static final int[] NONE = new int[0];
+
+    private final int[] title;
+    private final int[] subtitle;
+
+    /**
+     * Constructs the highlights of one note.
+     *
+     * @param title    Matched ranges of the title.
+     * @param subtitle Matched ranges of the subtitle.
+     */
+    MatchHighlights(int[] title, int[] subtitle) {
+        this.title = title;
+        this.subtitle = subtitle;
+    }
+
+    /**
+     * @return The matched ranges of the title as {@code start, end} pairs.
+     */
+    public int[] getTitleRanges() {
+        return title;
+    }
+
+    /**
+     * @return The matched ranges of the subtitle as {@code start, end} pairs.
+     */
+    public int[] getSubtitleRanges() {
+        return subtitle;
+    }
+
+    /**
+     * Converts a per-char mask into {@code start, end} pairs.
+     *
+     * @param marked The chars covered by a match.
+     * @return The merged ranges.
+     */
+    static int[] toRanges(boolean[] marked) {
+        int count = 0;
+        for (int i = 0; i < marked.length; i++) {
+            if (marked[i] && (i == 0 || !marked[i - 1])) count++;
+        }
+        if (count == 0) return NONE;
+
+        int[] ranges = new int[count * 2];
+        int r = 0;
+        for (int i = 0; i < marked.length; i++) {
+            if (marked[i] && (i == 0 || !marked[i - 1])) ranges[r++] = i;
+            if (marked[i] && (i == marked.length - 1 || !marked[i + 1])) ranges[r++] = i + 1;
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,118 @@
+package com.android.mynotes.domain.search;
+
+import com.android.mynotes.data.TextFolding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory equivalent of the search run by {@link SearchSession}: a note matches when
+ * every query term of at least {@link #MIN_SUBSTRING_LENGTH} chars occurs anywhere in its
+ * title, subtitle or text, and every shorter term is a prefix of one of their tokens,
+ * tokens being runs of letters and digits. Matching works on text folded by
+ * {@link TextFolding} and allocates nothing per note.
+ */
+final class QueryMatcher {
+
+    /**
+     * Terms at least this long are matched as substrings through the trigram index;
+     * shorter ones have no trigram and fall back to token-prefix matching.
+     */
+    static final int MIN_SUBSTRING_LENGTH = 3;
+
+    private QueryMatcher() { }
+
+    /**
+     * Tells whether a term is matched anywhere in the text rather than at token starts.
+     *
+     * @param term The folded term.
+     * @return true if the term is long enough to be matched as a substring.
+     */
+    static boolean isSubstringTerm(char[] term) {
+        return term.length >= MIN_SUBSTRING_LENGTH;
+    }
+
+    /**
+     * Splits a query into its folded terms, the same way the full-text query does.
+     *
+     * @param query The query typed by the user.
+     * @return The folded terms of the query.
+     */
+    static char[][] terms(String query) {
+        List<char[]> terms = new ArrayList<>();
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(query.charAt(i))) i++;
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(query.charAt(i))) i++;
+            if (i > start) terms.add(TextFolding.fold(query.substring(start, i)));
+        }
+        return terms.toArray(new char[0][]);
+    }
+
+    /**
+     * Tells whether every term matches in one of the note's searchable fields.
+     *
+     * @param note  The folded note to test.
+     * @param terms The folded query terms.
+     * @return true if the note matches all terms.
+     */
+    static boolean matches(FoldedNote note, char[][] terms) {
+        for (char[] term : terms) {
+            boolean found = isSubstringTerm(term)
+                    ? contains(note.title, term) || contains(note.subtitle, term) || contains(note.body, term)
+                    : hasTokenWithPrefix(note.title, term)
+                    || hasTokenWithPrefix(note.subtitle, term)
+                    || hasTokenWithPrefix(note.body, term);
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether {@code pattern} occurs anywhere in {@code text}.
+     *
+     * @param text    The folded text to scan.
+     * @param pattern The folded chars to look for.
+     * @return true if the text contains the pattern.
+     */
+    static boolean contains(char[] text, char[] pattern) {
+        int last = text.length - pattern.length;
+        for (int i = 0; i <= last; i++) {
+            if (regionEquals(text, i, pattern)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether a token of {@code text} starts with {@code prefix}.
+     *
+     * @param text   The folded text to scan.
+     * @param prefix The folded prefix to look for.
+     * @return true if some token of the text starts with the prefix.
+     */
+    static boolean hasTokenWithPrefix(char[] text, char[] prefix) {
+        int last = text.length - prefix.length;
+        for (int i = 0; i <= last; i++) {
+            if (i > 0 && Character.isLetterOrDigit(text[i - 1])) continue;
+            if (regionEquals(text, i, prefix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compares {@code pattern} with the chars of {@code text} starting at {@code offset}.
+     *
+     * @param text    The text to compare in.
+     * @param offset  The offset of the region in the text.
+     * @param pattern The chars to compare with.
+     * @return true if the region equals the pattern.
+     */
+    static boolean regionEquals(char[] text, int offset, char[] pattern) {
+        for (int j = 0; j < pattern.length; j++) {
+            if (text[offset + j] != pattern[j]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+package com.android.mynotes.domain.search;
+
+import com.android.mynotes.domain.entities.Note;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ranked notes found for a query, with the highlight ranges of each, keyed by note ID.
+ */
+public final class SearchMatches {
+
+    /**
+     * Result of a query with no matches.
+     */
+    public static final SearchMatches EMPTY = new SearchMatches(
+            Collections.emptyList(),
+            Collections.emptyMap()
+    );
+
+    private final List<Note> notes;
+    private final Map<Integer, MatchHighlights> highlights;
+
+    /**
+     * Constructs a search result.
+     *
+     * @param notes      The matching notes, most relevant first.
+     * @param highlights The highlight ranges of each note, keyed by note ID.
+     */
+    SearchMatches(List<Note> notes, Map<Integer, MatchHighlights> highlights) {
+        this.notes = notes;
+        this.highlights = highlights;
+    }
+
+    /**
+     * @return The matching notes, most relevant first.
+     */
+    public List<Note> getNotes() {
+        return notes;
+    }
+
+    /**
+     * @return The highlight ranges of each matching note, keyed by note ID.
+     */
+    public Map<Integer, MatchHighlights> getHighlights() {
+        return highlights;
+    }
+}
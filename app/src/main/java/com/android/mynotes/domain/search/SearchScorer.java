@@ -0,0 +1,122 @@
+package com.android.mynotes.domain.search;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relevance scoring of the notes matched by a query.
+ * Each term scores its hits in the title, subtitle and body, weighted by field and
+ * saturated so a term repeated fifty times does not bury every other match. Hits at the
+ * start of a token count more than hits inside a word. The sum is boosted for recently
+ * edited notes, the boost halving every {@link #RECENCY_HALF_LIFE_DAYS} days.
+ */
+final class SearchScorer {
+
+    static final float TITLE_WEIGHT = 3f;
+    static final float SUBTITLE_WEIGHT = 2f;
+    static final float BODY_WEIGHT = 1f;
+
+    private static final float TOKEN_START_HIT = 1f;
+    private static final float INFIX_HIT = 0.5f;
+    private static final float SATURATION = 1.2f;
+
+    private static final float RECENCY_WEIGHT = 0.5f;
+    private static final long RECENCY_HALF_LIFE_DAYS = 30;
+    private static final double RECENCY_HALF_LIFE_MILLIS = TimeUnit.DAYS.toMillis(RECENCY_HALF_LIFE_DAYS);
+
+    private SearchScorer() { }
+
+    /**
+     * Scores a matching note.
+     *
+     * @param note      The folded note.
+     * @param updatedAt The note's last edit time in epoch millis, 0 if unknown.
+     * @param terms     The folded query terms.
+     * @param now       The current time in epoch millis.
+     * @return The relevance score, higher is better.
+     */
+    static float score(FoldedNote note, long updatedAt, char[][] terms, long now) {
+        float score = 0;
+        for (char[] term : terms) {
+            score += TITLE_WEIGHT * saturate(hits(note.title, term))
+                    + SUBTITLE_WEIGHT * saturate(hits(note.subtitle, term))
+                    + BODY_WEIGHT * saturate(hits(note.body, term));
+        }
+        return score * recencyBoost(updatedAt, now);
+    }
+
+    /**
+     * Computes the ranges of the title and subtitle matched by the terms.
+     *
+     * @param note  The folded note.
+     * @param terms The folded query terms.
+     * @return The {@link MatchHighlights} of the note.
+     */
+    static MatchHighlights highlights(FoldedNote note, char[][] terms) {
+        return new MatchHighlights(ranges(note.title, terms), ranges(note.subtitle, terms));
+    }
+
+    /**
+     * Counts the hits of a term in a field, the way {@link QueryMatcher} matches it.
+     *
+     * @param text The folded field.
+     * @param term The folded term.
+     * @return The weighted number of non-overlapping hits.
+     */
+    private static float hits(char[] text, char[] term) {
+        boolean substring = QueryMatcher.isSubstringTerm(term);
+        float hits = 0;
+        int last = text.length - term.length;
+        for (int i = 0; i <= last; i++) {
+            if (!QueryMatcher.regionEquals(text, i, term)) continue;
+            boolean tokenStart = i == 0 || !Character.isLetterOrDigit(text[i - 1]);
+            if (tokenStart || substring) {
+                hits += tokenStart ? TOKEN_START_HIT : INFIX_HIT;
+                i += term.length - 1;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Marks every char of a field covered by a hit of any term.
+     *
+     * @param text  The folded field.
+     * @param terms The folded query terms.
+     * @return The merged {@code start, end} pairs.
+     */
+    private static int[] ranges(char[] text, char[][] terms) {
+        boolean[] marked = new boolean[text.length];
+        for (char[] term : terms) {
+            boolean substring = QueryMatcher.isSubstringTerm(term);
+            int last = text.length - term.length;
+            for (int i = 0; i <= last; i++) {
+                if ((substring || i == 0 || !Character.isLetterOrDigit(text[i - 1]))
+                        && QueryMatcher.regionEquals(text, i, term)) {
+                    for (int j = 0; j < term.length; j++) marked[i + j] = true;
+                }
+            }
+        }
+        return MatchHighlights.toRanges(marked);
+    }
+
+    /**
+     * Dampens repeated hits: the first hit counts most, each further one less.
+     *
+     * @param hits The weighted hit count.
+     * @return A value in {@code [0, 1)}.
+     */
+    private static float saturate(float hits) {
+        return hits / (hits + SATURATION);
+    }
+
+    /**
+     * @param updatedAt The note's last edit time in epoch millis, 0 if unknown.
+     * @param now       The current time in epoch millis.
+     * @return A factor between 1 and {@code 1 + RECENCY_WEIGHT}.
+     */
+    private static float recencyBoost(long updatedAt, long now) {
+        if (updatedAt <= 0) return 1f;
+        long age = Math.max(0, now - updatedAt);
+        return 1f + RECENCY_WEIGHT * (float) Math.pow(0.5, age / RECENCY_HALF_LIFE_MILLIS);
+    }
+}
@@ -0,0 +1,273 @@
+package com.android.mynotes.domain.search;
+
+import com.android.mynotes.data.NotesRepository;
+import com.android.mynotes.data.Trigrams;
+import com.android.mynotes.domain.entities.Note;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Search state kept between consecutive queries of one search box.
+ * A full search collects the notes found by the full-text index and the notes that only
+ * contain a term inside a word (e.g. "voic" in "invoice"), found through the trigram index
+ * and verified against their folded text. Matches are then ranked by {@link SearchScorer}
+ * and their highlight ranges computed, all on the calling background thread.
+ * When a query extends the previous one (e.g. "meet" after "mee"), every note it matches
+ * also matched the previous query, so only the previous matches are re-tested instead of
+ * searching the whole vault again. Any change to the notes table discards the cached
+ * matches and the next query runs a full search.
+ * In fuzzy mode, notes containing a token within one or two edits of each term are added
+ * through the {@link TermDictionary}; those results are never refined, since a longer
+ * misspelling does not narrow the set of tokens it is close to.
+ * Not thread-safe: meant to be driven by a single {@link SearchWorker}.
+ */
+public class SearchSession {
+
+    private final NotesRepository repository;
+    private final SearchTextCache textCache;
+    private final Supplier<TermDictionary> termDictionary;
+
+    private String lastQuery;
+    private boolean lastFuzzy;
+    private SearchMatches lastResult = SearchMatches.EMPTY;
+    private long lastDataVersion = -1;
+
+    /**
+     * Constructs a SearchSession searching through the given repository.
+     *
+     * @param repository The repository used for full searches.
+     * @param textCache      The cache of folded note text used to re-test matches.
+     * @param termDictionary Returns the dictionary of note tokens, only called by fuzzy searches.
+     */
+    public SearchSession(NotesRepository repository, SearchTextCache textCache,
+                         Supplier<TermDictionary> termDictionary) {
+        this.repository = repository;
+        this.textCache = textCache;
+        this.termDictionary = termDictionary;
+    }
+
+    /**
+     * Searches the notes for {@code query}, refining the previous result set when possible.
+     *
+     * @param query       The query typed by the user.
+     * @param fuzzy       Whether misspelled terms may match tokens one or two edits away.
+     * @param isCancelled Returns true once the result is no longer needed.
+     * @return The matching notes, most relevant first, with their highlight ranges.
+     */
+    public SearchMatches search(String query, boolean fuzzy, BooleanSupplier isCancelled) {
+        String normalized = query.trim();
+        long dataVersion = repository.getDataVersion();
+        char[][] terms = QueryMatcher.terms(normalized);
+
+        SearchMatches matches;
+        boolean reusable = lastQuery != null && fuzzy == lastFuzzy && dataVersion == lastDataVersion;
+        if (reusable && normalized.equals(lastQuery)) {
+            matches = lastResult;
+        } else if (reusable && !fuzzy && narrows(lastQuery, normalized)) {
+            matches = rank(refine(terms, isCancelled), terms, isCancelled);
+        } else if (fuzzy) {
+            List<char[]> scoringTerms = new ArrayList<>(Arrays.asList(terms));
+            List<Note> found = fuzzySearch(normalized, terms, scoringTerms, isCancelled);
+            matches = rank(found, scoringTerms.toArray(new char[0][]), isCancelled);
+        } else {
+            matches = rank(fullSearch(normalized, isCancelled), terms, isCancelled);
+        }
+
+        if (isCancelled.getAsBoolean()) {
+            // A partial result must not seed the next refinement
+            invalidate();
+        } else {
+            lastQuery = normalized;
+            lastFuzzy = fuzzy;
+            lastResult = matches;
+            lastDataVersion = dataVersion;
+        }
+        return matches;
+    }
+
+    /**
+     * Discards the cached result set, forcing the next query to run a full search.
+     */
+    public void invalidate() {
+        lastQuery = null;
+        lastResult = SearchMatches.EMPTY;
+        lastDataVersion = -1;
+    }
+
+    /**
+     * Searches every note: token-prefix matches come from the full-text index, then
+     * trigram candidates not already found are loaded and verified with {@link QueryMatcher}.
+     *
+     * @param query       The query typed by the user.
+     * @param isCancelled Returns true once the result is no longer needed.
+     * @return The matching notes, unranked.
+     */
+    private List<Note> fullSearch(String query, BooleanSupplier isCancelled) {
+        List<Note> prefixMatches = repository.searchNotes(query, isCancelled);
+
+        char[][] terms = QueryMatcher.terms(query);
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (char[] term : terms) {
+            if (QueryMatcher.isSubstringTerm(term)) {
+                Trigrams.collect(term, trigrams);
+            }
+        }
+        if (trigrams.isEmpty() || isCancelled.getAsBoolean()) {
+            return prefixMatches;
+        }
+
+        Set<Integer> found = new HashSet<>(prefixMatches.size() * 2);
+        for (Note note : prefixMatches) found.add(note.getId());
+        List<Integer> candidates = new ArrayList<>();
+        for (Integer id : repository.findTrigramCandidates(trigrams)) {
+            if (!found.contains(id)) candidates.add(id);
+        }
+        if (candidates.isEmpty() || isCancelled.getAsBoolean()) {
+            return prefixMatches;
+        }
+
+        List<Note> infix = repository.getNotesByIds(candidates);
+        infix.sort((a, b) -> Integer.compare(b.getId(), a.getId()));
+        List<Note> matches = new ArrayList<>(prefixMatches.size() + infix.size());
+        matches.addAll(prefixMatches);
+        for (Note note : infix) {
+            if (isCancelled.getAsBoolean()) break;
+            if (QueryMatcher.matches(textCache.get(note), terms)) {
+                matches.add(note);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Runs a full search, then adds the notes in which every term matches a dictionary
+     * token within {@link #maxEdits(char[])} edits or starting with it.
+     *
+     * @param query        The query typed by the user.
+     * @param terms        The folded terms of the query.
+     * @param scoringTerms Receives the dictionary tokens the terms were corrected to.
+     * @param isCancelled  Returns true once the result is no longer needed.
+     * @return The matching notes, unranked.
+     */
+    private List<Note> fuzzySearch(String query, char[][] terms, List<char[]> scoringTerms,
+                                   BooleanSupplier isCancelled) {
+        List<Note> exactMatches = fullSearch(query, isCancelled);
+        if (terms.length == 0 || isCancelled.getAsBoolean()) {
+            return exactMatches;
+        }
+
+        TermDictionary dictionary = termDictionary.get();
+        Set<Integer> candidates = null;
+        for (char[] term : terms) {
+            Set<Integer> ids = dictionary.lookup(term, maxEdits(term), scoringTerms);
+            if (candidates == null) {
+                candidates = ids;
+            } else {
+                candidates.retainAll(ids);
+            }
+            if (candidates.isEmpty() || isCancelled.getAsBoolean()) {
+                return exactMatches;
+            }
+        }
+        for (Note note : exactMatches) candidates.remove(note.getId());
+        if (candidates.isEmpty()) {
+            return exactMatches;
+        }
+
+        List<Note> matches = new ArrayList<>(exactMatches.size() + candidates.size());
+        matches.addAll(exactMatches);
+        matches.addAll(repository.getNotesByIds(new ArrayList<>(candidates)));
+        return matches;
+    }
+
+    /**
+     * Returns how many edits a term tolerates in fuzzy mode: none for up to three chars,
+     * where almost every token is one edit away, one up to seven chars, two beyond.
+     *
+     * @param term The folded term.
+     * @return The maximum edit distance of a matching token.
+     */
+    static int maxEdits(char[] term) {
+        if (term.length < 4) return 0;
+        return term.length < 8 ? 1 : 2;
+    }
+
+    /**
+     * Tells whether every note matching {@code query} also matches {@code previous}.
+     * That holds when the query extends the previous one, unless a term grows from
+     * token-prefix to substring length, which matches more notes rather than fewer.
+     *
+     * @param previous The previous query.
+     * @param query    The new query.
+     * @return true if the previous matches can be refined.
+     */
+    private static boolean narrows(String previous, String query) {
+        if (!query.startsWith(previous)) return false;
+        char[][] previousTerms = QueryMatcher.terms(previous);
+        char[][] terms = QueryMatcher.terms(query);
+        for (int i = 0; i < previousTerms.length; i++) {
+            if (!QueryMatcher.isSubstringTerm(previousTerms[i]) && QueryMatcher.isSubstringTerm(terms[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Re-tests the previous matches against a query that extends the previous one.
+     *
+     * @param terms       The folded terms of the extended query.
+     * @param isCancelled Returns true once the result is no longer needed.
+     * @return The previous matches that still match.
+     */
+    private List<Note> refine(char[][] terms, BooleanSupplier isCancelled) {
+        List<Note> refined = new ArrayList<>();
+        for (Note note : lastResult.getNotes()) {
+            if (isCancelled.getAsBoolean()) break;
+            if (QueryMatcher.matches(textCache.get(note), terms)) {
+                refined.add(note);
+            }
+        }
+        return refined;
+    }
+
+    /**
+     * Orders matches by descending {@link SearchScorer} score and computes their highlights.
+     * Notes with equal scores keep the order they were found in.
+     *
+     * @param matches     The notes matching the query.
+     * @param terms       The folded terms scored and highlighted.
+     * @param isCancelled Returns true once the result is no longer needed.
+     * @return The ranked matches, or {@link SearchMatches#EMPTY} if cancelled.
+     */
+    private SearchMatches rank(List<Note> matches, char[][] terms, BooleanSupplier isCancelled) {
+        if (matches.isEmpty()) return SearchMatches.EMPTY;
+
+        long now = System.currentTimeMillis();
+        Map<Integer, Float> scores = new HashMap<>(matches.size() * 2);
+        Map<Integer, MatchHighlights> highlights = new HashMap<>(matches.size() * 2);
+        for (Note note : matches) {
+            if (isCancelled.getAsBoolean()) return SearchMatches.EMPTY;
+            FoldedNote folded = textCache.get(note);
+            scores.put(note.getId(), SearchScorer.score(folded, note.getUpdatedAt(), terms, now));
+            highlights.put(note.getId(), SearchScorer.highlights(folded, terms));
+        }
+
+        List<Note> ranked = new ArrayList<>(matches);
+        ranked.sort((a, b) -> Float.compare(scores.get(b.getId()), scores.get(a.getId())));
+        return new SearchMatches(
+                Collections.unmodifiableList(ranked),
+                Collections.unmodifiableMap(highlights)
+        );
+    }
+}
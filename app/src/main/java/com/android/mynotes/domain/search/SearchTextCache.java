@@ -0,0 +1,89 @@
+package com.android.mynotes.domain.search;
+
+import com.android.mynotes.domain.entities.Note;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the folded search text of each note, keyed by note ID.
+ * Notes are folded the first time a search tests them and reused by later searches
+ * until a write to that note invalidates its entry. The cache is bounded by the total
+ * number of chars it holds and drops the least recently used notes first.
+ */
+public class SearchTextCache {
+
+    /**
+     * Default bound of the cache, in chars (about 8 MB).
+     */
+    public static final int DEFAULT_MAX_CHARS = 4 * 1024 * 1024;
+
+    private final int maxChars;
+    private final LinkedHashMap<Integer, FoldedNote> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalChars;
+
+    /**
+     * Constructs a SearchTextCache with the default bound.
+     */
+    public SearchTextCache() {
+        this(DEFAULT_MAX_CHARS);
+    }
+
+    /**
+     * Constructs a SearchTextCache.
+     *
+     * @param maxChars The maximum number of folded chars kept.
+     */
+    public SearchTextCache(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Returns the folded text of a note, folding and caching it on a miss.
+     *
+     * @param note The note to look up.
+     * @return The folded fields of the note.
+     */
+    public synchronized FoldedNote get(Note note) {
+        FoldedNote folded = entries.get(note.getId());
+        if (folded == null) {
+            folded = new FoldedNote(note);
+            entries.put(note.getId(), folded);
+            totalChars += folded.length();
+            trim();
+        }
+        return folded;
+    }
+
+    /**
+     * Drops the cached text of a note after it was inserted, edited or deleted.
+     *
+     * @param noteId The ID of the changed note.
+     */
+    public synchronized void invalidate(int noteId) {
+        FoldedNote removed = entries.remove(noteId);
+        if (removed != null) {
+            totalChars -= removed.length();
+        }
+    }
+
+    /**
+     * Drops every cached entry.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        totalChars = 0;
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits its bound.
+     */
+    private void trim() {
+        Iterator<Map.Entry<Integer, FoldedNote>> iterator = entries.entrySet().iterator();
+        while (totalChars > maxChars && iterator.hasNext()) {
+            totalChars -= iterator.next().getValue().length();
+            iterator.remove();
+        }
+    }
+}
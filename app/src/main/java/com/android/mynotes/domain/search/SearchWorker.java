@@ -0,0 +1,180 @@
+package com.android.mynotes.domain.search;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs searches on a dedicated background thread.
+ * Every submitted query gets a new generation number; submitting a query cancels the
+ * one in flight, and results are tagged with their generation so that a result which
+ * finishes after a newer query was typed is dropped instead of displayed.
+ */
+public class SearchWorker {
+
+    /**
+     * The search performed for each query.
+     */
+    public interface SearchFunction {
+
+        /**
+         * Searches the notes for {@code query}.
+         *
+         * @param query       The query to search for.
+         * @param fuzzy       Whether terms may match tokens one or two edits away.
+         * @param isCancelled Returns true once a newer query has superseded this one;
+         *                    long searches should check it and return early.
+         * @return The matching notes, ranked, with their highlight ranges.
+         */
+        SearchMatches search(String query, boolean fuzzy, BooleanSupplier isCancelled);
+    }
+
+    /**
+     * The notes found for one query, tagged with the query's generation.
+     * Built on the worker thread, where the matches are also reduced to the
+     * {@link NoteSummary} rows the list displays.
+     */
+    public static final class Result {
+        public final long generation;
+        public final String query;
+        public final List<NoteSummary> notes;
+        public final Map<Integer, MatchHighlights> highlights;
+
+        Result(long generation, String query, SearchMatches matches) {
+            this.generation = generation;
+            this.query = query;
+            List<NoteSummary> summaries = new ArrayList<>(matches.getNotes().size());
+            for (Note note : matches.getNotes()) {
+                summaries.add(NoteSummary.of(note));
+            }
+            this.notes = summaries;
+            this.highlights = matches.getHighlights();
+        }
+    }
+
+    private static final long MIN_DEBOUNCE_MILLIS = 50;
+    private static final long MAX_DEBOUNCE_MILLIS = 500;
+
+    private final SearchFunction searchFunction;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicLong generation = new AtomicLong();
+    private final MutableLiveData<Result> results = new MutableLiveData<>();
+    private Future<?> inFlight;
+
+    /**
+     * Exponential moving average of recent search durations, in nanoseconds.
+     */
+    private volatile long averageSearchNanos;
+
+    /**
+     * Constructs a SearchWorker.
+     *
+     * @param searchFunction The search performed for each submitted query.
+     */
+    public SearchWorker(SearchFunction searchFunction) {
+        this.searchFunction = searchFunction;
+    }
+
+    /**
+     * Returns the results of completed searches. A result may be stale by the time it
+     * is observed; check it with {@link #isCurrent(Result)} before displaying it.
+     *
+     * @return LiveData of search results.
+     */
+    public LiveData<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Starts searching for {@code query} in the background, superseding any search in flight.
+     *
+     * @param query The query to search for.
+     * @param fuzzy Whether terms may match tokens one or two edits away.
+     */
+    public synchronized void submit(String query, boolean fuzzy) {
+        long queryGeneration = generation.incrementAndGet();
+        cancelInFlight();
+
+        BooleanSupplier isCancelled = () -> generation.get() != queryGeneration;
+        inFlight = executor.submit(() -> {
+            if (isCancelled.getAsBoolean()) return;
+            long start = System.nanoTime();
+            SearchMatches matches = searchFunction.search(query, fuzzy, isCancelled);
+            recordDuration(System.nanoTime() - start);
+            if (!isCancelled.getAsBoolean()) {
+                results.postValue(new Result(queryGeneration, query, matches));
+            }
+        });
+    }
+
+    /**
+     * Cancels the search in flight, if any, and invalidates every pending result.
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        cancelInFlight();
+    }
+
+    /**
+     * Tells whether a result belongs to the most recently submitted query.
+     *
+     * @param result A result delivered by {@link #getResults()}.
+     * @return true if no query was submitted or cancelled after it.
+     */
+    public boolean isCurrent(Result result) {
+        return result != null && result.generation == generation.get();
+    }
+
+    /**
+     * Returns how long to wait after a keystroke before searching. Fast searches are run
+     * almost immediately, while the debounce grows when searches take longer, so typing
+     * does not queue up work the worker cannot keep up with.
+     *
+     * @return The debounce delay in milliseconds.
+     */
+    public long getDebounceMillis() {
+        long averageMillis = TimeUnit.NANOSECONDS.toMillis(averageSearchNanos);
+        return Math.max(MIN_DEBOUNCE_MILLIS, Math.min(MAX_DEBOUNCE_MILLIS, averageMillis * 2));
+    }
+
+    /**
+     * Stops the worker thread. Searches submitted afterwards are rejected.
+     */
+    public synchronized void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Cancels the pending search task before it starts; a running task notices the
+     * generation change through its cancellation check.
+     */
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel(false);
+            inFlight = null;
+        }
+    }
+
+    /**
+     * Folds a search duration into the moving average used for the adaptive debounce.
+     *
+     * @param nanos The duration of the last search in nanoseconds.
+     */
+    private void recordDuration(long nanos) {
+        long average = averageSearchNanos;
+        averageSearchNanos = average == 0 ? nanos : (average * 3 + nanos) / 4;
+    }
+}
@@ -0,0 +1,286 @@
+package com.android.mynotes.domain.search;
+
+import com.android.mynotes.data.NotesRepository;
+import com.android.mynotes.data.TextFolding;
+import com.android.mynotes.domain.entities.Note;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Dictionary of the folded tokens of every note's title, subtitle and text, used by fuzzy search.
+ * Tokens are kept in a sorted map to their posting sets, so the notes of every token
+ * starting with a prefix are a single range lookup, and in a BK-tree, so the tokens within
+ * one or two edits of a misspelled term are found without computing the edit distance
+ * to every token of the vault.
+ * The dictionary is built on first use from keyset pages of the notes table. Afterwards,
+ * notes reported through {@link #invalidate(int)} are re-indexed before the next lookup.
+ * Lookups are meant to run on a single search thread; {@link #invalidate(int)} may be
+ * called from any thread.
+ */
+public class TermDictionary {
+
+    /**
+     * Tokens longer than this are indexed for prefix lookups but left out of the BK-tree.
+     */
+    static final int MAX_FUZZY_TERM_LENGTH = 32;
+
+    private static final int PAGE_SIZE = 200;
+
+    private final NotesRepository repository;
+    private final TreeMap<String, Set<Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Set<String>> noteTerms = new HashMap<>();
+    private final Set<Integer> staleNotes = new HashSet<>();
+    private BkTree bkTree = new BkTree();
+    private boolean built;
+
+    /**
+     * BK-tree entries whose posting set has become empty; the tree is rebuilt once
+     * they make up half of it.
+     */
+    private int deadTerms;
+
+    /**
+     * Constructs a TermDictionary over the notes of a repository.
+     *
+     * @param repository The repository the notes are read from.
+     */
+    public TermDictionary(NotesRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Marks a note as changed, so it is re-indexed before the next lookup.
+     *
+     * @param noteId The ID of the inserted, edited or deleted note.
+     */
+    public void invalidate(int noteId) {
+        synchronized (staleNotes) {
+            staleNotes.add(noteId);
+        }
+    }
+
+    /**
+     * Returns the notes containing a token that is within {@code maxEdits} edits of
+     * {@code term} or starts with it.
+     *
+     * @param term       The folded query term.
+     * @param maxEdits   The maximum Levenshtein distance of a matching token.
+     * @param correction Receives the tokens matched within {@code maxEdits} edits.
+     * @return The IDs of the matching notes.
+     */
+    Set<Integer> lookup(char[] term, int maxEdits, List<char[]> correction) {
+        ensureCurrent();
+        String key = new String(term);
+        Set<Integer> notes = new HashSet<>();
+        for (Set<Integer> ids : postings.subMap(key, key + Character.MAX_VALUE).values()) {
+            notes.addAll(ids);
+        }
+        if (maxEdits > 0 && term.length <= MAX_FUZZY_TERM_LENGTH) {
+            for (String token : bkTree.search(key, maxEdits)) {
+                Set<Integer> ids = postings.get(token);
+                if (ids == null || ids.isEmpty()) continue;
+                notes.addAll(ids);
+                correction.add(token.toCharArray());
+            }
+        }
+        return notes;
+    }
+
+    /**
+     * Builds the dictionary on first use and re-indexes the notes changed since the last lookup.
+     */
+    private void ensureCurrent() {
+        if (!built) {
+            synchronized (staleNotes) {
+                staleNotes.clear();
+            }
+            repository.forEachPage(PAGE_SIZE, page -> {
+                for (Note note : page) add(note);
+            });
+            built = true;
+            return;
+        }
+
+        List<Integer> stale;
+        synchronized (staleNotes) {
+            if (staleNotes.isEmpty()) return;
+            stale = new ArrayList<>(staleNotes);
+            staleNotes.clear();
+        }
+        for (Integer noteId : stale) remove(noteId);
+        for (Note note : repository.getNotesByIds(stale)) add(note);
+        if (deadTerms > bkTree.size() / 2) {
+            rebuildTree();
+        }
+    }
+
+    /**
+     * Indexes the tokens of a note.
+     *
+     * @param note The note to index.
+     */
+    private void add(Note note) {
+        Set<String> terms = new HashSet<>();
+        collectTokens(TextFolding.fold(note.getTitle()), terms);
+        collectTokens(TextFolding.fold(note.getSubtitle()), terms);
+        collectTokens(TextFolding.fold(note.getNoteText()), terms);
+        noteTerms.put(note.getId(), terms);
+        for (String term : terms) {
+            Set<Integer> ids = postings.get(term);
+            if (ids == null) {
+                ids = new HashSet<>();
+                postings.put(term, ids);
+                if (term.length() <= MAX_FUZZY_TERM_LENGTH) bkTree.add(term);
+            } else if (ids.isEmpty() && term.length() <= MAX_FUZZY_TERM_LENGTH) {
+                deadTerms--;
+            }
+            ids.add(note.getId());
+        }
+    }
+
+    /**
+     * Removes a note from the posting sets of its tokens.
+     *
+     * @param noteId The ID of the note.
+     */
+    private void remove(int noteId) {
+        Set<String> terms = noteTerms.remove(noteId);
+        if (terms == null) return;
+        for (String term : terms) {
+            Set<Integer> ids = postings.get(term);
+            // Only tokens in the BK-tree count towards its rebuild
+            if (ids != null && ids.remove(noteId) && ids.isEmpty() && term.length() <= MAX_FUZZY_TERM_LENGTH) {
+                deadTerms++;
+            }
+        }
+    }
+
+    /**
+     * Drops the tokens no note contains anymore and rebuilds the BK-tree from the rest.
+     */
+    private void rebuildTree() {
+        postings.values().removeIf(Set::isEmpty);
+        bkTree = new BkTree();
+        for (String term : postings.keySet()) {
+            if (term.length() <= MAX_FUZZY_TERM_LENGTH) bkTree.add(term);
+        }
+        deadTerms = 0;
+    }
+
+    /**
+     * Adds the letter and digit runs of folded text to {@code tokens}.
+     *
+     * @param folded The folded text.
+     * @param tokens The set receiving the tokens.
+     */
+    private static void collectTokens(char[] folded, Set<String> tokens) {
+        int i = 0;
+        while (i < folded.length) {
+            while (i < folded.length && !Character.isLetterOrDigit(folded[i])) i++;
+            int start = i;
+            while (i < folded.length && Character.isLetterOrDigit(folded[i])) i++;
+            if (i > start) tokens.add(new String(folded, start, i - start));
+        }
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings, giving up early once every
+     * alignment exceeds {@code limit}.
+     *
+     * @param a     The first string.
+     * @param b     The second string.
+     * @param limit The largest distance the caller distinguishes.
+     * @return The edit distance, or a value greater than {@code limit} if it exceeds it.
+     */
+    static int distance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) return limit + 1;
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) return limit + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Burkhard-Keller tree over the dictionary tokens under the Levenshtein metric.
+     * By the triangle inequality, only children whose edge distance lies within
+     * {@code maxEdits} of the query's distance to their parent can hold a match.
+     */
+    static final class BkTree {
+
+        /**
+         * Edge distances are bounded by the longest indexed token.
+         */
+        private static final int DISTANCE_BOUND = MAX_FUZZY_TERM_LENGTH;
+
+        private Node root;
+        private int size;
+
+        void add(String term) {
+            if (root == null) {
+                root = new Node(term);
+                size++;
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int d = distance(node.term, term, DISTANCE_BOUND);
+                if (d == 0) return;
+                Node child = node.children.get(d);
+                if (child == null) {
+                    node.children.put(d, new Node(term));
+                    size++;
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        List<String> search(String term, int maxEdits) {
+            List<String> matches = new ArrayList<>();
+            if (root == null) return matches;
+            List<Node> pending = new ArrayList<>();
+            pending.add(root);
+            while (!pending.isEmpty()) {
+                Node node = pending.remove(pending.size() - 1);
+                int d = distance(node.term, term, DISTANCE_BOUND);
+                if (d <= maxEdits) matches.add(node.term);
+                for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                    if (Math.abs(child.getKey() - d) <= maxEdits) pending.add(child.getValue());
+                }
+            }
+            return matches;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static final class Node {
+            final String term;
+            final Map<Integer, Node> children = new HashMap<>(4);
+
+            Node(String term) {
+                this.term = term;
+            }
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package com.android.mynotes.domain.strategy;
 
-import com.android.mynotes.domain.entities.Note;
-
-import java.util.List;
+import com.android.mynotes.data.NoteOrder;
 
+/**
+ * Strategy selecting the order in which notes are listed.
+ * Each strategy maps to an indexed {@link NoteOrder}, so sorting is done by the
+ * database while paging rather than by re-sorting lists in memory.
+ */
 public interface NoteSortingStrategy {
-    List<Note> sort(List<Note> notes);
-}
\ No newline at end of file
+
+    /**
+     * Returns the database order answering this strategy.
+     *
+     * @return The matching {@link NoteOrder}.
+     */
+    NoteOrder getOrder();
+}
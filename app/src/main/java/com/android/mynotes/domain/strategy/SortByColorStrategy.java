@@ -1,14 +1,10 @@
 package com.android.mynotes.domain.strategy;
 
-import com.android.mynotes.domain.entities.Note;
-
-import java.util.Comparator;
-import java.util.List;
+import com.android.mynotes.data.NoteOrder;
 
 public class SortByColorStrategy implements NoteSortingStrategy {
     @Override
-    public List<Note> sort(List<Note> notes) {
-        notes.sort(Comparator.comparing(Note::getColor));
-        return notes;
+    public NoteOrder getOrder() {
+        return NoteOrder.COLOR;
     }
 }
@@ -1,15 +1,10 @@
 package com.android.mynotes.domain.strategy;
 
-import com.android.mynotes.domain.entities.Note;
-
-import java.util.Comparator;
-import java.util.List;
+import com.android.mynotes.data.NoteOrder;
 
 public class SortByTitleStrategy implements NoteSortingStrategy {
     @Override
-    public List<Note> sort(List<Note> notes) {
-        notes.sort(Comparator.comparing(Note::getTitle));
-        return notes;
+    public NoteOrder getOrder() {
+        return NoteOrder.TITLE;
     }
 }
-
@@ -5,17 +5,29 @@ import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.android.mynotes.data.NotesPager;
 import com.android.mynotes.data.NotesRepository;
 import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteSummary;
 import com.android.mynotes.domain.commands.Command;
 import com.android.mynotes.domain.commands.CommandInvoker;
 import com.android.mynotes.domain.commands.AddNoteCommand;
+import com.android.mynotes.domain.commands.CompositeCommand;
 import com.android.mynotes.domain.commands.EditNoteCommand;
 import com.android.mynotes.domain.commands.DeleteNoteCommand;
+import com.android.mynotes.domain.search.MatchHighlights;
+import com.android.mynotes.domain.search.SearchSession;
+import com.android.mynotes.domain.search.SearchTextCache;
+import com.android.mynotes.domain.search.SearchWorker;
+import com.android.mynotes.domain.search.TermDictionary;
 import com.android.mynotes.domain.strategy.NoteSortingStrategy;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
 
 /**
  * ViewModel responsible for managing Note-related operations.
@@ -24,13 +36,25 @@ import java.util.List;
 public class NotesViewModel extends ViewModel {
 
     private final NotesRepository repository;
-    private final LiveData<List<Note>> allNotes;
-    private final MediatorLiveData<List<Note>> filteredNotes = new MediatorLiveData<>();
+    private final NotesPager allNotes;
+    private final MediatorLiveData<List<NoteSummary>> filteredNotes = new MediatorLiveData<>();
     private final MutableLiveData<String> searchQuery = new MutableLiveData<>();
+    private final MutableLiveData<Map<Integer, MatchHighlights>> searchHighlights =
+            new MutableLiveData<>(Collections.emptyMap());
+    private final MutableLiveData<Integer> pendingCommands = new MutableLiveData<>(0);
 
+    private final SearchTextCache searchTextCache = new SearchTextCache();
+    private volatile TermDictionary termDictionary;
+    private final IntConsumer searchIndexInvalidator;
+    private final SearchWorker searchWorker;
     private final android.os.Handler handler = new android.os.Handler();
     private Runnable debounceRunnable;
-    private NoteSortingStrategy sortingStrategy;
+    private boolean fuzzySearch;
+
+    /**
+     * Set once the ViewModel is cleared, after which write completions are no longer posted.
+     */
+    private volatile boolean cleared;
 
     /**
      * Constructs a NotesViewModel with the specified repository.
@@ -39,31 +63,138 @@ public class NotesViewModel extends ViewModel {
      */
     public NotesViewModel(NotesRepository repository) {
         this.repository = repository;
-        this.allNotes = repository.getAllNotes();
+        this.allNotes = repository.getPagedNotes();
+        this.searchWorker = new SearchWorker(
+                new SearchSession(repository, searchTextCache, this::getTermDictionary)::search
+        );
+        this.searchIndexInvalidator = noteId -> {
+            searchTextCache.invalidate(noteId);
+            TermDictionary dictionary = termDictionary;
+            // A dictionary created later reads the notes as they are by then
+            if (dictionary != null) dictionary.invalidate(noteId);
+        };
+        repository.addNoteChangeListener(searchIndexInvalidator);
 
         // Combine the logic of filtering with the original data
         filteredNotes.addSource(allNotes, notes -> filterNotes(searchQuery.getValue()));
         filteredNotes.addSource(searchQuery, this::debounceSearch);
+        filteredNotes.addSource(searchWorker.getResults(), result -> {
+            // Drop results of queries that were superseded while they ran
+            if (searchWorker.isCurrent(result)) {
+                searchHighlights.setValue(result.highlights);
+                filteredNotes.setValue(result.notes);
+            }
+        });
     }
 
     /**
      * Retrieves a LiveData list of filtered notes based on the search query.
      *
-     * @return LiveData containing the list of filtered Note objects.
+     * @return LiveData containing the list of filtered {@link NoteSummary} rows.
      */
-    public LiveData<List<Note>> getNotes() {
+    public LiveData<List<NoteSummary>> getNotes() {
         return filteredNotes;
     }
 
     /**
-     * Updates the search query and triggers the filtering process.
+     * Retrieves the ranges to highlight in each displayed search result, keyed by note ID.
+     * Empty while no search query is active.
+     *
+     * @return LiveData containing the {@link MatchHighlights} of the current results.
+     */
+    public LiveData<Map<Integer, MatchHighlights>> getSearchHighlights() {
+        return searchHighlights;
+    }
+
+    /**
+     * Retrieves the number of commands, undos and redos whose writes are not committed yet.
+     *
+     * @return LiveData holding the pending count, 0 once every write has landed.
+     */
+    public LiveData<Integer> getPendingCommands() {
+        return pendingCommands;
+    }
+
+    /**
+     * Loads the full note behind a list row, including its text, in the background.
+     *
+     * @param noteId The ID of the note.
+     * @return A future completed with the {@link Note}, or with null if it was deleted.
+     */
+    public CompletableFuture<Note> loadNote(int noteId) {
+        return repository.loadNote(noteId);
+    }
+
+    /**
+     * Returns the note if it was loaded recently and is still in memory, for instant display.
+     *
+     * @param noteId The ID of the note.
+     * @return The {@link Note}, or null if it has to be loaded with {@link #loadNote(int)}.
+     */
+    public Note getCachedNote(int noteId) {
+        return repository.getCachedNote(noteId);
+    }
+
+    /**
+     * Notifies the paged source of the positions currently visible, so the adjacent pages
+     * are loaded before the user reaches either end of the loaded window and pages far
+     * from them are dropped. Ignored while search results are displayed instead of the window.
+     *
+     * @param firstPosition The first adapter position currently displayed.
+     * @param lastPosition  The last adapter position currently displayed.
+     */
+    public void loadAround(int firstPosition, int lastPosition) {
+        String query = searchQuery.getValue();
+        if (query != null && !query.trim().isEmpty()) return;
+        allNotes.loadAround(firstPosition, lastPosition);
+    }
+
+    /**
+     * Updates the search query and triggers the filtering process,
+     * keeping the current fuzzy mode.
      *
      * @param query The search query entered by the user.
      */
     public void updateSearchQuery(String query) {
+        updateSearchQuery(query, fuzzySearch);
+    }
+
+    /**
+     * Updates the search query and triggers the filtering process.
+     * In fuzzy mode, misspelled terms of four chars or more also match words one edit
+     * away, and terms of eight chars or more words two edits away.
+     *
+     * @param query The search query entered by the user.
+     * @param fuzzy Whether to tolerate typos in the query.
+     */
+    public void updateSearchQuery(String query, boolean fuzzy) {
+        fuzzySearch = fuzzy;
         searchQuery.setValue(query);
     }
 
+    /**
+     * Returns whether the current search tolerates typos.
+     *
+     * @return true if the last query was submitted in fuzzy mode.
+     */
+    public boolean isFuzzySearch() {
+        return fuzzySearch;
+    }
+
+    /**
+     * Retrieves the dictionary used by fuzzy searches, creating it on the first one,
+     * so screens that never search in fuzzy mode do not index the notes' tokens.
+     * Only called on the search thread.
+     *
+     * @return The {@link TermDictionary} of this ViewModel.
+     */
+    private TermDictionary getTermDictionary() {
+        if (termDictionary == null) {
+            termDictionary = new TermDictionary(repository);
+        }
+        return termDictionary;
+    }
+
     /**
      * Handles debouncing for the search query to prevent excessive filtering.
      *
@@ -75,57 +206,72 @@ public class NotesViewModel extends ViewModel {
         }
 
         debounceRunnable = () -> filterNotes(query);
-        // Delay in milliseconds to debounce search
-        handler.postDelayed(debounceRunnable, 500);
+        // The delay adapts to how long recent searches took
+        handler.postDelayed(debounceRunnable, searchWorker.getDebounceMillis());
     }
 
     /**
      * Filters the notes based on the search query.
-     * If the query is empty, all notes are displayed.
+     * If the query is empty, all notes are displayed; otherwise the query is handed to
+     * the search worker, which cancels any older search still running and publishes
+     * the ranked matches once they are ready.
      *
      * @param query The search query entered by the user.
      */
     private void filterNotes(String query) {
-        List<Note> notes = allNotes.getValue();
-        if (notes == null) {
-            filteredNotes.setValue(new ArrayList<>());
-            return;
-        }
-
         if (query == null || query.trim().isEmpty()) {
-            filteredNotes.setValue(notes); // Show all notes if the query is empty
-        } else {
-            List<Note> matchingNotes = new ArrayList<>();
-            for (Note note : notes) {
-                if (note.getTitle().toLowerCase().contains(query.toLowerCase()) ||
-                        note.getSubtitle().toLowerCase().contains(query.toLowerCase()) ||
-                        note.getNoteText().toLowerCase().contains(query.toLowerCase())) {
-                    matchingNotes.add(note);
-                }
+            searchWorker.cancel();
+            Map<Integer, MatchHighlights> highlights = searchHighlights.getValue();
+            if (highlights != null && !highlights.isEmpty()) {
+                searchHighlights.setValue(Collections.emptyMap());
             }
-            filteredNotes.setValue(matchingNotes); // Publish the filtered notes
+            List<NoteSummary> notes = allNotes.getValue();
+            filteredNotes.setValue(notes != null ? notes : new ArrayList<>()); // Show all notes if the query is empty
+            return;
         }
+
+        searchWorker.submit(query, fuzzySearch);
+    }
+
+    /**
+     * Returns the delay currently applied between a keystroke and the search it triggers.
+     *
+     * @return The debounce delay in milliseconds.
+     */
+    public long getSearchDebounceMillis() {
+        return searchWorker.getDebounceMillis();
     }
 
+    /**
+     * Changes the order the notes are listed in. The paged source switches to the
+     * strategy's indexed query, so no list is re-sorted in memory.
+     *
+     * @param strategy The sorting strategy selected by the user.
+     */
     public void setSortingStrategy(NoteSortingStrategy strategy) {
-        this.sortingStrategy = strategy;
-        applySorting();
+        allNotes.setOrder(strategy.getOrder());
     }
 
-    private void applySorting() {
-        List<Note> currentNotes = filteredNotes.getValue();
-        if (currentNotes != null && sortingStrategy != null) {
-            filteredNotes.setValue(sortingStrategy.sort(new ArrayList<>(currentNotes)));
-        }
+    /**
+     * Releases the background search thread when the ViewModel is destroyed,
+     * and stops publishing the completion of pending writes.
+     */
+    @Override
+    protected void onCleared() {
+        cleared = true;
+        handler.removeCallbacksAndMessages(null);
+        repository.removeNoteChangeListener(searchIndexInvalidator);
+        searchWorker.shutdown();
     }
 
     /**
      * Creates and executes a command to add a new note.
      *
      * @param note The note to be added.
+     * @return A future completed once the note has been stored.
      */
-    public void addNoteCommand(Note note) {
-        executeCommand(new AddNoteCommand(repository, note));
+    public CompletableFuture<Void> addNoteCommand(Note note) {
+        return executeCommand(new AddNoteCommand(repository, note));
     }
 
     /**
@@ -133,40 +279,79 @@ public class NotesViewModel extends ViewModel {
      *
      * @param oldNote The original note to be edited.
      * @param newNote The updated note with new data.
+     * @return A future completed once the edit has been stored.
      */
-    public void editNoteCommand(Note oldNote, Note newNote) {
-        executeCommand(new EditNoteCommand(repository, oldNote, newNote));
+    public CompletableFuture<Void> editNoteCommand(Note oldNote, Note newNote) {
+        return executeCommand(new EditNoteCommand(repository, oldNote, newNote));
     }
 
     /**
      * Creates and executes a command to delete a note.
      *
      * @param note The note to be deleted.
+     * @return A future completed once the note has been deleted.
      */
-    public void deleteNoteCommand(Note note) {
-        executeCommand(new DeleteNoteCommand(repository, note));
+    public CompletableFuture<Void> deleteNoteCommand(Note note) {
+        return executeCommand(new DeleteNoteCommand(repository, note));
+    }
+
+    /**
+     * Creates and executes a single command deleting several notes, undone in one step.
+     *
+     * @param notes The notes to be deleted.
+     * @return A future completed once every note has been deleted.
+     */
+    public CompletableFuture<Void> deleteNotesCommand(List<Note> notes) {
+        List<Command> commands = new ArrayList<>(notes.size());
+        for (Note note : notes) commands.add(new DeleteNoteCommand(repository, note));
+        return track(CommandInvoker.executeBatch(new CompositeCommand(repository, commands)));
     }
 
     /**
      * Performs an undo operation on the last executed command, if available.
+     *
+     * @return A future completed once the reverting writes have been stored.
      */
-    public void undoCommand() {
-        CommandInvoker.undo();
+    public CompletableFuture<Void> undoCommand() {
+        return track(CommandInvoker.undo());
     }
 
     /**
      * Performs a redo operation on the last undone command, if available.
+     *
+     * @return A future completed once the writes have been stored.
      */
-    public void redoCommand() {
-        CommandInvoker.redo();
+    public CompletableFuture<Void> redoCommand() {
+        return track(CommandInvoker.redo());
     }
 
     /**
      * Executes a given command via the CommandInvoker.
      *
      * @param command The command to be executed.
+     * @return A future completed once the command's writes have been stored.
+     */
+    private CompletableFuture<Void> executeCommand(Command command) {
+        return track(CommandInvoker.executeCommand(command));
+    }
+
+    /**
+     * Counts a command as pending until its writes complete, successfully or not.
+     * Completions arriving after the ViewModel was cleared are dropped, since nothing
+     * observes the count anymore. Must be called on the main thread.
+     *
+     * @param completion The future of the command's writes.
+     * @return The same future.
      */
-    private void executeCommand(Command command) {
-        CommandInvoker.executeCommand(command);
+    private CompletableFuture<Void> track(CompletableFuture<Void> completion) {
+        if (completion.isDone() || cleared) return completion;
+        pendingCommands.setValue(pendingCommands.getValue() + 1);
+        completion.whenComplete((ignored, error) -> {
+            if (cleared) return;
+            handler.post(() -> {
+                if (!cleared) pendingCommands.setValue(pendingCommands.getValue() - 1);
+            });
+        });
+        return completion;
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,8 @@
 package com.android.mynotes.ui;
 
 // Standard Android libraries
+import android.content.Context;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Build;
 import android.os.Bundle;
@@ -25,6 +24,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
@@ -32,21 +32,26 @@ import androidx.lifecycle.ViewModelProvider;
 import com.android.mynotes.R;
 import com.android.mynotes.data.NotesDatabase;
 import com.android.mynotes.data.NotesRepository;
+import com.android.mynotes.domain.decorators.NoteDecoratorFactory;
 import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteDates;
 import com.android.mynotes.domain.viewmodels.NotesViewModel;
 import com.android.mynotes.ui.facade.NoteFacade;
+import com.android.mynotes.ui.managers.ThumbnailLoader;
 import com.google.android.material.bottomsheet.BottomSheetBehavior;
 
-// Java libraries
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Activity responsible for creating and editing notes.
  */
 public class CreateNoteActivity extends AppCompatActivity {
 
+    /**
+     * Intent extra holding the ID of the note to view or update.
+     */
+    public static final String EXTRA_NOTE_ID = "noteId";
+
     // UI variables
     private EditText inputNoteTitle, inputNoteSubtitle, inputNoteText;
     private TextView textDateTime, textWebURL;
@@ -59,6 +64,7 @@ public class CreateNoteActivity extends AppCompatActivity {
 
     // State
     private Note alreadyAvailableNote;
+    private boolean noteLoading;
 
     // ViewModel
     private NotesViewModel notesViewModel;
@@ -112,9 +118,47 @@ public class CreateNoteActivity extends AppCompatActivity {
 
         // Check if we are viewing/updating an existing note
         if (getIntent().getBooleanExtra("isViewOrUpdate", false)) {
-            alreadyAvailableNote = (Note) getIntent().getSerializableExtra("note");
-            setViewOrUpdateNote();
+            // After a configuration change the fields already hold the user's edits
+            loadNote(getIntent().getIntExtra(EXTRA_NOTE_ID, 0), savedInstanceState == null);
+        }
+    }
+
+    /**
+     * Loads the note to view or update by ID. A note handed over in memory is shown
+     * immediately; otherwise it is read in the background and shown once loaded.
+     *
+     * @param noteId     The ID of the note.
+     * @param fillFields Whether to write the note's text into the input fields.
+     */
+    private void loadNote(int noteId, boolean fillFields) {
+        Note cached = notesViewModel.getCachedNote(noteId);
+        if (cached != null) {
+            onNoteLoaded(cached, fillFields);
+            return;
         }
+        noteLoading = true;
+        notesViewModel.loadNote(noteId).thenAcceptAsync(note -> {
+            if (isFinishing() || isDestroyed()) return;
+            noteLoading = false;
+            if (note == null) {
+                showToast("Note not found!");
+                finish();
+                return;
+            }
+            onNoteLoaded(note, fillFields);
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    /**
+     * Displays the loaded note and enables the options only available for existing notes.
+     *
+     * @param note       The loaded note.
+     * @param fillFields Whether to write the note's text into the input fields.
+     */
+    private void onNoteLoaded(Note note, boolean fillFields) {
+        alreadyAvailableNote = note;
+        setViewOrUpdateNote(fillFields);
+        setupDeleteNoteButton();
     }
 
     /**
@@ -122,7 +166,7 @@ public class CreateNoteActivity extends AppCompatActivity {
      */
     private void initializeViewModel() {
         NotesDatabase database = NotesDatabase.getDataBase(this);
-        NotesRepository repository = new NotesRepository(database);
+        NotesRepository repository = NotesRepository.getInstance(database);
         notesViewModel = new ViewModelProvider(this, new ViewModelProvider.Factory() {
             @NonNull
             @Override
@@ -169,21 +213,13 @@ public class CreateNoteActivity extends AppCompatActivity {
         });
 
         // Set current date/time in the TextView
-        textDateTime.setText(
-                new SimpleDateFormat("EEEE, dd MMMM yyyy HH:mm a", Locale.getDefault()).format(new Date())
-        );
+        textDateTime.setText(NoteDates.format(System.currentTimeMillis()));
 
         // Only set up miscellaneous UI (BottomSheet) if on Android 13+ (TIRAMISU)
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             setupMiscellaneous();
         }
 
-        // If editing an existing note, enable the "Delete Note" option
-        if (getIntent().getBooleanExtra("isViewOrUpdate", false)) {
-            alreadyAvailableNote = (Note) getIntent().getSerializableExtra("note");
-            setViewOrUpdateNote();
-            setupDeleteNoteButton();
-        }
     }
 
     /**
@@ -279,7 +315,7 @@ public class CreateNoteActivity extends AppCompatActivity {
             }
 
             view.findViewById(R.id.textDeleteNote).setOnClickListener(v -> {
-                notesViewModel.deleteNoteCommand(alreadyAvailableNote);
+                reportFailure(notesViewModel.deleteNoteCommand(alreadyAvailableNote), "Unable to delete the note!");
                 dialogDeleteNote.dismiss();
                 finish();
             });
@@ -292,18 +328,25 @@ public class CreateNoteActivity extends AppCompatActivity {
     /**
      * Populates the UI with the content of an existing note if the user is editing.
      * This includes text, image, URL, and color.
+     *
+     * @param fillFields Whether to write the note's text into the input fields.
      */
-    private void setViewOrUpdateNote() {
-        inputNoteTitle.setText(alreadyAvailableNote.getTitle());
-        inputNoteSubtitle.setText(alreadyAvailableNote.getSubtitle());
-        inputNoteText.setText(alreadyAvailableNote.getNoteText());
-        textDateTime.setText(alreadyAvailableNote.getDateTime());
+    private void setViewOrUpdateNote(boolean fillFields) {
+        if (fillFields) {
+            inputNoteTitle.setText(alreadyAvailableNote.getTitle());
+            inputNoteSubtitle.setText(alreadyAvailableNote.getSubtitle());
+            inputNoteText.setText(alreadyAvailableNote.getNoteText());
+        }
+        textDateTime.setText(NoteDates.formatForDisplay(alreadyAvailableNote));
 
         // Load image if it exists
         if (alreadyAvailableNote.getImagePath() != null &&
                 !alreadyAvailableNote.getImagePath().trim().isEmpty()) {
-            Bitmap bitmap = BitmapFactory.decodeFile(alreadyAvailableNote.getImagePath());
-            imageNote.setImageBitmap(bitmap);
+            ThumbnailLoader.getInstance(this).load(
+                    alreadyAvailableNote.getImagePath(),
+                    getResources().getDisplayMetrics().widthPixels,
+                    imageNote::setImageBitmap
+            );
             imageNote.setVisibility(View.VISIBLE);
             findViewById(R.id.imageRemoveImage).setVisibility(View.VISIBLE);
             noteFacade.setSelectedImagePath(alreadyAvailableNote.getImagePath());
@@ -331,24 +374,34 @@ public class CreateNoteActivity extends AppCompatActivity {
      * After saving, the Activity finishes.
      */
     private void saveNote() {
+        // Saving before the note is loaded would store the edits as a new note
+        if (noteLoading) return;
         if (!validateFields()) return;
 
+        long now = System.currentTimeMillis();
         Note note = new Note.Builder()
                 .setTitle(inputNoteTitle.getText().toString())
                 .setSubtitle(inputNoteSubtitle.getText().toString())
                 .setNoteText(inputNoteText.getText().toString())
                 .setDateTime(textDateTime.getText().toString())
-                .setColor(noteFacade.getSelectedColor()) // Color handling
+                .setColor(noteFacade.getSelectedColor() != null
+                        ? noteFacade.getSelectedColor()
+                        : NoteDecoratorFactory.DEFAULT_COLOR) // Color handling
                 .setImagePath(noteFacade.getSelectedImagePath())  // Image handling
                 .setWebLink(noteFacade.getWebURL())                 // URL handling
+                .setCreatedAt(now)
+                .setUpdatedAt(now)
                 .build();
 
         if (alreadyAvailableNote != null) {
             note.setId(alreadyAvailableNote.getId());
-            note.setDateTime(new SimpleDateFormat("EEEE, dd MMMM yyyy HH:mm a", Locale.getDefault()).format(new Date()));
-            notesViewModel.editNoteCommand(alreadyAvailableNote, note);
+            note.setDateTime(NoteDates.format(now));
+            if (alreadyAvailableNote.getCreatedAt() > 0) {
+                note.setCreatedAt(alreadyAvailableNote.getCreatedAt());
+            }
+            reportFailure(notesViewModel.editNoteCommand(alreadyAvailableNote, note), "Unable to save the note!");
         } else {
-            notesViewModel.addNoteCommand(note);
+            reportFailure(notesViewModel.addNoteCommand(note), "Unable to save the note!");
         }
         finish();
     }
@@ -379,4 +432,18 @@ public class CreateNoteActivity extends AppCompatActivity {
     private void showToast(String message) {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
-}
\ No newline at end of file
+
+    /**
+     * Shows a Toast if a queued write fails. The application context is used, since
+     * the write usually completes after this screen has been closed.
+     *
+     * @param write   The future of the write.
+     * @param message The message to be displayed if the write fails.
+     */
+    private void reportFailure(CompletableFuture<Void> write, String message) {
+        Context context = getApplicationContext();
+        write.whenCompleteAsync((ignored, error) -> {
+            if (error != null) Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+        }, ContextCompat.getMainExecutor(context));
+    }
+}
@@ -1,6 +1,7 @@
 package com.android.mynotes.ui;
 
 import android.app.AlertDialog;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
@@ -9,10 +10,13 @@ import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.EditText;
+import android.widget.ImageView;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.RecyclerView;
@@ -21,6 +25,7 @@ import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 import com.android.mynotes.R;
 import com.android.mynotes.data.NotesDatabase;
 import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteSummary;
 import com.android.mynotes.data.NotesRepository;
 import com.android.mynotes.domain.strategy.NoteSortingStrategy;
 import com.android.mynotes.domain.strategy.SortByColorStrategy;
@@ -30,15 +35,30 @@ import com.android.mynotes.domain.viewmodels.NotesViewModel;
 import com.google.android.material.button.MaterialButtonToggleGroup;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main activity that displays a list of notes. Users can create new notes,
  * update existing ones, or perform undo/redo operations.
+ * A long press selects a note; while notes are selected, a tap toggles the selection
+ * and the selected notes can be deleted together, undone in a single step.
  */
 public class MainActivity extends AppCompatActivity implements NotesListener {
 
+    /**
+     * Opacity of the undo and redo buttons while commands are still being written.
+     */
+    private static final float PENDING_ALPHA = 0.5f;
+
     private NotesAdapter notesAdapter;
     private NotesViewModel notesViewModel;
+    private final Set<Integer> selectedNoteIds = new LinkedHashSet<>();
+    private View imageDeleteSelected;
+    private AlertDialog dialogDeleteNotes;
 
     /**
      * Called when the activity is first created.
@@ -52,7 +72,7 @@ public class MainActivity extends AppCompatActivity implements NotesListener {
         setContentView(R.layout.activity_main);
 
         NotesDatabase database = NotesDatabase.getDataBase(this);
-        NotesRepository repository = new NotesRepository(database);
+        NotesRepository repository = NotesRepository.getInstance(database);
         notesViewModel = new ViewModelProvider(this, new ViewModelProvider.Factory() {
             @NonNull
             @Override
@@ -72,22 +92,66 @@ public class MainActivity extends AppCompatActivity implements NotesListener {
      */
     private void setupUI() {
         RecyclerView notesRecyclerView = findViewById(R.id.notesRecyclerView);
-        notesRecyclerView.setLayoutManager(new StaggeredGridLayoutManager(
+        StaggeredGridLayoutManager layoutManager = new StaggeredGridLayoutManager(
                 2,
                 StaggeredGridLayoutManager.VERTICAL
-        ));
+        );
+        layoutManager.setItemPrefetchEnabled(true);
+        notesRecyclerView.setLayoutManager(layoutManager);
+        notesRecyclerView.setHasFixedSize(true);
 
-        notesAdapter = new NotesAdapter(new ArrayList<>(), this);
+        // Keep enough holders of each card type to refill two columns without inflating
+        RecyclerView.RecycledViewPool viewPool = notesRecyclerView.getRecycledViewPool();
+        viewPool.setMaxRecycledViews(NotesAdapter.VIEW_TYPE_TEXT, 20);
+        viewPool.setMaxRecycledViews(NotesAdapter.VIEW_TYPE_IMAGE, 12);
+        notesRecyclerView.setItemViewCacheSize(6);
+
+        notesAdapter = new NotesAdapter(this);
         notesRecyclerView.setAdapter(notesAdapter);
+        notesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Request the adjacent page when the visible notes approach either end of the loaded window
+                StaggeredGridLayoutManager layoutManager =
+                        (StaggeredGridLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager == null) return;
+                int firstVisible = Integer.MAX_VALUE;
+                for (int position : layoutManager.findFirstVisibleItemPositions(null)) {
+                    if (position != RecyclerView.NO_POSITION) firstVisible = Math.min(firstVisible, position);
+                }
+                int lastVisible = RecyclerView.NO_POSITION;
+                for (int position : layoutManager.findLastVisibleItemPositions(null)) {
+                    lastVisible = Math.max(lastVisible, position);
+                }
+                if (lastVisible != RecyclerView.NO_POSITION) {
+                    notesViewModel.loadAround(Math.min(firstVisible, lastVisible), lastVisible);
+                }
+            }
+        });
 
         findViewById(R.id.imageAddNoteMain).setOnClickListener(v -> openCreateNoteActivity());
 
         findViewById(R.id.imageSort).setOnClickListener(v -> showSortDialog());
 
-        findViewById(R.id.imageUndo).setOnClickListener(v -> notesViewModel.undoCommand());
-        findViewById(R.id.imageRedo).setOnClickListener(v -> notesViewModel.redoCommand());
+        findViewById(R.id.imageUndo).setOnClickListener(v ->
+                reportFailure(notesViewModel.undoCommand(), "Unable to undo!"));
+        findViewById(R.id.imageRedo).setOnClickListener(v ->
+                reportFailure(notesViewModel.redoCommand(), "Unable to redo!"));
+
+        imageDeleteSelected = findViewById(R.id.imageDeleteSelected);
+        imageDeleteSelected.setOnClickListener(v -> showDeleteNotesDialog());
 
         EditText inputSearch = findViewById(R.id.inputSearch);
+        ImageView imageSearch = findViewById(R.id.imageSearch);
+        showSearchMode(imageSearch, notesViewModel.isFuzzySearch());
+        imageSearch.setOnClickListener(v -> {
+            // Toggles typo-tolerant search and re-runs the current query in the new mode
+            boolean fuzzy = !notesViewModel.isFuzzySearch();
+            notesViewModel.updateSearchQuery(inputSearch.getText().toString(), fuzzy);
+            showSearchMode(imageSearch, fuzzy);
+            Toast.makeText(this, fuzzy ? R.string.typo_tolerant_search_on : R.string.typo_tolerant_search_off,
+                    Toast.LENGTH_SHORT).show();
+        });
         inputSearch.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {
@@ -107,9 +171,21 @@ public class MainActivity extends AppCompatActivity implements NotesListener {
         });
     }
 
+    /**
+     * Marks the search icon as activated while typo-tolerant search is on, which tints it
+     * with the accent color (see {@code search_mode_tint}).
+     *
+     * @param imageSearch The search icon.
+     * @param fuzzy       Whether typo-tolerant search is on.
+     */
+    private void showSearchMode(ImageView imageSearch, boolean fuzzy) {
+        imageSearch.setActivated(fuzzy);
+    }
+
     /**
      * Observes changes in the notes data from the ViewModel.
-     * Updates the adapter whenever the notes list is modified.
+     * Updates the adapter whenever the notes list or the search highlights are modified,
+     * and the undo and redo buttons whenever the number of pending commands changes.
      */
     private void observeViewModel() {
         notesViewModel.getNotes().observe(this, notes -> {
@@ -117,6 +193,19 @@ public class MainActivity extends AppCompatActivity implements NotesListener {
                 notesAdapter.updateNotes(notes);
             }
         });
+        notesViewModel.getSearchHighlights().observe(this, highlights -> {
+            if (notesAdapter != null) {
+                notesAdapter.setHighlights(highlights);
+            }
+        });
+        // Dim undo and redo while earlier writes are still landing; taps are queued behind them
+        View imageUndo = findViewById(R.id.imageUndo);
+        View imageRedo = findViewById(R.id.imageRedo);
+        notesViewModel.getPendingCommands().observe(this, pending -> {
+            float alpha = pending != null && pending > 0 ? PENDING_ALPHA : 1f;
+            imageUndo.setAlpha(alpha);
+            imageRedo.setAlpha(alpha);
+        });
     }
 
     /**
@@ -127,6 +216,92 @@ public class MainActivity extends AppCompatActivity implements NotesListener {
         startActivity(intent);
     }
 
+    /**
+     * Adds a note to the selection, or removes it if it is already selected,
+     * and shows the delete action while any note is selected.
+     *
+     * @param noteId The ID of the note.
+     */
+    private void toggleSelection(int noteId) {
+        if (!selectedNoteIds.remove(noteId)) {
+            selectedNoteIds.add(noteId);
+        }
+        notesAdapter.setSelectedIds(new HashSet<>(selectedNoteIds));
+        imageDeleteSelected.setVisibility(selectedNoteIds.isEmpty() ? View.GONE : View.VISIBLE);
+    }
+
+    /**
+     * Clears the selection and hides the delete action.
+     */
+    private void clearSelection() {
+        selectedNoteIds.clear();
+        notesAdapter.setSelectedIds(null);
+        imageDeleteSelected.setVisibility(View.GONE);
+    }
+
+    /**
+     * Asks for confirmation before deleting the selected notes.
+     */
+    private void showDeleteNotesDialog() {
+        if (dialogDeleteNotes == null) {
+            AlertDialog.Builder builder = new AlertDialog.Builder(MainActivity.this);
+            View view = LayoutInflater.from(this).inflate(
+                    R.layout.layout_delete_note,
+                    findViewById(R.id.layoutDeleteNoteContainer)
+            );
+            builder.setView(view);
+            dialogDeleteNotes = builder.create();
+            if (dialogDeleteNotes.getWindow() != null) {
+                dialogDeleteNotes.getWindow().setBackgroundDrawable(new ColorDrawable(0));
+            }
+
+            TextView message = view.findViewById(R.id.textDeleteNoteMessage);
+            message.setText(R.string.are_you_sure_you_want_to_delete_the_selected_notes);
+
+            view.findViewById(R.id.textDeleteNote).setOnClickListener(v -> {
+                deleteSelectedNotes();
+                dialogDeleteNotes.dismiss();
+            });
+
+            view.findViewById(R.id.textCancel).setOnClickListener(v -> dialogDeleteNotes.dismiss());
+        }
+        dialogDeleteNotes.show();
+    }
+
+    /**
+     * Loads the selected notes in the background, then deletes them with a single command,
+     * so one undo restores all of them. Notes deleted meanwhile are skipped.
+     */
+    private void deleteSelectedNotes() {
+        List<CompletableFuture<Note>> loads = new ArrayList<>(selectedNoteIds.size());
+        for (int noteId : selectedNoteIds) loads.add(notesViewModel.loadNote(noteId));
+        clearSelection();
+
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).thenRunAsync(() -> {
+            if (isFinishing() || isDestroyed()) return;
+            List<Note> notes = new ArrayList<>(loads.size());
+            for (CompletableFuture<Note> load : loads) {
+                Note note = load.join();
+                if (note != null) notes.add(note);
+            }
+            reportFailure(notesViewModel.deleteNotesCommand(notes), "Unable to delete the notes!");
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    /**
+     * Shows a Toast if a queued write fails. A failed batch is rolled back as a whole,
+     * so none of its notes were changed.
+     *
+     * @param write   The future of the write.
+     * @param message The message to be displayed if the write fails.
+     */
+    private void reportFailure(CompletableFuture<Void> write, String message) {
+        Context context = getApplicationContext();
+        write.whenCompleteAsync((ignored, error) -> {
+            if (error != null) Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+        }, ContextCompat.getMainExecutor(context));
+    }
+
     private void showSortDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(MainActivity.this);
         View view = LayoutInflater.from(this).inflate(
@@ -170,16 +345,36 @@ public class MainActivity extends AppCompatActivity implements NotesListener {
 
     /**
      * Invoked when a note is clicked in the RecyclerView.
-     * Opens the CreateNoteActivity to view or update the selected note.
+     * Opens the CreateNoteActivity to view or update the selected note, or toggles its
+     * selection while notes are selected for deletion. Only the note's ID
+     * is passed along; the note is loaded meanwhile, so the opened screen usually finds
+     * it in the repository's hand-off cache.
      *
-     * @param note     The note that was clicked.
+     * @param note     The summary of the note that was clicked.
      * @param position The position of the clicked note in the list.
      */
     @Override
-    public void onNoteClicked(Note note, int position) {
+    public void onNoteClicked(NoteSummary note, int position) {
+        if (!selectedNoteIds.isEmpty()) {
+            toggleSelection(note.getId());
+            return;
+        }
+        notesViewModel.loadNote(note.getId());
         Intent intent = new Intent(this, CreateNoteActivity.class);
         intent.putExtra("isViewOrUpdate", true);
-        intent.putExtra("note", note);
+        intent.putExtra(CreateNoteActivity.EXTRA_NOTE_ID, note.getId());
         startActivity(intent);
     }
-}
\ No newline at end of file
+
+    /**
+     * Invoked when a note is long-pressed in the RecyclerView.
+     * Selects the note for deletion, or unselects it if it is already selected.
+     *
+     * @param note     The summary of the note that was long-pressed.
+     * @param position The position of the long-pressed note in the list.
+     */
+    @Override
+    public void onNoteLongClicked(NoteSummary note, int position) {
+        toggleSelection(note.getId());
+    }
+}
@@ -1,11 +1,9 @@
 package com.android.mynotes.ui;
 
-import android.annotation.SuppressLint;
-import android.graphics.BitmapFactory;
-import android.graphics.Color;
 import android.graphics.drawable.GradientDrawable;
-import android.os.Handler;
-import android.os.Looper;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,37 +11,92 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.mynotes.R;
-import com.android.mynotes.domain.decorators.NoteComponent;
 import com.android.mynotes.domain.decorators.NoteDecoratorFactory;
-import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteSummary;
+import com.android.mynotes.domain.entities.NoteDates;
+import com.android.mynotes.domain.search.MatchHighlights;
+import com.android.mynotes.ui.managers.ThumbnailLoader;
 import com.makeramen.roundedimageview.RoundedImageView;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Adapter class for displaying a list of notes in a RecyclerView.
- * This adapter binds Note objects to the views defined in the item_container_note layout.
+ * This adapter binds {@link NoteSummary} rows to the views defined in the item_container_note layout.
+ * New lists are diffed against the current one on a background thread, so only the
+ * notes that were added, removed, moved or changed are rebound. Null items are placeholders
+ * for notes the pager dropped or has not read back yet, and are shown as blank cards.
  */
-public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHolder> {
+public class NotesAdapter extends ListAdapter<NoteSummary, NotesAdapter.NoteViewHolder> {
+
+    /**
+     * Identifies notes by their ID and compares every displayed field to detect changes.
+     */
+    private static final DiffUtil.ItemCallback<NoteSummary> DIFF_CALLBACK = new DiffUtil.ItemCallback<NoteSummary>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NoteSummary oldNote, @NonNull NoteSummary newNote) {
+            return oldNote.getId() == newNote.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NoteSummary oldNote, @NonNull NoteSummary newNote) {
+            return Objects.equals(oldNote.getTitle(), newNote.getTitle())
+                    && Objects.equals(oldNote.getSubtitle(), newNote.getSubtitle())
+                    && Objects.equals(oldNote.getDateTime(), newNote.getDateTime())
+                    && oldNote.getUpdatedAt() == newNote.getUpdatedAt()
+                    && Objects.equals(oldNote.getColor(), newNote.getColor())
+                    && Objects.equals(oldNote.getImagePath(), newNote.getImagePath());
+        }
+    };
+
+    /**
+     * View type for cards showing only text.
+     */
+    public static final int VIEW_TYPE_TEXT = 0;
+
+    /**
+     * View type for cards showing an image above the text.
+     */
+    public static final int VIEW_TYPE_IMAGE = 1;
+
+    /**
+     * Payload of a rebind that only refreshes the search highlights of a card.
+     */
+    private static final Object PAYLOAD_HIGHLIGHTS = new Object();
+
+    /**
+     * Payload of a rebind that only refreshes whether a card is shown as selected.
+     */
+    private static final Object PAYLOAD_SELECTION = new Object();
+
+    /**
+     * Opacity of the cards selected for deletion.
+     */
+    private static final float SELECTED_ALPHA = 0.5f;
 
-    private List<Note> notes;
     private final NotesListener notesListener;
+    private Map<Integer, MatchHighlights> highlights = Collections.emptyMap();
+    private Set<Integer> selectedIds = Collections.emptySet();
 
     /**
-     * Constructs a NotesAdapter with the provided notes list and listener.
+     * Constructs a NotesAdapter with the provided listener.
      *
-     * @param notes         The initial list of notes to be displayed.
      * @param notesListener An implementation of NotesListener to handle note click events.
      */
-    public NotesAdapter(List<Note> notes, NotesListener notesListener) {
-        this.notes = notes;
+    public NotesAdapter(NotesListener notesListener) {
+        super(DIFF_CALLBACK);
         this.notesListener = notesListener;
+        setHasStableIds(true);
     }
 
     /**
@@ -56,13 +109,18 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
     @NonNull
     @Override
     public NoteViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        return new NoteViewHolder(
+        NoteViewHolder holder = new NoteViewHolder(
                 LayoutInflater.from(parent.getContext()).inflate(
                         R.layout.item_container_note,
                         parent,
                         false
                 )
         );
+        // The image slot is fixed per view type, so it is only toggled once per holder
+        holder.imageNote.setVisibility(viewType == VIEW_TYPE_IMAGE ? View.VISIBLE : View.GONE);
+        // Cards fill one of the two grid columns
+        holder.thumbnailWidth = parent.getResources().getDisplayMetrics().widthPixels / 2;
+        return holder;
     }
 
     /**
@@ -73,43 +131,128 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
      */
     @Override
     public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
-        holder.setNote(notes.get(position));
-        holder.layoutNote.setOnClickListener(v ->
-                notesListener.onNoteClicked(notes.get(position), position)
-        );
+        NoteSummary note = getItem(position);
+        if (note == null) {
+            holder.setPlaceholder();
+            return;
+        }
+        holder.setNote(note);
+        holder.setHighlights(note, highlights.get(note.getId()));
+        holder.setSelected(selectedIds.contains(note.getId()));
+        holder.layoutNote.setOnClickListener(v -> {
+            int adapterPosition = holder.getBindingAdapterPosition();
+            NoteSummary clicked = adapterPosition != RecyclerView.NO_POSITION ? getItem(adapterPosition) : null;
+            if (clicked != null) {
+                notesListener.onNoteClicked(clicked, adapterPosition);
+            }
+        });
+        holder.layoutNote.setOnLongClickListener(v -> {
+            int adapterPosition = holder.getBindingAdapterPosition();
+            NoteSummary clicked = adapterPosition != RecyclerView.NO_POSITION ? getItem(adapterPosition) : null;
+            if (clicked == null) return false;
+            notesListener.onNoteLongClicked(clicked, adapterPosition);
+            return true;
+        });
+    }
+
+    /**
+     * Binds an item, only re-applying the search highlights or the selection when that is all that changed.
+     *
+     * @param holder   The ViewHolder which should be updated.
+     * @param position The position of the item within the adapter's data set.
+     * @param payloads The partial-update payloads, empty for a full bind.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull NoteViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || !payloads.stream().allMatch(
+                payload -> payload == PAYLOAD_HIGHLIGHTS || payload == PAYLOAD_SELECTION)) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        NoteSummary note = getItem(position);
+        if (note == null) return;
+        if (payloads.contains(PAYLOAD_HIGHLIGHTS)) {
+            holder.setHighlights(note, highlights.get(note.getId()));
+        }
+        if (payloads.contains(PAYLOAD_SELECTION)) {
+            holder.setSelected(selectedIds.contains(note.getId()));
+        }
     }
 
     /**
-     * Returns the total number of notes in the adapter.
+     * Cancels the pending thumbnail load of a holder that is being recycled,
+     * so a late decode never lands on the card it is rebound to.
      *
-     * @return The size of the notes list.
+     * @param holder The ViewHolder being recycled.
      */
     @Override
-    public int getItemCount() {
-        return notes.size();
+    public void onViewRecycled(@NonNull NoteViewHolder holder) {
+        holder.cancelThumbnail();
+    }
+
+    /**
+     * Returns a stable identifier for the note at the given position, its database ID.
+     * Placeholders have no identity of their own, since the note they stand for is not
+     * loaded, so they report {@link RecyclerView#NO_ID}.
+     *
+     * @param position The position of the item.
+     * @return The ID of the note at that position, or {@link RecyclerView#NO_ID} for a placeholder.
+     */
+    @Override
+    public long getItemId(int position) {
+        NoteSummary note = getItem(position);
+        return note != null ? note.getId() : RecyclerView.NO_ID;
     }
 
     /**
      * Returns the view type of the item at the given position.
-     * Here, it simply returns the position itself.
+     * Cards with an image and text-only cards are pooled separately, so a recycled
+     * holder always matches the shape of the card it is rebound to.
      *
      * @param position The position of the item.
-     * @return The view type (in this case, the position).
+     * @return {@link #VIEW_TYPE_IMAGE} if the note has an image, {@link #VIEW_TYPE_TEXT} otherwise.
      */
     @Override
     public int getItemViewType(int position) {
-        return position;
+        NoteSummary note = getItem(position);
+        String imagePath = note != null ? note.getImagePath() : null;
+        return imagePath != null && !imagePath.trim().isEmpty() ? VIEW_TYPE_IMAGE : VIEW_TYPE_TEXT;
     }
 
     /**
-     * Updates the notes list and refreshes the RecyclerView.
+     * Submits a new notes list. The difference with the current list is computed
+     * on a background thread and only the affected items are updated.
      *
      * @param notes The new list of notes to be displayed.
      */
-    @SuppressLint("NotifyDataSetChanged")
-    public void updateNotes(List<Note> notes) {
-        this.notes = notes;
-        notifyDataSetChanged();
+    public void updateNotes(List<NoteSummary> notes) {
+        submitList(notes);
+    }
+
+    /**
+     * Sets the search matches to highlight, keyed by note ID. Cards already bound
+     * only have their title and subtitle spans refreshed.
+     *
+     * @param highlights The {@link MatchHighlights} of each note, empty to clear them.
+     */
+    public void setHighlights(Map<Integer, MatchHighlights> highlights) {
+        if (highlights == null) highlights = Collections.emptyMap();
+        if (this.highlights.isEmpty() && highlights.isEmpty()) return;
+        this.highlights = highlights;
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_HIGHLIGHTS);
+    }
+
+    /**
+     * Sets the notes shown as selected, keyed by note ID. Cards already bound only have
+     * their selection state refreshed.
+     *
+     * @param selectedIds The IDs of the selected notes, empty to clear the selection.
+     */
+    public void setSelectedIds(Set<Integer> selectedIds) {
+        if (selectedIds == null) selectedIds = Collections.emptySet();
+        if (this.selectedIds.isEmpty() && selectedIds.isEmpty()) return;
+        this.selectedIds = selectedIds;
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
     }
 
     /**
@@ -120,6 +263,8 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
         TextView textTitle, textSubtitle, textDateTime;
         LinearLayout layoutNote;
         RoundedImageView imageNote;
+        int thumbnailWidth;
+        private ThumbnailLoader.Request thumbnailRequest;
 
         /**
          * Initializes the UI components from the item layout.
@@ -138,9 +283,9 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
         /**
          * Sets the note information into the appropriate UI components.
          *
-         * @param note The Note object containing data to display.
+         * @param note The NoteSummary object containing data to display.
          */
-        void setNote(Note note) {
+        void setNote(NoteSummary note) {
             textTitle.setText(note.getTitle());
 
             if (note.getSubtitle().trim().isEmpty()) {
@@ -150,17 +295,90 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
                 textSubtitle.setVisibility(View.VISIBLE);
             }
 
-            textDateTime.setText(note.getDateTime());
+            textDateTime.setText(NoteDates.formatForDisplay(note));
 
             GradientDrawable gradientDrawable = (GradientDrawable) layoutNote.getBackground();
-            NoteComponent decoratedNote = NoteDecoratorFactory.getDecorator(note);
-            gradientDrawable.setColor(Color.parseColor(decoratedNote.getColor()));
+            gradientDrawable.setColor(NoteDecoratorFactory.getColorArgb(note.getColor()));
 
-            if (note.getImagePath() != null) {
-                imageNote.setImageBitmap(BitmapFactory.decodeFile(note.getImagePath()));
-                imageNote.setVisibility(View.VISIBLE);
-            } else {
-                imageNote.setVisibility(View.GONE);
+            if (getItemViewType() == VIEW_TYPE_IMAGE) {
+                cancelThumbnail();
+                imageNote.setImageDrawable(null);
+                thumbnailRequest = ThumbnailLoader.getInstance(itemView.getContext()).load(
+                        note.getImagePath(),
+                        thumbnailWidth,
+                        imageNote::setImageBitmap
+                );
+            }
+        }
+
+        /**
+         * Shows a blank card for a note that is not loaded.
+         */
+        void setPlaceholder() {
+            cancelThumbnail();
+            textTitle.setText(null);
+            textSubtitle.setVisibility(View.GONE);
+            textDateTime.setText(null);
+            layoutNote.setOnClickListener(null);
+            layoutNote.setOnLongClickListener(null);
+            setSelected(false);
+            GradientDrawable gradientDrawable = (GradientDrawable) layoutNote.getBackground();
+            gradientDrawable.setColor(NoteDecoratorFactory.getColorArgb(NoteDecoratorFactory.DEFAULT_COLOR));
+        }
+
+        /**
+         * Dims the card while its note is selected for deletion.
+         *
+         * @param selected Whether the note is selected.
+         */
+        void setSelected(boolean selected) {
+            layoutNote.setAlpha(selected ? SELECTED_ALPHA : 1f);
+        }
+
+        /**
+         * Highlights the matched ranges of the title and subtitle, or shows them plain.
+         *
+         * @param note       The note bound to this holder.
+         * @param highlights The matched ranges of the note, or null if it is not a search match.
+         */
+        void setHighlights(NoteSummary note, MatchHighlights highlights) {
+            if (highlights == null) {
+                textTitle.setText(note.getTitle());
+                textSubtitle.setText(note.getSubtitle());
+                return;
+            }
+            int color = ContextCompat.getColor(itemView.getContext(), R.color.colorSearchHighlight);
+            textTitle.setText(highlight(note.getTitle(), highlights.getTitleRanges(), color));
+            textSubtitle.setText(highlight(note.getSubtitle(), highlights.getSubtitleRanges(), color));
+        }
+
+        /**
+         * Applies a background span over each matched range of a text.
+         *
+         * @param text   The displayed text.
+         * @param ranges The matched ranges as {@code start, end} pairs.
+         * @param color  The highlight color.
+         * @return The text, spanned if any range matched.
+         */
+        private static CharSequence highlight(String text, int[] ranges, int color) {
+            if (text == null || ranges.length == 0) return text;
+            SpannableString spannable = new SpannableString(text);
+            for (int i = 0; i + 1 < ranges.length; i += 2) {
+                int end = Math.min(ranges[i + 1], text.length());
+                if (ranges[i] < end) {
+                    spannable.setSpan(new BackgroundColorSpan(color), ranges[i], end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+            }
+            return spannable;
+        }
+
+        /**
+         * Cancels the thumbnail load started by the last bind, if it is still pending.
+         */
+        void cancelThumbnail() {
+            if (thumbnailRequest != null) {
+                thumbnailRequest.cancel();
+                thumbnailRequest = null;
             }
         }
     }
@@ -1,6 +1,6 @@
 package com.android.mynotes.ui;
 
-import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteSummary;
 
 /**
  * Listener interface for handling note-related events, such as when a note is clicked.
@@ -10,8 +10,16 @@ public interface NotesListener {
     /**
      * Called when a note is clicked in the list.
      *
-     * @param note     The note that was clicked.
+     * @param note     The summary of the note that was clicked.
      * @param position The position of the clicked note in the list.
      */
-    void onNoteClicked(Note note, int position);
-}
\ No newline at end of file
+    void onNoteClicked(NoteSummary note, int position);
+
+    /**
+     * Called when a note is long-pressed in the list.
+     *
+     * @param note     The summary of the note that was long-pressed.
+     * @param position The position of the long-pressed note in the list.
+     */
+    void onNoteLongClicked(NoteSummary note, int position);
+}
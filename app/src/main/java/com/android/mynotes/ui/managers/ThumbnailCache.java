@@ -0,0 +1,221 @@
+package com.android.mynotes.ui.managers;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Two-tier cache for note thumbnails.
+ * The first tier is an in-memory LRU bounded by the byte size of the bitmaps it holds;
+ * the second is a directory of small pre-scaled JPEG files that survives process restarts.
+ * Entries are keyed by the source path, its last modification time and the thumbnail width,
+ * so replacing an image on disk never serves a stale thumbnail.
+ */
+public class ThumbnailCache {
+
+    /**
+     * Snapshot of the cache counters.
+     */
+    public static final class Stats {
+        public final int memoryHits;
+        public final int memoryMisses;
+        public final int memoryEvictions;
+        public final int memorySizeBytes;
+        public final int diskHits;
+        public final int diskMisses;
+        public final int diskEvictions;
+
+        Stats(int memoryHits, int memoryMisses, int memoryEvictions, int memorySizeBytes,
+              int diskHits, int diskMisses, int diskEvictions) {
+            this.memoryHits = memoryHits;
+            this.memoryMisses = memoryMisses;
+            this.memoryEvictions = memoryEvictions;
+            this.memorySizeBytes = memorySizeBytes;
+            this.diskHits = diskHits;
+            this.diskMisses = diskMisses;
+            this.diskEvictions = diskEvictions;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "memory[hits=%d, misses=%d, evictions=%d, size=%dB] disk[hits=%d, misses=%d, evictions=%d]",
+                    memoryHits, memoryMisses, memoryEvictions, memorySizeBytes,
+                    diskHits, diskMisses, diskEvictions);
+        }
+    }
+
+    private static final String TAG = "ThumbnailCache";
+    private static final int JPEG_QUALITY = 85;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final File diskDirectory;
+    private final long maxDiskBytes;
+
+    private int diskHits;
+    private int diskMisses;
+    private int diskEvictions;
+
+    /**
+     * Constructs a ThumbnailCache.
+     *
+     * @param diskDirectory  Directory holding the on-disk thumbnails.
+     * @param maxMemoryBytes Maximum total byte size of the bitmaps kept in memory.
+     * @param maxDiskBytes   Maximum total size of the thumbnail files kept on disk.
+     */
+    public ThumbnailCache(File diskDirectory, int maxMemoryBytes, long maxDiskBytes) {
+        this.diskDirectory = diskDirectory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memoryCache = new LruCache<String, Bitmap>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Builds the cache key for a version of an image at a given thumbnail width.
+     * Performs no I/O; the modification time is read by the caller off the main thread.
+     *
+     * @param path         The file path of the source image.
+     * @param lastModified The modification time of the source file.
+     * @param width        The thumbnail width in pixels.
+     * @return A key that changes whenever the source file is modified.
+     */
+    public static String keyFor(String path, long lastModified, int width) {
+        return path + '@' + lastModified + '#' + width;
+    }
+
+    /**
+     * Returns the thumbnail held in memory for {@code key}. Safe to call on the main thread.
+     *
+     * @param key The key built by {@link #keyFor(String, long, int)}.
+     * @return The cached bitmap, or null on a miss.
+     */
+    public Bitmap getFromMemory(String key) {
+        return memoryCache.get(key);
+    }
+
+    /**
+     * Reads the thumbnail for {@code key} from disk and promotes it to memory.
+     * Performs I/O and must not be called on the main thread.
+     *
+     * @param key The key built by {@link #keyFor(String, long, int)}.
+     * @return The cached bitmap, or null on a miss.
+     */
+    public Bitmap getFromDisk(String key) {
+        File file = fileFor(key);
+        Bitmap bitmap = file.exists() ? BitmapFactory.decodeFile(file.getPath()) : null;
+        synchronized (this) {
+            if (bitmap != null) {
+                diskHits++;
+            } else {
+                diskMisses++;
+            }
+        }
+        if (bitmap != null) {
+            // Refresh the access time so disk trimming evicts the least recently used files
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+            memoryCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Stores a freshly decoded thumbnail in memory and on disk.
+     * Performs I/O and must not be called on the main thread.
+     *
+     * @param key    The key built by {@link #keyFor(String, long, int)}.
+     * @param bitmap The thumbnail to cache.
+     */
+    public void put(String key, Bitmap bitmap) {
+        memoryCache.put(key, bitmap);
+
+        if (!diskDirectory.exists() && !diskDirectory.mkdirs()) {
+            Log.w(TAG, "Unable to create thumbnail directory " + diskDirectory);
+            return;
+        }
+        File file = fileFor(key);
+        try (OutputStream out = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write thumbnail " + file, e);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return;
+        }
+        trimDisk();
+    }
+
+    /**
+     * Returns the current cache counters.
+     *
+     * @return A {@link Stats} snapshot.
+     */
+    public synchronized Stats getStats() {
+        return new Stats(
+                memoryCache.hitCount(),
+                memoryCache.missCount(),
+                memoryCache.evictionCount(),
+                memoryCache.size(),
+                diskHits,
+                diskMisses,
+                diskEvictions
+        );
+    }
+
+    /**
+     * Deletes the least recently used thumbnail files until the directory fits its budget.
+     */
+    private synchronized void trimDisk() {
+        File[] files = diskDirectory.listFiles();
+        if (files == null) return;
+
+        long total = 0;
+        for (File file : files) total += file.length();
+        if (total <= maxDiskBytes) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= maxDiskBytes) break;
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+                diskEvictions++;
+            }
+        }
+    }
+
+    /**
+     * Maps a cache key to its file, using a digest so arbitrary paths make valid file names.
+     *
+     * @param key The cache key.
+     * @return The thumbnail file for the key.
+     */
+    private File fileFor(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + 4);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return new File(diskDirectory, name.append(".jpg").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+}
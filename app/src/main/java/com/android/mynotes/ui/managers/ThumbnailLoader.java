@@ -0,0 +1,246 @@
+package com.android.mynotes.ui.managers;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decodes note images into downsampled thumbnails on background threads.
+ * Images are decoded with an {@code inSampleSize} matching the requested width, so a
+ * large photo never has to be decoded at full resolution to fill a small card.
+ * Thumbnails are served from a {@link ThumbnailCache} whenever possible.
+ * The modification times of the source files are only read on the decode threads.
+ * A thumbnail cached for the last seen version of a file is shown right away, and the
+ * file is checked again in the background if it was not checked recently.
+ */
+public class ThumbnailLoader {
+
+    /**
+     * Receives a decoded thumbnail on the main thread.
+     */
+    public interface Callback {
+
+        /**
+         * Called with the decoded thumbnail, unless the request was cancelled.
+         *
+         * @param bitmap The decoded bitmap, or null if the image could not be decoded.
+         */
+        void onThumbnailLoaded(Bitmap bitmap);
+    }
+
+    /**
+     * Handle on a pending load, used to cancel it when its target is recycled.
+     */
+    public static final class Request {
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        /**
+         * Cancels the load. The callback is guaranteed not to be invoked afterwards
+         * as long as this is called on the main thread.
+         */
+        public void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        /**
+         * @return true if {@link #cancel()} has been called.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final String TAG = "ThumbnailLoader";
+    private static final long MAX_DISK_CACHE_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * A source file checked more recently than this is not checked again on a memory hit.
+     */
+    private static final long REVALIDATE_INTERVAL_MILLIS = 10_000;
+
+    /**
+     * Singleton instance of the ThumbnailLoader.
+     */
+    private static ThumbnailLoader thumbnailLoader;
+
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThumbnailCache thumbnailCache;
+
+    /**
+     * The last modification time read for each source path, and when it was read.
+     */
+    private final Map<String, FileStamp> fileStamps = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a ThumbnailLoader caching thumbnails in the given cache.
+     *
+     * @param thumbnailCache The {@link ThumbnailCache} to read from and write to.
+     */
+    private ThumbnailLoader(ThumbnailCache thumbnailCache) {
+        this.thumbnailCache = thumbnailCache;
+    }
+
+    /**
+     * Retrieves the shared ThumbnailLoader. The memory tier of its cache uses an eighth
+     * of the heap available to the app, the disk tier lives in the app's cache directory.
+     *
+     * @param context Any context, only its application context is retained.
+     * @return The singleton instance of {@link ThumbnailLoader}.
+     */
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (thumbnailLoader == null) {
+            int maxMemoryBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+            File diskDirectory = new File(context.getApplicationContext().getCacheDir(), "thumbnails");
+            thumbnailLoader = new ThumbnailLoader(
+                    new ThumbnailCache(diskDirectory, maxMemoryBytes, MAX_DISK_CACHE_BYTES)
+            );
+        }
+        return thumbnailLoader;
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the thumbnail cache.
+     *
+     * @return A {@link ThumbnailCache.Stats} snapshot.
+     */
+    public ThumbnailCache.Stats getCacheStats() {
+        return thumbnailCache.getStats();
+    }
+
+    /**
+     * Delivers the thumbnail of the image at {@code path}, downsampled to roughly
+     * {@code targetWidth} pixels wide, to {@code callback} on the main thread.
+     * A thumbnail held in memory for the last seen version of the file is delivered
+     * immediately; otherwise it is read from the disk cache or decoded from the source
+     * image in the background. If the file changed since it was last checked, the new
+     * thumbnail is delivered once it is decoded.
+     *
+     * @param path        The file path of the image.
+     * @param targetWidth The width in pixels the thumbnail will be displayed at.
+     * @param callback    Receives the decoded thumbnail.
+     * @return A {@link Request} that can be cancelled if the result is no longer needed.
+     */
+    public Request load(String path, int targetWidth, Callback callback) {
+        Request request = new Request();
+        FileStamp stamp = fileStamps.get(path);
+        if (stamp != null) {
+            Bitmap cached = thumbnailCache.getFromMemory(ThumbnailCache.keyFor(path, stamp.lastModified, targetWidth));
+            if (cached != null) {
+                callback.onThumbnailLoaded(cached);
+                if (System.currentTimeMillis() - stamp.checkedAt >= REVALIDATE_INTERVAL_MILLIS) {
+                    request.future = decodeExecutor.submit(
+                            () -> loadInBackground(path, targetWidth, stamp.lastModified, callback, request));
+                }
+                return request;
+            }
+        }
+
+        request.future = decodeExecutor.submit(() -> loadInBackground(path, targetWidth, null, callback, request));
+        return request;
+    }
+
+    /**
+     * Reads the modification time of the source file, then delivers the thumbnail of that
+     * version from memory, disk or a fresh decode. Runs on a decode thread.
+     *
+     * @param path          The file path of the image.
+     * @param targetWidth   The width in pixels the thumbnail will be displayed at.
+     * @param shownModified The version whose thumbnail was already delivered, or null.
+     * @param callback      Receives the decoded thumbnail, unless {@code shownModified} is current.
+     * @param request       The request, checked for cancellation.
+     */
+    private void loadInBackground(String path, int targetWidth, Long shownModified,
+                                  Callback callback, Request request) {
+        if (request.isCancelled()) return;
+        long lastModified = new File(path).lastModified();
+        fileStamps.put(path, new FileStamp(lastModified, System.currentTimeMillis()));
+        if (shownModified != null && shownModified == lastModified) return;
+
+        String key = ThumbnailCache.keyFor(path, lastModified, targetWidth);
+        Bitmap bitmap = thumbnailCache.getFromMemory(key);
+        if (bitmap == null) {
+            bitmap = thumbnailCache.getFromDisk(key);
+        }
+        if (bitmap == null) {
+            bitmap = decodeSampled(path, targetWidth);
+            if (bitmap != null) {
+                thumbnailCache.put(key, bitmap);
+            }
+        }
+        Bitmap result = bitmap;
+        mainHandler.post(() -> {
+            if (!request.isCancelled()) {
+                callback.onThumbnailLoaded(result);
+            }
+        });
+    }
+
+    /**
+     * Decodes the image at {@code path} with the largest power-of-two sample size that
+     * keeps it at least {@code targetWidth} pixels wide.
+     *
+     * @param path        The file path of the image.
+     * @param targetWidth The minimum width in pixels of the decoded bitmap.
+     * @return The decoded bitmap, or null if the file could not be decoded.
+     */
+    static Bitmap decodeSampled(String path, int targetWidth) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.w(TAG, "Unable to read image bounds: " + path);
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, targetWidth);
+        options.inJustDecodeBounds = false;
+        // Note images are photos without transparency, half the memory per pixel is enough
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeFile(path, options);
+    }
+
+    /**
+     * Computes the largest power-of-two sample size that keeps the decoded width
+     * greater than or equal to the target width.
+     *
+     * @param width       The width of the source image.
+     * @param targetWidth The width the image will be displayed at.
+     * @return The sample size to decode with (1 means full resolution).
+     */
+    static int calculateInSampleSize(int width, int targetWidth) {
+        int inSampleSize = 1;
+        if (targetWidth <= 0) return inSampleSize;
+        while (width / (inSampleSize * 2) >= targetWidth) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * The modification time of a source file and when it was read.
+     */
+    private static final class FileStamp {
+        final long lastModified;
+        final long checkedAt;
+
+        FileStamp(long lastModified, long checkedAt) {
+            this.lastModified = lastModified;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.android.mynotes.data;
+
+import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteSummary;
+import com.android.mynotes.domain.entities.NoteTrigram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory {@link NoteDao} for JVM tests, holding copies of the notes by ID.
+ * Supports the ID order queries, the writes and all-or-nothing transactions;
+ * the other orders and the search queries are not implemented.
+ */
+public class FakeNoteDao implements NoteDao {
+
+    private TreeMap<Integer, Note> notes = new TreeMap<>();
+    private int nextId = 1;
+    private int transactionCount;
+    private int queryCount;
+
+    /**
+     * Runs {@code body} in a transaction: if it throws, every write it made is undone.
+     */
+    synchronized void runInTransaction(Runnable body) {
+        TreeMap<Integer, Note> saved = new TreeMap<>(notes);
+        int savedNextId = nextId;
+        try {
+            body.run();
+        } catch (RuntimeException e) {
+            notes = saved;
+            nextId = savedNextId;
+            throw e;
+        }
+        transactionCount++;
+    }
+
+    public synchronized int getTransactionCount() {
+        return transactionCount;
+    }
+
+    synchronized int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * Creates a repository writing to this DAO through its own write queue.
+     */
+    public NotesRepository newRepository() {
+        return new NotesRepository(new NotesWriteQueue(this, this::runInTransaction));
+    }
+
+    public synchronized List<Integer> getIds() {
+        return new ArrayList<>(notes.descendingKeySet());
+    }
+
+    /**
+     * Stores a note with a given ID, as if it had been saved earlier.
+     */
+    public synchronized void put(int id, String title) {
+        notes.put(id, new Note.Builder().setId(id).setTitle(title).setUpdatedAt(id).build());
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    synchronized void remove(int id) {
+        notes.remove(id);
+    }
+
+    private static Note copy(Note note) {
+        return new Note.Builder()
+                .setId(note.getId())
+                .setTitle(note.getTitle())
+                .setDateTime(note.getDateTime())
+                .setSubtitle(note.getSubtitle())
+                .setNoteText(note.getNoteText())
+                .setImagePath(note.getImagePath())
+                .setColor(note.getColor())
+                .setWebLink(note.getWebLink())
+                .setCreatedAt(note.getCreatedAt())
+                .setUpdatedAt(note.getUpdatedAt())
+                .build();
+    }
+
+    private List<NoteSummary> summaries(Map<Integer, Note> range, int limit) {
+        queryCount++;
+        List<NoteSummary> rows = new ArrayList<>();
+        for (Note note : range.values()) {
+            if (rows.size() == limit) break;
+            rows.add(NoteSummary.of(note));
+        }
+        return rows;
+    }
+
+    @Override
+    public synchronized Note getNoteById(int id) {
+        Note note = notes.get(id);
+        return note != null ? copy(note) : null;
+    }
+
+    @Override
+    public synchronized List<Note> getNotesPage(int limit) {
+        return getNotesPageBefore(Integer.MAX_VALUE, limit);
+    }
+
+    @Override
+    public synchronized List<Note> getNotesPageBefore(int beforeId, int limit) {
+        List<Note> page = new ArrayList<>();
+        for (Note note : notes.headMap(beforeId, false).descendingMap().values()) {
+            if (page.size() == limit) break;
+            page.add(copy(note));
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized List<NoteSummary> getSummariesPage(int limit) {
+        return summaries(notes.descendingMap(), limit);
+    }
+
+    @Override
+    public synchronized List<NoteSummary> getSummariesPageBefore(int beforeId, int limit) {
+        return summaries(notes.headMap(beforeId, false).descendingMap(), limit);
+    }
+
+    @Override
+    public synchronized List<NoteSummary> getSummariesFrom(int fromId) {
+        return summaries(notes.tailMap(fromId, true).descendingMap(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized List<NoteSummary> getSummariesPageAfter(int afterId, int limit) {
+        return summaries(notes.tailMap(afterId, false), limit);
+    }
+
+    @Override
+    public synchronized List<NoteSummary> getSummariesBetween(int firstId, int lastId) {
+        if (firstId < lastId) return new ArrayList<>();
+        return summaries(notes.subMap(lastId, true, firstId, true).descendingMap(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized int countNotesAfter(int firstId) {
+        queryCount++;
+        return notes.tailMap(firstId, false).size();
+    }
+
+    @Override
+    public synchronized List<Note> getNotesByIds(List<Integer> ids) {
+        List<Note> found = new ArrayList<>();
+        for (int id : ids) {
+            Note note = notes.get(id);
+            if (note != null) found.add(copy(note));
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized long insertNote(Note note) {
+        int id = note.getId() != 0 ? note.getId() : nextId;
+        if (notes.containsKey(id)) {
+            throw new IllegalStateException("UNIQUE constraint failed: notes.id");
+        }
+        nextId = Math.max(nextId, id + 1);
+        Note stored = copy(note);
+        stored.setId(id);
+        notes.put(id, stored);
+        return id;
+    }
+
+    @Override
+    public synchronized int updateNote(Note note) {
+        if (!notes.containsKey(note.getId())) return 0;
+        notes.put(note.getId(), copy(note));
+        return 1;
+    }
+
+    @Override
+    public synchronized void deleteNote(Note note) {
+        notes.remove(note.getId());
+    }
+
+    @Override
+    public void insertTrigrams(List<NoteTrigram> postings) {
+    }
+
+    @Override
+    public void deleteTrigrams(int noteId) {
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesPageByDate(int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesPageByDateBefore(long updatedAt, int id, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesByDateFrom(long updatedAt, int id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesPageByDateAfter(long updatedAt, int id, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesByDateBetween(long firstUpdatedAt, int firstId, long lastUpdatedAt, int lastId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int countNotesByDateAfter(long updatedAt, int id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesPageByTitle(int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesPageByTitleAfter(String title, int id, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesByTitleThrough(String title, int id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesPageByTitleBefore(String title, int id, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesByTitleBetween(String firstTitle, int firstId, String lastTitle, int lastId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int countNotesByTitleBefore(String title, int id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesByTitle() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesPageByColor(int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesPageByColorAfter(String color, int id, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesByColorThrough(String color, int id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesPageByColorBefore(String color, int id, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesByColorBetween(String firstColor, int firstId, String lastColor, int lastId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int countNotesByColorBefore(String color, int id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteSummary> getSummariesByColor() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NoteMatch> searchNotes(String matchExpression) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Integer> findNotesWithTrigrams(List<String> trigrams, int trigramCount) {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,197 @@
+package com.android.mynotes.data;
+
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+
+import com.android.mynotes.domain.entities.NoteSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the windowing, trimming and placeholders of {@link NotesPager} in ID order,
+ * over a {@link FakeNoteDao}, with loads and posts running on the calling thread.
+ * Notes are stored with contiguous IDs, so the note at any loaded position is known.
+ */
+public class NotesPagerTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int PREFETCH_DISTANCE = 2;
+    private static final int MAX_SIZE = 30;
+    private static final int VISIBLE = 10;
+
+    private FakeNoteDao noteDao;
+    private NotesPager pager;
+
+    @Before
+    public void createPager() {
+        ArchTaskExecutor.getInstance().setDelegate(new TaskExecutor() {
+            @Override
+            public void executeOnDiskIO(Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public void postToMainThread(Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public boolean isMainThread() {
+                return true;
+            }
+        });
+        noteDao = new FakeNoteDao();
+        pager = new NotesPager(noteDao, null, Runnable::run, PAGE_SIZE, PREFETCH_DISTANCE, MAX_SIZE);
+    }
+
+    @After
+    public void restoreExecutor() {
+        ArchTaskExecutor.getInstance().setDelegate(null);
+    }
+
+    /**
+     * Stores the notes with IDs {@code first} to {@code last}.
+     */
+    private void addNotes(int first, int last) {
+        for (int id = first; id <= last; id++) noteDao.put(id, "Note " + id);
+    }
+
+    private void scrollTo(int firstPosition) {
+        pager.loadAround(firstPosition, firstPosition + VISIBLE - 1);
+    }
+
+    private static int placeholders(List<NoteSummary> window) {
+        int count = 0;
+        while (count < window.size() && window.get(count) == null) count++;
+        return count;
+    }
+
+    /**
+     * Asserts that the published window holds contiguous rows below its placeholders,
+     * with the note at every position matching the table, and no more rows than allowed.
+     *
+     * @param topId The ID of the first note of the table.
+     * @return The published window.
+     */
+    private List<NoteSummary> assertWindow(int topId) {
+        List<NoteSummary> window = pager.getValue();
+        int leading = placeholders(window);
+        for (int position = leading; position < window.size(); position++) {
+            assertNotNull("Placeholder below the loaded rows at " + position, window.get(position));
+            assertEquals(topId - position, window.get(position).getId());
+        }
+        assertTrue("Too many rows: " + (window.size() - leading), window.size() - leading <= MAX_SIZE);
+        return window;
+    }
+
+    @Test
+    public void scheduleRefresh_loadsTheFirstPage() {
+        addNotes(1, 100);
+        pager.scheduleRefresh();
+        List<NoteSummary> window = assertWindow(100);
+        assertEquals(PAGE_SIZE, window.size());
+        assertEquals(0, placeholders(window));
+    }
+
+    @Test
+    public void loadAround_appendsPagesUntilTheEnd() {
+        addNotes(1, 25);
+        pager.scheduleRefresh();
+        scrollTo(0);
+        assertEquals(20, assertWindow(25).size());
+        scrollTo(10);
+        assertEquals(25, assertWindow(25).size());
+
+        int queries = noteDao.getQueryCount();
+        scrollTo(15);
+        assertEquals(queries, noteDao.getQueryCount());
+    }
+
+    @Test
+    public void loadAround_dropsPagesAboveTheViewportAsPlaceholders() {
+        addNotes(1, 100);
+        pager.scheduleRefresh();
+        for (int first = 0; first <= 20; first += PAGE_SIZE) scrollTo(first);
+
+        List<NoteSummary> window = assertWindow(100);
+        assertEquals(40, window.size());
+        assertEquals(10, placeholders(window));
+    }
+
+    @Test
+    public void loadAround_readsPlaceholdersBackAndDropsPagesBelow() {
+        addNotes(1, 100);
+        pager.scheduleRefresh();
+        for (int first = 0; first <= 60; first += PAGE_SIZE) scrollTo(first);
+        int leadingAtBottom = placeholders(assertWindow(100));
+        assertTrue(leadingAtBottom >= 40);
+
+        for (int first = 60; first >= 0; first -= PAGE_SIZE) scrollTo(first);
+        List<NoteSummary> window = assertWindow(100);
+        assertEquals(0, placeholders(window));
+        assertEquals(MAX_SIZE, window.size());
+
+        // Pages dropped below are read again when scrolled back to
+        for (int first = 0; first <= 40; first += PAGE_SIZE) scrollTo(first);
+        assertTrue(assertWindow(100).size() > 50);
+    }
+
+    @Test
+    public void scheduleRefresh_atTheTopTrimsNotesAddedAboveTheWindow() {
+        addNotes(1, 100);
+        pager.scheduleRefresh();
+        scrollTo(0);
+        scrollTo(10);
+        List<NoteSummary> before = assertWindow(100);
+        assertEquals(MAX_SIZE, before.size());
+        assertEquals(0, placeholders(before));
+
+        // Re-read from the top, the window would hold 70 rows; pages below the viewport go
+        addNotes(101, 140);
+        pager.scheduleRefresh();
+        List<NoteSummary> window = assertWindow(140);
+        assertEquals(MAX_SIZE, window.size());
+        assertEquals(0, placeholders(window));
+
+        // The dropped rows are appended again when scrolled to
+        scrollTo(20);
+        assertEquals(MAX_SIZE + PAGE_SIZE, assertWindow(140).size());
+    }
+
+    @Test
+    public void scheduleRefresh_belowTheTopCountsNotesAddedAbove() {
+        addNotes(1, 100);
+        pager.scheduleRefresh();
+        for (int first = 0; first <= 40; first += PAGE_SIZE) scrollTo(first);
+        List<NoteSummary> before = assertWindow(100);
+        int leading = placeholders(before);
+        assertTrue(leading > 0);
+
+        addNotes(101, 105);
+        pager.scheduleRefresh();
+        List<NoteSummary> after = assertWindow(105);
+        assertEquals(leading + 5, placeholders(after));
+        assertEquals(before.size() + 5, after.size());
+    }
+
+    @Test
+    public void scheduleRefresh_startsOverOnceEveryRetainedNoteIsGone() {
+        addNotes(1, 100);
+        pager.scheduleRefresh();
+        for (int first = 0; first <= 40; first += PAGE_SIZE) scrollTo(first);
+        assertTrue(placeholders(assertWindow(100)) > 0);
+        for (int id = 1; id <= 100; id++) noteDao.remove(id);
+        addNotes(200, 204);
+        pager.scheduleRefresh();
+
+        List<NoteSummary> window = assertWindow(204);
+        assertEquals(5, window.size());
+        assertEquals(0, placeholders(window));
+    }
+}
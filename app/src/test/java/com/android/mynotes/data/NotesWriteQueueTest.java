@@ -0,0 +1,168 @@
+package com.android.mynotes.data;
+
+import com.android.mynotes.domain.entities.Note;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the ordering, batching and rollback of {@link NotesWriteQueue}, over a {@link FakeNoteDao}.
+ */
+public class NotesWriteQueueTest {
+
+    private FakeNoteDao noteDao;
+    private NotesWriteQueue queue;
+
+    @Before
+    public void createQueue() {
+        noteDao = new FakeNoteDao();
+        queue = new NotesWriteQueue(noteDao, noteDao::runInTransaction);
+    }
+
+    private static Note note(int id, String title) {
+        return new Note.Builder().setId(id).setTitle(title).build();
+    }
+
+    private static void await(CompletableFuture<Void> future) throws Exception {
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    private static Throwable failureOf(CompletableFuture<Void> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        fail("The write did not fail");
+        return null;
+    }
+
+    /**
+     * Queues a write that blocks the worker until the returned latch is released, so the
+     * writes queued meanwhile are committed together in the next batch.
+     */
+    private CountDownLatch blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        queue.enqueue(dao -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    public void enqueue_appliesWritesInSubmissionOrder() throws Exception {
+        List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 200; i++) {
+            int index = i;
+            last = queue.enqueue(dao -> applied.add(index));
+        }
+        await(last);
+        for (int i = 0; i < 200; i++) assertEquals(i, (int) applied.get(i));
+    }
+
+    @Test
+    public void enqueue_commitsWritesQueuedWhileBusyInOneTransaction() throws Exception {
+        CountDownLatch release = blockWorker();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int id = 1; id <= 5; id++) {
+            Note note = note(id, "Note " + id);
+            writes.add(queue.enqueue(dao -> dao.saveNote(note)));
+        }
+        release.countDown();
+        for (CompletableFuture<Void> write : writes) await(write);
+
+        assertEquals(2, noteDao.getTransactionCount());
+        assertEquals(Arrays.asList(5, 4, 3, 2, 1), noteDao.getIds());
+    }
+
+    @Test
+    public void enqueue_failingWriteFailsItselfAndTheRestOfItsBatch() throws Exception {
+        CountDownLatch release = blockWorker();
+        CompletableFuture<Void> before = queue.enqueue(dao -> dao.saveNote(note(1, "Kept")));
+        RuntimeException error = new RuntimeException("disk full");
+        CompletableFuture<Void> failing = queue.enqueue(dao -> {
+            dao.saveNote(note(2, "Rolled back"));
+            throw error;
+        });
+        CompletableFuture<Void> after = queue.enqueue(dao -> {
+            Note added = dao.getNoteById(2);
+            added.setTitle("Edited");
+            dao.saveNote(added);
+        });
+        release.countDown();
+
+        await(before);
+        assertSame(error, failureOf(failing));
+        assertSame(error, failureOf(after).getCause());
+        assertEquals(Collections.singletonList(1), noteDao.getIds());
+    }
+
+    @Test
+    public void enqueue_laterBatchesStillRunAfterAFailure() throws Exception {
+        CompletableFuture<Void> failing = queue.enqueue(dao -> {
+            throw new IllegalStateException("Note 3 does not exist");
+        });
+        failureOf(failing);
+
+        await(queue.enqueue(dao -> dao.saveNote(note(4, "Next"))));
+        assertEquals(Collections.singletonList(4), noteDao.getIds());
+    }
+
+    @Test
+    public void enqueue_failedCommitFailsEveryWrite() throws Exception {
+        RuntimeException error = new RuntimeException("commit failed");
+        NotesWriteQueue failingQueue = new NotesWriteQueue(noteDao, body -> {
+            body.run();
+            throw error;
+        });
+        assertSame(error, failureOf(failingQueue.enqueue(dao -> dao.saveNote(note(1, "Lost")))));
+    }
+
+    @Test
+    public void whenQueuedWritesDone_waitsForEarlierWritesOnly() throws Exception {
+        CountDownLatch release = blockWorker();
+        CompletableFuture<Void> kept = queue.enqueue(dao -> dao.saveNote(note(1, "Kept")));
+        CompletableFuture<Void> failing = queue.enqueue(dao -> {
+            throw new IllegalStateException("Note 3 does not exist");
+        });
+        CompletableFuture<Void> barrier = queue.whenQueuedWritesDone();
+        CompletableFuture<Void> later = queue.enqueue(dao -> dao.saveNote(note(2, "Later")));
+        assertFalse(barrier.isDone());
+
+        release.countDown();
+        await(barrier);
+        // The failed write's batch re-commits the writes before it before any future completes
+        assertTrue(kept.isDone() && !kept.isCompletedExceptionally());
+        assertTrue(failing.isCompletedExceptionally());
+        // Queued in the same batch, after the failing write
+        assertTrue(failureOf(later) instanceof IllegalStateException);
+        assertEquals(Collections.singletonList(1), noteDao.getIds());
+    }
+
+    @Test
+    public void enqueue_newNoteReceivesItsId() throws Exception {
+        noteDao.put(7, "Existing");
+        Note note = note(0, "New");
+        await(queue.enqueue(dao -> dao.saveNote(note)));
+        assertEquals(8, note.getId());
+    }
+}
@@ -0,0 +1,41 @@
+package com.android.mynotes.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the case and accent folding applied to notes and queries.
+ */
+public class TextFoldingTest {
+
+    @Test
+    public void fold_lowerCasesAndStripsAccents() {
+        assertEquals("creme brulee", new String(TextFolding.fold("Crème Brûlée")));
+        assertEquals("cafe", new String(TextFolding.fold("CAFÉ")));
+        assertEquals('c', TextFolding.fold('Ç'));
+        assertEquals('a', TextFolding.fold('Ā'));
+    }
+
+    @Test
+    public void fold_keepsLength() {
+        String text = "Ångström — Ünïcödé ß";
+        assertEquals(text.length(), TextFolding.fold(text).length);
+    }
+
+    @Test
+    public void fold_lowerCasesCharsOutsideLatinBlocks() {
+        assertEquals('σ', TextFolding.fold('Σ'));
+        assertEquals('я', TextFolding.fold('Я'));
+    }
+
+    @Test
+    public void fold_leavesDigitsAndPunctuation() {
+        assertEquals("q3-2024, #1", new String(TextFolding.fold("Q3-2024, #1")));
+    }
+
+    @Test
+    public void fold_nullIsEmpty() {
+        assertEquals(0, TextFolding.fold(null).length);
+    }
+}
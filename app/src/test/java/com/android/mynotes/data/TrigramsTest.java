@@ -0,0 +1,63 @@
+package com.android.mynotes.data;
+
+import com.android.mynotes.domain.entities.Note;
+import com.android.mynotes.domain.entities.NoteTrigram;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the trigram extraction behind the "note_trigrams" index.
+ */
+public class TrigramsTest {
+
+    private static List<String> collect(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        Trigrams.collect(text, trigrams);
+        return new ArrayList<>(trigrams);
+    }
+
+    @Test
+    public void collect_slidesOverEachWord() {
+        assertEquals(Arrays.asList("inv", "nvo", "voi", "oic", "ice"), collect("invoice"));
+    }
+
+    @Test
+    public void collect_foldsCaseAndAccents() {
+        assertEquals(Arrays.asList("cre", "rem", "eme"), collect("CRÈME"));
+    }
+
+    @Test
+    public void collect_neverSpansNonAlphanumerics() {
+        assertEquals(Arrays.asList("cde", "q32"), collect("ab-cde q3.q32"));
+    }
+
+    @Test
+    public void collect_shortOrNullTextHasNoTrigrams() {
+        assertTrue(collect("ab c").isEmpty());
+        assertTrue(collect(null).isEmpty());
+    }
+
+    @Test
+    public void postingsOf_areDistinctAcrossFields() {
+        Note note = new Note.Builder()
+                .setId(9)
+                .setTitle("Tea")
+                .setSubtitle("tea time")
+                .setNoteText("Green TEA")
+                .build();
+        List<String> trigrams = new ArrayList<>();
+        for (NoteTrigram posting : Trigrams.postingsOf(note)) {
+            assertEquals(9, posting.getNoteId());
+            trigrams.add(posting.getTrigram());
+        }
+        assertEquals(Arrays.asList("tea", "tim", "ime", "gre", "ree", "een"), trigrams);
+    }
+}
@@ -0,0 +1,147 @@
+package com.android.mynotes.domain.commands;
+
+import com.android.mynotes.domain.entities.Note;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trip tests of {@link CommandCodec}, and of the note deltas it persists.
+ */
+public class CommandCodecTest {
+
+    private static Note note(String title, String text, long updatedAt) {
+        return new Note.Builder()
+                .setId(42)
+                .setTitle(title)
+                .setDateTime("Monday, 01 January 2024 10:00 AM")
+                .setSubtitle("Quarterly review")
+                .setNoteText(text)
+                .setColor("#FDBE3B")
+                .setCreatedAt(1704103200000L)
+                .setUpdatedAt(updatedAt)
+                .build();
+    }
+
+    private static void assertNotesEqual(Note expected, Note actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDateTime(), actual.getDateTime());
+        assertEquals(expected.getSubtitle(), actual.getSubtitle());
+        assertEquals(expected.getNoteText(), actual.getNoteText());
+        assertEquals(expected.getImagePath(), actual.getImagePath());
+        assertEquals(expected.getColor(), actual.getColor());
+        assertEquals(expected.getWebLink(), actual.getWebLink());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+
+    private static String longText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 100_000; i++) {
+            text.append("Line ").append(i).append(": discuss the invoice with the team.\n");
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void edit_roundTripAppliesBothWays() {
+        Note before = note("Meeting", "Discuss the invoice \uD83D\uDE00 today.", 1000L);
+        Note after = note("Meeting notes", "Discuss the \uD83D\uDE01 invoice tomorrow.", 2000L);
+        EditNoteCommand edit = new EditNoteCommand(null, before, after);
+
+        Command decoded = CommandCodec.decode(CommandCodec.encode(edit), null);
+
+        assertTrue(decoded instanceof EditNoteCommand);
+        NoteDelta delta = ((EditNoteCommand) decoded).getDelta();
+        assertEquals(42, delta.getNoteId());
+        assertNotesEqual(after, delta.applyForward(before));
+        assertNotesEqual(before, delta.applyBackward(after));
+    }
+
+    @Test
+    public void edit_nullTextIsStoredAsAChangedField() {
+        Note before = note("Meeting", null, 1000L);
+        Note after = note("Meeting", "First line", 2000L);
+        Command decoded = CommandCodec.decode(CommandCodec.encode(new EditNoteCommand(null, before, after)), null);
+
+        NoteDelta delta = ((EditNoteCommand) decoded).getDelta();
+        assertNotesEqual(after, delta.applyForward(before));
+        assertNull(delta.applyBackward(after).getNoteText());
+    }
+
+    @Test
+    public void edit_ofALongNoteOnlyStoresTheChange() {
+        String text = longText();
+        Note before = note("Meeting", text, 1000L);
+        Note after = note("Meeting", text.replace("Line 1000:", "Line 1000 (done):"), 2000L);
+
+        byte[] bytes = CommandCodec.encode(new EditNoteCommand(null, before, after));
+
+        assertTrue("Encoded edit is " + bytes.length + " bytes", bytes.length < 100);
+        NoteDelta delta = ((EditNoteCommand) CommandCodec.decode(bytes, null)).getDelta();
+        assertEquals(after.getNoteText(), delta.applyForward(before).getNoteText());
+        assertEquals(text, delta.applyBackward(after).getNoteText());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void edit_refusesANoteItWasNotComputedFrom() {
+        Note before = note("Meeting", "Discuss the invoice.", 1000L);
+        Note after = note("Meeting", "Discuss the invoice today.", 2000L);
+        NoteDelta delta = NoteDelta.between(before, after);
+
+        delta.applyBackward(note("Meeting", "Something else entirely.", 2000L));
+    }
+
+    @Test
+    public void addAndDelete_roundTripTheirNote() {
+        Note note = note("Meeting", "Discuss the invoice.", 1000L);
+
+        Command add = CommandCodec.decode(CommandCodec.encode(new AddNoteCommand(null, note)), null);
+        Command delete = CommandCodec.decode(CommandCodec.encode(new DeleteNoteCommand(null, note)), null);
+
+        assertNotesEqual(note, ((AddNoteCommand) add).getNote());
+        assertNotesEqual(note, ((DeleteNoteCommand) delete).getNote());
+    }
+
+    @Test
+    public void composite_roundTripsItsCommandsInOrder() {
+        Note first = note("First", "One", 1000L);
+        Note second = note("Second", "Two", 1000L);
+        CompositeCommand batch = new CompositeCommand(null, Arrays.asList(
+                new DeleteNoteCommand(null, first), new DeleteNoteCommand(null, second)));
+
+        Command decoded = CommandCodec.decode(CommandCodec.encode(batch), null);
+
+        CompositeCommand composite = (CompositeCommand) decoded;
+        assertEquals(2, composite.getCommands().size());
+        assertEquals("First", ((DeleteNoteCommand) composite.getCommands().get(0)).getNote().getTitle());
+        assertEquals("Second", ((DeleteNoteCommand) composite.getCommands().get(1)).getNote().getTitle());
+    }
+
+    @Test
+    public void decode_rejectsTruncatedData() {
+        Note before = note("Meeting", "Discuss the invoice.", 1000L);
+        Note after = note("Meeting notes", "Discuss the invoice today.", 2000L);
+        byte[] bytes = CommandCodec.encode(new EditNoteCommand(null, before, after));
+
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                CommandCodec.decode(Arrays.copyOf(bytes, length), null);
+                fail("Decoded " + length + " of " + bytes.length + " bytes");
+            } catch (IllegalArgumentException expected) {
+                // Truncation is reported, never decoded into a partial command
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsNewerVersions() {
+        byte[] bytes = CommandCodec.encode(new AddNoteCommand(null, note("Meeting", "Text", 1000L)));
+        bytes[0] = (byte) (CommandCodec.FORMAT_VERSION + 1);
+        CommandCodec.decode(bytes, null);
+    }
+}
@@ -0,0 +1,341 @@
+package com.android.mynotes.domain.commands;
+
+import com.android.mynotes.data.FakeNoteDao;
+import com.android.mynotes.data.NotesRepository;
+import com.android.mynotes.domain.entities.Note;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the byte budget, coalescing and grouping of {@link CommandInvoker}, writing through a
+ * repository over a {@link FakeNoteDao}, with a clock stepped by the tests.
+ */
+public class CommandInvokerTest {
+
+    private FakeNoteDao noteDao;
+    private NotesRepository repository;
+    private long now;
+
+    @Before
+    public void resetInvoker() {
+        CommandInvoker.reset();
+        CommandInvoker.setClock(() -> now);
+        noteDao = new FakeNoteDao();
+        repository = noteDao.newRepository();
+    }
+
+    @After
+    public void restoreInvoker() {
+        CommandInvoker.reset();
+    }
+
+    private static Note note(int id, String title) {
+        return new Note.Builder().setId(id).setTitle(title).setNoteText(title + " text").build();
+    }
+
+    private static void await(CompletableFuture<Void> future) throws Exception {
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    private String storedTitle(int id) {
+        Note stored = noteDao.getNoteById(id);
+        return stored != null ? stored.getTitle() : null;
+    }
+
+    /**
+     * Saves an edit of a note from one title to another through the invoker.
+     */
+    private void edit(int id, String from, String to) throws Exception {
+        await(CommandInvoker.executeCommand(new EditNoteCommand(repository, note(id, from), note(id, to))));
+    }
+
+    @Test
+    public void executeCommand_mergesEditsUpToTheEndOfTheWindow() throws Exception {
+        noteDao.put(1, "a");
+        edit(1, "a", "ab");
+        now += CommandInvoker.DEFAULT_COALESCE_WINDOW_MILLIS;
+        edit(1, "ab", "abc");
+        assertEquals(1, CommandInvoker.getUndoCount());
+
+        // The window runs from the latest edit, merged or not
+        now += CommandInvoker.DEFAULT_COALESCE_WINDOW_MILLIS + 1;
+        edit(1, "abc", "abcd");
+        assertEquals(2, CommandInvoker.getUndoCount());
+
+        await(CommandInvoker.undo());
+        assertEquals("abc", storedTitle(1));
+        await(CommandInvoker.undo());
+        assertEquals("a", storedTitle(1));
+    }
+
+    @Test
+    public void executeCommand_doesNotMergeAfterAnUndo() throws Exception {
+        noteDao.put(1, "a");
+        edit(1, "a", "ab");
+        edit(1, "ab", "abc");
+        await(CommandInvoker.undo());
+        edit(1, "a", "ax");
+        assertEquals(1, CommandInvoker.getUndoCount());
+        assertEquals(0, CommandInvoker.getRedoCount());
+
+        await(CommandInvoker.undo());
+        assertEquals("a", storedTitle(1));
+    }
+
+    @Test
+    public void executeCommand_doesNotMergeEditsOfOtherNotes() throws Exception {
+        noteDao.put(1, "a");
+        noteDao.put(2, "b");
+        edit(1, "a", "ab");
+        edit(2, "b", "bc");
+        assertEquals(2, CommandInvoker.getUndoCount());
+    }
+
+    @Test
+    public void setCoalesceWindowMillis_zeroStopsMerging() throws Exception {
+        CommandInvoker.setCoalesceWindowMillis(0);
+        noteDao.put(1, "a");
+        edit(1, "a", "ab");
+        now++;
+        edit(1, "ab", "abc");
+        assertEquals(2, CommandInvoker.getUndoCount());
+    }
+
+    @Test
+    public void mergeWith_addThenEditOfTheAddedNoteIsAnAddOfTheEditedNote() throws Exception {
+        Note added = new Note.Builder().setTitle("Draft").build();
+        AddNoteCommand add = new AddNoteCommand(repository, added);
+        await(add.execute());
+        int id = added.getId();
+        Note edited = note(id, "Final");
+        EditNoteCommand edit = new EditNoteCommand(repository, note(id, "Draft"), edited);
+
+        Command merged = add.mergeWith(edit);
+        assertTrue(merged instanceof AddNoteCommand);
+        assertSame(edited, ((AddNoteCommand) merged).getNote());
+
+        assertNull(add.mergeWith(new EditNoteCommand(repository, note(id + 1, "x"), note(id + 1, "y"))));
+        assertNull(new AddNoteCommand(repository, note(0, "Unsaved")).mergeWith(edit));
+    }
+
+    @Test
+    public void executeCommand_undoOfAMergedAddRemovesTheNote() throws Exception {
+        Note added = new Note.Builder().setTitle("Draft").build();
+        await(CommandInvoker.executeCommand(new AddNoteCommand(repository, added)));
+        int id = added.getId();
+        edit(id, "Draft", "Final");
+        assertEquals(1, CommandInvoker.getUndoCount());
+        assertEquals("Final", storedTitle(id));
+
+        await(CommandInvoker.undo());
+        assertTrue(noteDao.getIds().isEmpty());
+        await(CommandInvoker.redo());
+        assertEquals("Final", storedTitle(id));
+    }
+
+    @Test
+    public void mergeWith_editThenEditComposesTheDeltas() {
+        Note first = note(1, "Shopping list");
+        Note second = note(1, "Shopping list for Monday");
+        Note third = note(1, "Weekly shopping list for Monday");
+        EditNoteCommand earlier = new EditNoteCommand(repository, first, second);
+        EditNoteCommand later = new EditNoteCommand(repository, second, third);
+
+        Command merged = earlier.mergeWith(later);
+        assertTrue(merged instanceof EditNoteCommand);
+        NoteDelta delta = ((EditNoteCommand) merged).getDelta();
+        assertTrue(NoteDelta.sameFields(third, delta.applyForward(first)));
+        assertTrue(NoteDelta.sameFields(first, delta.applyBackward(third)));
+        assertNull(((EditNoteCommand) merged).getPendingNote());
+    }
+
+    @Test
+    public void mergeWith_editWithAComputedDeltaComposesFromTheDelta() {
+        Note first = note(1, "Shopping list");
+        Note second = note(1, "Shopping list for Monday");
+        Note third = note(1, "Weekly shopping list for Monday");
+        EditNoteCommand earlier = new EditNoteCommand(repository, first, second);
+        earlier.getDelta();
+
+        Command merged = earlier.mergeWith(new EditNoteCommand(repository, second, third));
+        NoteDelta delta = ((EditNoteCommand) merged).getDelta();
+        assertTrue(NoteDelta.sameFields(first, delta.applyBackward(third)));
+    }
+
+    @Test
+    public void mergeWith_editNotStartingWhereTheLatestEndedIsNotMerged() {
+        EditNoteCommand earlier = new EditNoteCommand(repository, note(1, "a"), note(1, "ab"));
+        assertNull(earlier.mergeWith(new EditNoteCommand(repository, note(1, "x"), note(1, "xy"))));
+        assertNull(earlier.mergeWith(new AddNoteCommand(repository, note(1, "ab"))));
+    }
+
+    @Test
+    public void compositeCommand_undoesInReverseOrder() throws Exception {
+        List<String> log = new ArrayList<>();
+        CompositeCommand batch = new CompositeCommand(repository, Arrays.asList(
+                new LoggingCommand("first", log),
+                new LoggingCommand("second", log),
+                new LoggingCommand("third", log)));
+
+        await(batch.execute());
+        await(batch.undo());
+        assertEquals(Arrays.asList(
+                "execute first", "execute second", "execute third",
+                "undo third", "undo second", "undo first"), log);
+    }
+
+    @Test
+    public void executeBatch_isOneStepInOneTransaction() throws Exception {
+        noteDao.put(1, "a");
+        noteDao.put(2, "b");
+        noteDao.put(3, "c");
+        int transactionsBefore = noteDao.getTransactionCount();
+        CompositeCommand batch = new CompositeCommand(repository, Arrays.asList(
+                new DeleteNoteCommand(repository, note(1, "a")),
+                new DeleteNoteCommand(repository, note(2, "b"))));
+
+        await(CommandInvoker.executeBatch(batch));
+        assertEquals(transactionsBefore + 1, noteDao.getTransactionCount());
+        assertEquals(Arrays.asList(3), noteDao.getIds());
+        assertEquals(1, CommandInvoker.getUndoCount());
+
+        // A batch is never merged into, even within the window
+        edit(3, "c", "cd");
+        assertEquals(2, CommandInvoker.getUndoCount());
+        await(CommandInvoker.undo());
+        await(CommandInvoker.undo());
+        assertEquals(Arrays.asList(3, 2, 1), noteDao.getIds());
+        assertEquals("c", storedTitle(3));
+    }
+
+    @Test
+    public void executeCommand_evictsTheOldestStepsPastTheBudget() throws Exception {
+        List<String> log = new ArrayList<>();
+        CommandInvoker.setMaxHistoryBytes(300);
+        for (int i = 1; i <= 5; i++) {
+            await(CommandInvoker.executeCommand(new LoggingCommand("c" + i, log, 100)));
+        }
+        assertEquals(3, CommandInvoker.getUndoCount());
+        assertEquals(2, CommandInvoker.getEvictedCount());
+        assertEquals(300, CommandInvoker.getHistoryBytes());
+
+        log.clear();
+        for (int i = 0; i < 4; i++) await(CommandInvoker.undo());
+        assertEquals(Arrays.asList("undo c5", "undo c4", "undo c3"), log);
+    }
+
+    @Test
+    public void getHistoryBytes_isTheSumOfTheRetainedCommandSizes() throws Exception {
+        List<String> log = new ArrayList<>();
+        long expected = 0;
+        for (int i = 1; i <= 4; i++) {
+            Command command = new LoggingCommand("c" + i, log, 10 * i);
+            expected += command.getSizeBytes();
+            await(CommandInvoker.executeCommand(command));
+        }
+        EditNoteCommand edit = new EditNoteCommand(repository, note(1, "a"), note(1, "ab"));
+        expected += edit.getSizeBytes();
+        await(CommandInvoker.executeCommand(edit));
+        assertEquals(expected, CommandInvoker.getHistoryBytes());
+
+        // Undone steps keep their bytes on the redo stack
+        await(CommandInvoker.undo());
+        await(CommandInvoker.undo());
+        assertEquals(expected, CommandInvoker.getHistoryBytes());
+        await(CommandInvoker.redo());
+        assertEquals(expected, CommandInvoker.getHistoryBytes());
+    }
+
+    @Test
+    public void executeCommand_clearsTheRedoStackAndItsBytes() throws Exception {
+        List<String> log = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            await(CommandInvoker.executeCommand(new LoggingCommand("c" + i, log, 100)));
+        }
+        await(CommandInvoker.undo());
+        await(CommandInvoker.undo());
+        assertEquals(2, CommandInvoker.getRedoCount());
+        assertEquals(300, CommandInvoker.getHistoryBytes());
+
+        await(CommandInvoker.executeCommand(new LoggingCommand("c4", log, 50)));
+        assertEquals(0, CommandInvoker.getRedoCount());
+        assertEquals(2, CommandInvoker.getUndoCount());
+        assertEquals(150, CommandInvoker.getHistoryBytes());
+        assertEquals(0, CommandInvoker.getEvictedCount());
+    }
+
+    @Test
+    public void setMaxHistoryBytes_evictsUndoStepsBeforeRedoStepsAndKeepsTheLatest() throws Exception {
+        List<String> log = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            await(CommandInvoker.executeCommand(new LoggingCommand("c" + i, log, 100)));
+        }
+        await(CommandInvoker.undo());
+        await(CommandInvoker.undo());
+
+        CommandInvoker.setMaxHistoryBytes(200);
+        assertEquals(0, CommandInvoker.getUndoCount());
+        assertEquals(2, CommandInvoker.getRedoCount());
+
+        // The furthest redo step goes next, but the last step is kept whatever its size
+        CommandInvoker.setMaxHistoryBytes(0);
+        assertEquals(1, CommandInvoker.getRedoCount());
+        assertEquals(100, CommandInvoker.getHistoryBytes());
+        assertEquals(3, CommandInvoker.getEvictedCount());
+        log.clear();
+        await(CommandInvoker.redo());
+        assertEquals(Arrays.asList("execute c3"), log);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxHistoryBytes_rejectsANegativeBudget() {
+        CommandInvoker.setMaxHistoryBytes(-1);
+    }
+
+    /**
+     * A command without writes, recording when it runs.
+     */
+    private static final class LoggingCommand implements Command {
+
+        private final String name;
+        private final List<String> log;
+        private final long sizeBytes;
+
+        LoggingCommand(String name, List<String> log) {
+            this(name, log, CommandSizes.COMMAND_OVERHEAD);
+        }
+
+        LoggingCommand(String name, List<String> log, long sizeBytes) {
+            this.name = name;
+            this.log = log;
+            this.sizeBytes = sizeBytes;
+        }
+
+        @Override
+        public CompletableFuture<Void> execute() {
+            log.add("execute " + name);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> undo() {
+            log.add("undo " + name);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.android.mynotes.domain.commands;
+
+import com.android.mynotes.domain.entities.Note;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trip tests of {@link NoteDelta}.
+ */
+public class NoteDeltaTest {
+
+    private static Note.Builder note() {
+        return new Note.Builder()
+                .setId(5)
+                .setTitle("Groceries")
+                .setDateTime("Monday, 01 January 2024 10:00 AM")
+                .setSubtitle("Weekend")
+                .setNoteText("Apples, pears and bread.")
+                .setColor("#333333")
+                .setCreatedAt(1000L)
+                .setUpdatedAt(1000L);
+    }
+
+    private static void assertSameNote(Note expected, Note actual) {
+        assertTrue(NoteDelta.sameFields(expected, actual));
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+
+    private static NoteDelta assertRoundTrip(Note before, Note after) {
+        NoteDelta delta = NoteDelta.between(before, after);
+        assertEquals(after.getId(), delta.getNoteId());
+        assertSameNote(after, delta.applyForward(before));
+        assertSameNote(before, delta.applyBackward(after));
+        return delta;
+    }
+
+    @Test
+    public void between_unchangedNoteOnlyMovesTheTimestamps() {
+        Note before = note().build();
+        NoteDelta delta = assertRoundTrip(before, note().setUpdatedAt(2000L).build());
+        for (int field = 0; field < NoteDelta.FIELD_COUNT; field++) assertFalse(delta.isChanged(field));
+        assertNull(delta.getNoteTextDelta());
+    }
+
+    @Test
+    public void between_storesChangedFieldsAndATextDelta() {
+        Note before = note().build();
+        Note after = note()
+                .setTitle("Shopping")
+                .setNoteText("Apples, plums and bread.")
+                .setWebLink("https://example.com")
+                .setUpdatedAt(2000L)
+                .build();
+        NoteDelta delta = assertRoundTrip(before, after);
+        assertTrue(delta.isChanged(NoteDelta.TITLE));
+        assertTrue(delta.isChanged(NoteDelta.WEB_LINK));
+        assertFalse(delta.isChanged(NoteDelta.NOTE_TEXT));
+        assertFalse(delta.isChanged(NoteDelta.SUBTITLE));
+        assertNotNull(delta.getNoteTextDelta());
+        assertNull(delta.getOldValue(NoteDelta.WEB_LINK));
+    }
+
+    @Test
+    public void between_clearedTextIsAChangedField() {
+        NoteDelta delta = assertRoundTrip(note().build(), note().setNoteText(null).build());
+        assertTrue(delta.isChanged(NoteDelta.NOTE_TEXT));
+        assertNull(delta.getNoteTextDelta());
+    }
+
+    @Test
+    public void between_emptyTexts() {
+        assertRoundTrip(note().setNoteText("").build(), note().setNoteText("First line").build());
+        assertRoundTrip(note().setNoteText("Last line").build(), note().setNoteText("").build());
+    }
+
+    @Test
+    public void apply_returnsANewNote() {
+        Note before = note().build();
+        Note after = note().setTitle("Shopping").build();
+        NoteDelta delta = NoteDelta.between(before, after);
+        assertNotSame(before, delta.applyForward(before));
+        assertEquals("Groceries", before.getTitle());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void applyForward_rejectsAChangedFieldHoldingAnotherValue() {
+        NoteDelta delta = NoteDelta.between(note().build(), note().setTitle("Shopping").build());
+        delta.applyForward(note().setTitle("Errands").build());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void applyBackward_rejectsAnotherText() {
+        NoteDelta delta = NoteDelta.between(note().build(), note().setNoteText("Apples, plums and bread.").build());
+        delta.applyBackward(note().setNoteText("Apples, pears and bread.").build());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void applyForward_rejectsAMissingText() {
+        NoteDelta delta = NoteDelta.between(note().build(), note().setNoteText("Apples and bread.").build());
+        delta.applyForward(note().setNoteText(null).build());
+    }
+}
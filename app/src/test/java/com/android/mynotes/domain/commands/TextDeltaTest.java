@@ -0,0 +1,125 @@
+package com.android.mynotes.domain.commands;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trip tests of {@link TextDelta}: every delta rebuilds the new text from the old one
+ * and the old text from the new one.
+ */
+public class TextDeltaTest {
+
+    private static TextDelta assertRoundTrip(String oldText, String newText) {
+        TextDelta delta = TextDelta.between(oldText, newText);
+        assertEquals(newText, delta.applyForward(oldText));
+        assertEquals(oldText, delta.applyBackward(newText));
+        return delta;
+    }
+
+    private static String random(Random random, int length, String alphabet) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return text.toString();
+    }
+
+    @Test
+    public void between_equalTextsHaveNoHunk() {
+        assertTrue(assertRoundTrip("", "").isEmpty());
+        assertTrue(assertRoundTrip("same text", "same text").isEmpty());
+    }
+
+    @Test
+    public void between_emptyOldOrNewText() {
+        TextDelta insertion = assertRoundTrip("", "new text");
+        assertEquals(1, insertion.getHunkCount());
+        assertEquals("new text", insertion.getInserted(0));
+
+        TextDelta deletion = assertRoundTrip("old text", "");
+        assertEquals(1, deletion.getHunkCount());
+        assertEquals("old text", deletion.getDeleted(0));
+    }
+
+    @Test
+    public void between_disjointTextsAreOneHunk() {
+        TextDelta delta = assertRoundTrip("abc", "xyz");
+        assertEquals(1, delta.getHunkCount());
+        assertEquals(0, delta.getOffset(0));
+    }
+
+    @Test
+    public void between_storesOnlyTheChangedWords() {
+        String text = "Discuss the invoice with the whole team on Monday, then send the minutes to everyone.";
+        TextDelta delta = assertRoundTrip(text, text.replace("Monday", "Friday").replace("minutes", "notes"));
+        assertEquals(2, delta.getHunkCount());
+        assertTrue(delta.getOffset(0) > 0);
+    }
+
+    @Test
+    public void between_mergesHunksSeparatedByShortGaps() {
+        TextDelta delta = assertRoundTrip("one two three", "One twO three");
+        assertEquals(1, delta.getHunkCount());
+        assertEquals("one two", delta.getDeleted(0));
+        assertEquals("One twO", delta.getInserted(0));
+    }
+
+    @Test
+    public void between_roundTripsRandomEdits() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            String oldText = random(random, random.nextInt(60), "abc ");
+            StringBuilder newText = new StringBuilder(oldText);
+            for (int edits = random.nextInt(6); edits > 0; edits--) {
+                int at = random.nextInt(newText.length() + 1);
+                if (random.nextBoolean() && at < newText.length()) {
+                    newText.deleteCharAt(at);
+                } else {
+                    newText.insert(at, random(random, 1 + random.nextInt(3), "abcd"));
+                }
+            }
+            assertRoundTrip(oldText, newText.toString());
+            assertRoundTrip(oldText, random(random, random.nextInt(60), "abc "));
+        }
+    }
+
+    @Test
+    public void between_keepsSurrogatePairsWhole() {
+        TextDelta delta = assertRoundTrip("smile 😀 now", "smile 😁 now");
+        assertEquals(1, delta.getHunkCount());
+        assertEquals("😀", delta.getDeleted(0));
+        assertEquals("😁", delta.getInserted(0));
+    }
+
+    @Test
+    public void between_fallsBackToOneHunkPastTheWorkCap() {
+        Random random = new Random(11);
+        // Random texts share long subsequences, so a full diff would find many hunks
+        String oldText = "#" + random(random, 20_000, "abcd") + "!";
+        String newText = "#" + random(random, 20_000, "abcd") + "!";
+        TextDelta delta = assertRoundTrip(oldText, newText);
+        assertEquals(1, delta.getHunkCount());
+        assertTrue(delta.getDeleted(0).length() > 19_000);
+    }
+
+    @Test
+    public void between_diffsLongTextsWithScatteredEdits() {
+        Random random = new Random(3);
+        String oldText = random(random, 50_000, "abcdefgh ");
+        StringBuilder newText = new StringBuilder(oldText);
+        for (int i = 0; i < 200; i++) newText.setCharAt(random.nextInt(newText.length()), 'Z');
+        TextDelta delta = assertRoundTrip(oldText, newText.toString());
+        assertTrue(delta.getHunkCount() > 100);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void applyForward_rejectsAnotherOldText() {
+        TextDelta.between("the old text", "the new text").applyForward("the odd text");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void applyBackward_rejectsAnotherNewText() {
+        TextDelta.between("the old text", "the new text").applyBackward("the old text");
+    }
+}
@@ -0,0 +1,85 @@
+package com.android.mynotes.domain.entities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the round-trip time of {@link NoteCodec} with the Java serialization previously
+ * used to pass notes. Timings depend on the host, so the benchmark is skipped unless the
+ * {@code benchmarks} system property is set, e.g. with {@code ./gradlew test -Pbenchmarks}.
+ * The size comparison is deterministic and lives in {@link NoteCodecTest}.
+ */
+public class NoteCodecBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 20_000;
+
+    private static Note sampleNote(int bodyLength) {
+        StringBuilder body = new StringBuilder(bodyLength);
+        while (body.length() < bodyLength) body.append("Lorem ipsum dolor sit amet. ");
+        return new Note.Builder()
+                .setId(1234)
+                .setTitle("Groceries")
+                .setDateTime("Monday, 01 January 2024 10:00 AM")
+                .setSubtitle("For the weekend")
+                .setNoteText(body.substring(0, bodyLength))
+                .setColor("#17C51E")
+                .setCreatedAt(1704103200000L)
+                .setUpdatedAt(1704106800000L)
+                .build();
+    }
+
+    private static byte[] serialize(Note note) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(note);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Note deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Note) in.readObject();
+        }
+    }
+
+    @Before
+    public void requireOptIn() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+    }
+
+    @Test
+    public void benchmarkRoundTrip() throws IOException, ClassNotFoundException {
+        Note note = sampleNote(200);
+        long checksum = 0;
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            checksum += NoteCodec.decode(NoteCodec.encode(note)).getId();
+            checksum += deserialize(serialize(note)).getId();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            checksum += NoteCodec.decode(NoteCodec.encode(note)).getId();
+        }
+        long codecNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            checksum += deserialize(serialize(note)).getId();
+        }
+        long serializableNanos = System.nanoTime() - start;
+
+        assertTrue(codecNanos < serializableNanos);
+        assertEquals(2L * (WARMUP_ROUNDS + MEASURED_ROUNDS) * note.getId(), checksum);
+    }
+}
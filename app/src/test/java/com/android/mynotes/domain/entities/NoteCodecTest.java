@@ -0,0 +1,146 @@
+package com.android.mynotes.domain.entities;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trip tests of {@link NoteCodec}.
+ */
+public class NoteCodecTest {
+
+    private static Note fullNote() {
+        return new Note.Builder()
+                .setId(42)
+                .setTitle("Meeting notes")
+                .setDateTime("Monday, 01 January 2024 10:00 AM")
+                .setSubtitle("Quarterly review")
+                .setNoteText("Discuss the invoice.\nFollow up with the team.")
+                .setImagePath("/storage/emulated/0/Pictures/board.jpg")
+                .setColor("#FDBE3B")
+                .setWebLink("https://example.com/agenda")
+                .setCreatedAt(1704103200000L)
+                .setUpdatedAt(1704106800000L)
+                .build();
+    }
+
+    private static void assertNotesEqual(Note expected, Note actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDateTime(), actual.getDateTime());
+        assertEquals(expected.getSubtitle(), actual.getSubtitle());
+        assertEquals(expected.getNoteText(), actual.getNoteText());
+        assertEquals(expected.getImagePath(), actual.getImagePath());
+        assertEquals(expected.getColor(), actual.getColor());
+        assertEquals(expected.getWebLink(), actual.getWebLink());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+
+    @Test
+    public void roundTrip_allFieldsSet() {
+        Note note = fullNote();
+        assertNotesEqual(note, NoteCodec.decode(NoteCodec.encode(note)));
+    }
+
+    @Test
+    public void roundTrip_nullFieldsStayNull() {
+        Note note = new Note.Builder().setId(7).setTitle("Only a title").build();
+        Note decoded = NoteCodec.decode(NoteCodec.encode(note));
+        assertNotesEqual(note, decoded);
+        assertNull(decoded.getNoteText());
+        assertNull(decoded.getWebLink());
+    }
+
+    @Test
+    public void roundTrip_emptyStringsStayEmpty() {
+        Note note = new Note.Builder().setTitle("").setSubtitle("").setNoteText("").build();
+        Note decoded = NoteCodec.decode(NoteCodec.encode(note));
+        assertEquals("", decoded.getTitle());
+        assertEquals("", decoded.getSubtitle());
+        assertEquals("", decoded.getNoteText());
+    }
+
+    @Test
+    public void roundTrip_nonAsciiText() {
+        Note note = new Note.Builder()
+                .setTitle("Café déjà vu")
+                .setNoteText("Ελληνικά, 日本語, emoji 📝")
+                .build();
+        assertNotesEqual(note, NoteCodec.decode(NoteCodec.encode(note)));
+    }
+
+    @Test
+    public void roundTrip_bodyLongerThan64KiB() {
+        char[] body = new char[200_000];
+        Arrays.fill(body, 'é');
+        Note note = new Note.Builder().setTitle("Long").setNoteText(new String(body)).build();
+        assertNotesEqual(note, NoteCodec.decode(NoteCodec.encode(note)));
+    }
+
+    @Test
+    public void roundTrip_extremeNumbers() {
+        Note note = new Note.Builder()
+                .setId(Integer.MAX_VALUE)
+                .setCreatedAt(Long.MAX_VALUE)
+                .setUpdatedAt(-1L)
+                .build();
+        assertNotesEqual(note, NoteCodec.decode(NoteCodec.encode(note)));
+
+        Note negative = new Note.Builder().setId(-5).build();
+        assertEquals(-5, NoteCodec.decode(NoteCodec.encode(negative)).getId());
+    }
+
+    @Test
+    public void encode_startsWithFormatVersion() {
+        assertEquals(NoteCodec.FORMAT_VERSION, NoteCodec.encode(fullNote())[0]);
+    }
+
+    @Test
+    public void encode_emptyNoteIsTiny() {
+        // version, id, presence bits, created_at, updated_at
+        assertEquals(5, NoteCodec.encode(new Note()).length);
+    }
+
+    @Test
+    public void encode_smallerThanJavaSerialization() throws IOException {
+        Note note = fullNote();
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(note);
+        }
+        assertTrue(NoteCodec.encode(note).length < serialized.size());
+    }
+
+    @Test
+    public void decodeBuilder_allowsAdjustingFields() {
+        Note note = NoteCodec.decodeBuilder(NoteCodec.encode(fullNote())).setId(0).build();
+        assertEquals(0, note.getId());
+        assertEquals("Meeting notes", note.getTitle());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsNewerVersion() {
+        byte[] bytes = NoteCodec.encode(fullNote());
+        bytes[0] = (byte) (NoteCodec.FORMAT_VERSION + 1);
+        NoteCodec.decode(bytes);
+    }
+
+    @Test
+    public void decode_rejectsTruncatedData() {
+        byte[] bytes = NoteCodec.encode(fullNote());
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                NoteCodec.decode(Arrays.copyOf(bytes, length));
+                fail("Decoded " + length + " of " + bytes.length + " bytes");
+            } catch (IllegalArgumentException expected) {
+                // Truncation is reported, never an index error or a partial note
+            }
+        }
+    }
+}
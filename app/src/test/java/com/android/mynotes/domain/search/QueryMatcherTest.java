@@ -0,0 +1,85 @@
+package com.android.mynotes.domain.search;
+
+import com.android.mynotes.data.TextFolding;
+import com.android.mynotes.domain.entities.Note;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the in-memory query matching: short terms match token prefixes,
+ * longer terms match anywhere in a field.
+ */
+public class QueryMatcherTest {
+
+    private static FoldedNote note(String title, String subtitle, String text) {
+        return new FoldedNote(new Note.Builder()
+                .setId(7)
+                .setTitle(title)
+                .setSubtitle(subtitle)
+                .setNoteText(text)
+                .build());
+    }
+
+    private static boolean matches(FoldedNote note, String query) {
+        return QueryMatcher.matches(note, QueryMatcher.terms(query));
+    }
+
+    @Test
+    public void terms_splitsOnNonAlphanumericsAndFolds() {
+        char[][] terms = QueryMatcher.terms("  Crème, BRÛLÉE!  q3 ");
+        assertEquals(3, terms.length);
+        assertEquals("creme", new String(terms[0]));
+        assertEquals("brulee", new String(terms[1]));
+        assertEquals("q3", new String(terms[2]));
+    }
+
+    @Test
+    public void terms_emptyQueryHasNoTerms() {
+        assertEquals(0, QueryMatcher.terms(" - ").length);
+    }
+
+    @Test
+    public void shortTerm_matchesTokenPrefixesOnly() {
+        FoldedNote note = note("Invoice", "", "");
+        assertTrue(matches(note, "in"));
+        assertTrue(matches(note, "I"));
+        assertFalse(matches(note, "vo"));
+    }
+
+    @Test
+    public void longTerm_matchesInsideWords() {
+        FoldedNote note = note("Invoice", "", "");
+        assertTrue(matches(note, "voic"));
+        assertTrue(matches(note, "ice"));
+        assertFalse(matches(note, "voice2"));
+    }
+
+    @Test
+    public void matches_ignoresCaseAndAccents() {
+        assertTrue(matches(note("Crème brûlée", "", ""), "CREME brulee"));
+        assertTrue(matches(note("creme brulee", "", ""), "crème"));
+    }
+
+    @Test
+    public void matches_requiresEveryTermInAnyField() {
+        FoldedNote note = note("Groceries", "For the weekend", "Apples and pears");
+        assertTrue(matches(note, "groc week pear"));
+        assertFalse(matches(note, "groc plums"));
+    }
+
+    @Test
+    public void hasTokenWithPrefix_treatsDigitsAsWordChars() {
+        char[] text = TextFolding.fold("room 2b, b12");
+        assertTrue(QueryMatcher.hasTokenWithPrefix(text, TextFolding.fold("b1")));
+        assertTrue(QueryMatcher.hasTokenWithPrefix(text, TextFolding.fold("2b")));
+        assertFalse(QueryMatcher.hasTokenWithPrefix(text, TextFolding.fold("12")));
+    }
+
+    @Test
+    public void contains_handlesPatternsLongerThanText() {
+        assertFalse(QueryMatcher.contains(TextFolding.fold("ab"), TextFolding.fold("abc")));
+        assertTrue(QueryMatcher.contains(TextFolding.fold("abc"), TextFolding.fold("abc")));
+    }
+}
@@ -0,0 +1,106 @@
+package com.android.mynotes.domain.search;
+
+import com.android.mynotes.domain.entities.Note;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of search ranking and of the highlight ranges of matched notes.
+ */
+public class SearchScorerTest {
+
+    private static final long NOW = 1704106800000L;
+
+    private static FoldedNote note(String title, String subtitle, String text) {
+        return new FoldedNote(new Note.Builder()
+                .setId(3)
+                .setTitle(title)
+                .setSubtitle(subtitle)
+                .setNoteText(text)
+                .build());
+    }
+
+    private static float score(FoldedNote note, String query, long updatedAt) {
+        return SearchScorer.score(note, updatedAt, QueryMatcher.terms(query), NOW);
+    }
+
+    private static MatchHighlights highlights(FoldedNote note, String query) {
+        return SearchScorer.highlights(note, QueryMatcher.terms(query));
+    }
+
+    @Test
+    public void score_titleHitOutranksSubtitleAndBodyHits() {
+        float title = score(note("Apple pie", "", ""), "apple", 0);
+        float subtitle = score(note("Dessert", "Apple pie", ""), "apple", 0);
+        float body = score(note("Dessert", "", "Apple pie"), "apple", 0);
+        assertTrue(title > subtitle);
+        assertTrue(subtitle > body);
+    }
+
+    @Test
+    public void score_tokenStartOutranksInfixHit() {
+        assertTrue(score(note("Apple pie", "", ""), "apple", 0)
+                > score(note("Pineapple", "", ""), "apple", 0));
+    }
+
+    @Test
+    public void score_repeatedHitsSaturate() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 50; i++) body.append("apple ");
+        float repeated = score(note("", "", body.toString()), "apple", 0);
+        float once = score(note("", "", "apple"), "apple", 0);
+        assertTrue(repeated > once);
+        assertTrue(repeated < SearchScorer.BODY_WEIGHT);
+    }
+
+    @Test
+    public void score_recentEditsRankHigher() {
+        FoldedNote note = note("Apple", "", "");
+        float recent = score(note, "apple", NOW - TimeUnit.HOURS.toMillis(1));
+        float old = score(note, "apple", NOW - TimeUnit.DAYS.toMillis(365));
+        float unknown = score(note, "apple", 0);
+        assertTrue(recent > old);
+        assertTrue(old > unknown);
+    }
+
+    @Test
+    public void score_shortTermIgnoresInfixHits() {
+        assertEquals(0f, score(note("Pineapple", "", ""), "ap", 0), 0f);
+    }
+
+    @Test
+    public void highlights_coverSubstringHitsOfLongTerms() {
+        MatchHighlights highlights = highlights(note("Invoice for Ivan", "", ""), "voi");
+        assertArrayEquals(new int[]{2, 5}, highlights.getTitleRanges());
+    }
+
+    @Test
+    public void highlights_coverOnlyTokenStartsOfShortTerms() {
+        MatchHighlights highlights = highlights(note("Invoice for Ivan", "", ""), "iv");
+        assertArrayEquals(new int[]{12, 14}, highlights.getTitleRanges());
+    }
+
+    @Test
+    public void highlights_mergeOverlappingHitsOfSeveralTerms() {
+        MatchHighlights highlights = highlights(note("Invoice", "Ivan's invoice", ""), "inv nvo");
+        assertArrayEquals(new int[]{0, 4}, highlights.getTitleRanges());
+        assertArrayEquals(new int[]{7, 11}, highlights.getSubtitleRanges());
+    }
+
+    @Test
+    public void highlights_useOffsetsOfTheOriginalText() {
+        MatchHighlights highlights = highlights(note("Crème brûlée", "", ""), "brulee");
+        assertArrayEquals(new int[]{6, 12}, highlights.getTitleRanges());
+    }
+
+    @Test
+    public void highlights_emptyWithoutHits() {
+        MatchHighlights highlights = highlights(note("Groceries", "", "apple"), "apple");
+        assertEquals(0, highlights.getTitleRanges().length);
+        assertEquals(0, highlights.getSubtitleRanges().length);
+    }
+}
@@ -0,0 +1,86 @@
+package com.android.mynotes.domain.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the edit distance and of the BK-tree used by fuzzy search.
+ */
+public class TermDictionaryTest {
+
+    private static final List<String> VOCABULARY = Arrays.asList(
+            "apple", "apply", "ample", "maple", "apples", "applet", "ape", "apex",
+            "meeting", "meting", "melting", "metering", "mating", "muting",
+            "invoice", "invoices", "voice", "choice", "juice", "receipt", "recipe", "recite");
+
+    private static TermDictionary.BkTree tree(List<String> terms) {
+        TermDictionary.BkTree tree = new TermDictionary.BkTree();
+        for (String term : terms) tree.add(term);
+        return tree;
+    }
+
+    private static List<String> sorted(List<String> terms) {
+        List<String> copy = new ArrayList<>(terms);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    @Test
+    public void distance_countsInsertionsDeletionsAndSubstitutions() {
+        assertEquals(0, TermDictionary.distance("apple", "apple", 2));
+        assertEquals(1, TermDictionary.distance("aple", "apple", 2));
+        assertEquals(1, TermDictionary.distance("apples", "apple", 2));
+        assertEquals(1, TermDictionary.distance("apple", "apply", 2));
+        assertEquals(3, TermDictionary.distance("kitten", "sitting", 3));
+        assertEquals(5, TermDictionary.distance("", "apple", 5));
+    }
+
+    @Test
+    public void distance_stopsPastTheLimit() {
+        assertTrue(TermDictionary.distance("kitten", "sitting", 2) > 2);
+        assertTrue(TermDictionary.distance("ab", "abcdef", 1) > 1);
+        assertTrue(TermDictionary.distance("abcdef", "uvwxyz", 1) > 1);
+    }
+
+    @Test
+    public void bkTree_findsTermsWithinTheEditLimit() {
+        TermDictionary.BkTree tree = tree(VOCABULARY);
+        assertEquals(Arrays.asList("ample", "ape", "apple", "maple"), sorted(tree.search("aple", 1)));
+        assertEquals(Arrays.asList("mating", "meeting", "melting", "meting", "muting"),
+                sorted(tree.search("meting", 1)));
+        assertTrue(tree.search("zzzz", 1).isEmpty());
+    }
+
+    @Test
+    public void bkTree_matchesBruteForce() {
+        TermDictionary.BkTree tree = tree(VOCABULARY);
+        for (String query : Arrays.asList("apple", "aple", "invoce", "recipt", "meating", "juise", "x")) {
+            for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+                List<String> expected = new ArrayList<>();
+                for (String term : VOCABULARY) {
+                    if (TermDictionary.distance(term, query, maxEdits) <= maxEdits) expected.add(term);
+                }
+                assertEquals(query + " within " + maxEdits,
+                        sorted(expected), sorted(tree.search(query, maxEdits)));
+            }
+        }
+    }
+
+    @Test
+    public void bkTree_ignoresDuplicates() {
+        TermDictionary.BkTree tree = tree(Arrays.asList("apple", "apple", "maple"));
+        assertEquals(2, tree.size());
+        assertEquals(Collections.singletonList("apple"), tree.search("apple", 0));
+    }
+
+    @Test
+    public void bkTree_emptyTreeFindsNothing() {
+        assertTrue(new TermDictionary.BkTree().search("apple", 2).isEmpty());
+    }
+}